@@ -0,0 +1,211 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.benchmarks;
+
+import com.dineshkumarkummara.otel.langchain4j.LangChain4jTelemetry;
+import com.dineshkumarkummara.otel.langchain4j.LangChain4jTelemetryProperties;
+import com.dineshkumarkummara.otel.langchain4j.OtelChatLanguageModel;
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-call cost {@link OtelChatLanguageModel} adds on top of a no-op {@link ChatLanguageModel}.
+ *
+ * <p>The delegate returns a prebuilt response, so every nanosecond and byte reported is instrumentation
+ * overhead. Compare each mode against {@code raw} for the same message and tool-call counts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChatInstrumentationBenchmark {
+
+    /**
+     * {@code raw}: the bare delegate. {@code disabled}: wrapped with {@code otel.langchain4j.enabled=false}.
+     * {@code noop}: wrapped with {@link OpenTelemetry#noop()}. {@code sdk}: SDK with in-memory exporters,
+     * every span sampled. {@code sdk-unsampled}: same SDK with an always-off sampler.
+     */
+    @Param({"raw", "disabled", "noop", "sdk", "sdk-unsampled"})
+    public String mode;
+
+    /** Toggles both {@code capturePrompts} and {@code captureCompletions}. */
+    @Param({"false", "true"})
+    public boolean capture;
+
+    @Param({"1", "10", "100"})
+    public int messages;
+
+    /** Tool execution requests in each response; non-zero values model tool-call-heavy agents. */
+    @Param({"0", "20"})
+    public int toolCalls;
+
+    private ChatLanguageModel model;
+    private List<ChatMessage> conversation;
+    private LangChain4jTelemetry telemetry;
+    private SdkTracerProvider tracerProvider;
+    private SdkMeterProvider meterProvider;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        conversation = conversation(messages);
+        ChatLanguageModel delegate = noopModel(toolCalls);
+        if ("raw".equals(mode)) {
+            model = delegate;
+            return;
+        }
+
+        LangChain4jTelemetryProperties properties = new LangChain4jTelemetryProperties();
+        properties.setEnabled(!"disabled".equals(mode));
+        properties.setCapturePrompts(capture);
+        properties.setCaptureCompletions(capture);
+        properties.getCost().setEnabled(true);
+        properties.getCost().setInputPerThousand(0.0005);
+        properties.getCost().setOutputPerThousand(0.0015);
+
+        telemetry = new LangChain4jTelemetry(openTelemetry(), properties);
+        model = OtelChatLanguageModel.wrap(delegate, telemetry, properties, new LangChain4jModelIntrospector());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (telemetry != null) {
+            telemetry.close();
+        }
+        if (tracerProvider != null) {
+            tracerProvider.close();
+        }
+        if (meterProvider != null) {
+            meterProvider.close();
+        }
+    }
+
+    @Benchmark
+    public Response<AiMessage> generate() {
+        return model.generate(conversation);
+    }
+
+    private OpenTelemetry openTelemetry() {
+        if (!mode.startsWith("sdk")) {
+            return OpenTelemetry.noop();
+        }
+        tracerProvider = SdkTracerProvider.builder()
+                .setSampler("sdk-unsampled".equals(mode) ? Sampler.alwaysOff() : Sampler.alwaysOn())
+                .addSpanProcessor(SimpleSpanProcessor.create(new DrainingSpanExporter()))
+                .build();
+        meterProvider = SdkMeterProvider.builder()
+                .registerMetricReader(InMemoryMetricReader.create())
+                .build();
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setMeterProvider(meterProvider)
+                .build();
+    }
+
+    private static ChatLanguageModel noopModel(int toolCalls) {
+        List<ToolExecutionRequest> requests = new ArrayList<>(toolCalls);
+        for (int i = 0; i < toolCalls; i++) {
+            requests.add(ToolExecutionRequest.builder()
+                    .id("call-" + i)
+                    .name("tool-" + (i % 5))
+                    .arguments("{\"query\":\"value " + i + "\"}")
+                    .build());
+        }
+        AiMessage message = requests.isEmpty()
+                ? AiMessage.from("The answer is 42.")
+                : new AiMessage("Calling tools.", requests);
+        Response<AiMessage> response = Response.from(message, new TokenUsage(512, 128, 640), FinishReason.STOP);
+        return chatMessages -> response;
+    }
+
+    private static List<ChatMessage> conversation(int size) {
+        List<ChatMessage> messages = new ArrayList<>(size);
+        messages.add(SystemMessage.from("You are a helpful assistant that answers questions about observability."));
+        for (int i = 1; i < size; i++) {
+            messages.add(UserMessage.from("Question " + i + ": how do GenAI semantic conventions describe token usage?"));
+        }
+        return messages;
+    }
+
+    /**
+     * In-memory exporter that drops its buffer periodically so long runs measure export work without
+     * accumulating every span on the heap.
+     */
+    private static final class DrainingSpanExporter implements SpanExporter {
+
+        private static final int MAX_BUFFERED_SPANS = 10_000;
+
+        private final InMemorySpanExporter delegate = InMemorySpanExporter.create();
+        private int buffered;
+
+        @Override
+        public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+            buffered += spans.size();
+            if (buffered > MAX_BUFFERED_SPANS) {
+                delegate.reset();
+                buffered = 0;
+            }
+            return delegate.export(spans);
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return delegate.flush();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return delegate.shutdown();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import com.dineshkumarkummara.otel.langchain4j.internal.PromptFingerprint;
+import com.dineshkumarkummara.otel.langchain4j.internal.TinyLfuCache;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.Span;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * ChatLanguageModel decorator answering repeated prompts from memory. Responses are keyed on a normalized
+ * fingerprint of the messages, the tool specifications and the model's request parameters, and kept in a
+ * size-, TTL- and optionally byte-bounded {@link TinyLfuCache}. The parameters are read from the enclosing chat
+ * call's profile, so {@link OtelChatLanguageModel#refreshMetadata()} stops old responses from being served under
+ * new parameters; outside an instrumented call the profile read when the decorator was built is used.
+ *
+ * <p>Wrap it inside {@link OtelChatLanguageModel} so hits are marked with {@code gen_ai.response.cached} on
+ * the chat span; the Spring integration does this when {@code otel.langchain4j.cache.enabled} is set.
+ */
+public final class CachingChatLanguageModel implements ChatLanguageModel, ChatModelDecorator {
+
+    static final String METRIC_CACHE_HITS = "gen_ai.client.cache.hits";
+    static final String METRIC_CACHE_MISSES = "gen_ai.client.cache.misses";
+    static final String METRIC_CACHE_EVICTIONS = "gen_ai.client.cache.evictions";
+
+    private static final long RESPONSE_OVERHEAD_BYTES = 96;
+
+    private final ChatLanguageModel delegate;
+    private final TinyLfuCache<PromptFingerprint, Response<AiMessage>> cache;
+    private final ModelProfile profile;
+    private final Attributes attributes;
+    private final LongCounter hits;
+    private final LongCounter misses;
+    private final LongCounter evictions;
+    private final Map<TinyLfuCache.RemovalCause, Attributes> evictionAttributes =
+            new EnumMap<>(TinyLfuCache.RemovalCause.class);
+
+    private CachingChatLanguageModel(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        this.delegate = delegate;
+        this.profile = ModelProfile.from(
+                properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
+        this.attributes = telemetry.metricAttributes(profile).toBuilder()
+                .put(GenAiAttributes.CACHE_TYPE, "exact")
+                .build();
+        for (TinyLfuCache.RemovalCause cause : TinyLfuCache.RemovalCause.values()) {
+            evictionAttributes.put(cause, attributes.toBuilder()
+                    .put(GenAiAttributes.CACHE_EVICTION_REASON, cause.name().toLowerCase(Locale.ROOT))
+                    .build());
+        }
+        Meter meter = telemetry.meter();
+        this.hits = meter.counterBuilder(METRIC_CACHE_HITS).setUnit("{request}").build();
+        this.misses = meter.counterBuilder(METRIC_CACHE_MISSES).setUnit("{request}").build();
+        this.evictions = meter.counterBuilder(METRIC_CACHE_EVICTIONS).setUnit("{entry}").build();
+        LangChain4jTelemetryProperties.Cache config = properties.getCache();
+        Duration ttl = config.getTtl();
+        this.cache = new TinyLfuCache<>(
+                config.getMaxEntries(),
+                ttl != null ? ttl.toNanos() : 0L,
+                config.getMaxBytes(),
+                CachingChatLanguageModel::estimateBytes,
+                (key, cause) -> evictions.add(1, evictionAttributes.get(cause)));
+    }
+
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        if (delegate instanceof CachingChatLanguageModel) {
+            return delegate;
+        }
+        return new CachingChatLanguageModel(delegate, telemetry, properties, introspector);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return lookup(profile().fingerprint(messages, null), () -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return lookup(
+                profile().fingerprint(messages, toolSpecifications),
+                () -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return lookup(
+                profile().fingerprint(messages, Collections.singletonList(toolSpecification)),
+                () -> delegate.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    /** Drops every cached response. */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private ModelProfile profile() {
+        ModelProfile current = LangChain4jTelemetry.currentProfile();
+        return current != null ? current : profile;
+    }
+
+    private Response<AiMessage> lookup(PromptFingerprint key, Supplier<Response<AiMessage>> call) {
+        Response<AiMessage> cached = cache.get(key);
+        Span span = Span.current();
+        if (cached != null) {
+            hits.add(1, attributes);
+            span.setAttribute(GenAiAttributes.RESPONSE_CACHED, true);
+            LangChain4jTelemetry.markCached();
+            return cached;
+        }
+        misses.add(1, attributes);
+        span.setAttribute(GenAiAttributes.RESPONSE_CACHED, false);
+        Response<AiMessage> response = call.get();
+        if (response != null && response.content() != null) {
+            cache.put(key, response);
+        }
+        return response;
+    }
+
+    private static long estimateBytes(Response<AiMessage> response) {
+        AiMessage content = response.content();
+        long bytes = RESPONSE_OVERHEAD_BYTES;
+        if (content.text() != null) {
+            bytes += 2L * content.text().length();
+        }
+        if (content.hasToolExecutionRequests()) {
+            for (ToolExecutionRequest request : content.toolExecutionRequests()) {
+                bytes += RESPONSE_OVERHEAD_BYTES;
+                bytes += request.arguments() != null ? 2L * request.arguments().length() : 0L;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides at the end of a call whether its prompts and completions are worth keeping. The returned reason
+ * is recorded as {@code gen_ai.capture.reason} so kept traces explain why they carry content.
+ */
+final class CapturePolicy {
+
+    static final String REASON_ERROR = "error";
+    static final String REASON_LATENCY = "latency";
+    static final String REASON_TOKENS = "tokens";
+    static final String REASON_SAMPLED = "sampled";
+
+    private final boolean conditional;
+    private final boolean onError;
+    private final long latencyThresholdNanos;
+    private final long tokenThreshold;
+    private final double sampleRate;
+
+    CapturePolicy(LangChain4jTelemetryProperties.Capture capture) {
+        this.conditional = capture.isConditional();
+        this.onError = capture.isOnError();
+        this.latencyThresholdNanos = capture.getLatencyThreshold() != null
+                ? capture.getLatencyThreshold().toNanos()
+                : Long.MAX_VALUE;
+        this.tokenThreshold = capture.getTokenThreshold() != null ? capture.getTokenThreshold() : Long.MAX_VALUE;
+        this.sampleRate = Math.max(0d, Math.min(1d, capture.getSampleRate()));
+    }
+
+    /** Whether content capture depends on the outcome of the call. */
+    boolean isConditional() {
+        return conditional;
+    }
+
+    /** Returns why the call's content should be kept, or {@code null} to drop it. */
+    String reason(boolean failed, long elapsedNanos, Response<AiMessage> response) {
+        if (failed && onError) {
+            return REASON_ERROR;
+        }
+        if (elapsedNanos > latencyThresholdNanos) {
+            return REASON_LATENCY;
+        }
+        TokenUsage usage = response != null ? response.tokenUsage() : null;
+        if (usage != null && usage.totalTokenCount() != null && usage.totalTokenCount() > tokenThreshold) {
+            return REASON_TOKENS;
+        }
+        if (sampleRate > 0d && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            return REASON_SAMPLED;
+        }
+        return null;
+    }
+}
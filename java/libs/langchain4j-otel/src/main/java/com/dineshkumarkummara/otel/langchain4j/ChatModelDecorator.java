@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import dev.langchain4j.model.chat.ChatLanguageModel;
+
+/**
+ * Implemented by model decorators (caching, resilience, ...) so the instrumentation can see through them and
+ * read request metadata from the provider model they ultimately wrap.
+ */
+public interface ChatModelDecorator {
+
+    /** The model this decorator forwards to. */
+    Object delegate();
+
+    /** Follows {@link #delegate()} until reaching a model that is not a decorator. */
+    static Object innermost(Object model) {
+        Object current = model;
+        while (current instanceof ChatModelDecorator decorator && decorator.delegate() != null) {
+            current = decorator.delegate();
+        }
+        return current;
+    }
+
+    /**
+     * The provider model under {@code model}'s decorators, for calling another model bean without going
+     * through its own instrumentation; {@code model} itself if the chain ends in something else.
+     */
+    static ChatLanguageModel provider(ChatLanguageModel model) {
+        return innermost(model) instanceof ChatLanguageModel provider ? provider : model;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import java.time.Duration;
+
+/**
+ * Thrown by {@link DeadlineChatLanguageModel} when the delegate does not answer within the request timeout.
+ * Spans and error metrics record it as {@code error.type=timeout}.
+ */
+public class ChatTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration timeout;
+
+    public ChatTimeoutException(Duration timeout) {
+        super("Chat model did not answer within " + timeout);
+        this.timeout = timeout;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
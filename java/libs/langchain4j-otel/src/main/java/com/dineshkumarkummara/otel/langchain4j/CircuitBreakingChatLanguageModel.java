@@ -0,0 +1,185 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.CircuitBreaker;
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.trace.Span;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ChatLanguageModel decorator with a per-model {@link CircuitBreaker}: once the failure rate or slow-call rate
+ * of recent calls crosses its threshold, calls fail immediately with {@link CircuitBreakerOpenException} (or go
+ * to the configured fallback model) until probe calls show the provider has recovered. Client errors (4xx
+ * other than 408 and 429) and local back-pressure do not count as failures. State changes are added as
+ * {@code gen_ai.circuit_breaker.state_change} events to the span of the call that caused them.
+ */
+public final class CircuitBreakingChatLanguageModel implements ChatLanguageModel, ChatModelDecorator {
+
+    static final String METRIC_STATE = "gen_ai.client.circuit_breaker.state";
+    static final String METRIC_REJECTED = "gen_ai.client.circuit_breaker.rejected";
+    static final String STATE_CHANGE_EVENT = "gen_ai.circuit_breaker.state_change";
+
+    private final ChatLanguageModel delegate;
+    private final Supplier<ChatLanguageModel> fallback;
+    private final LangChain4jTelemetryProperties properties;
+    private final LangChain4jModelIntrospector introspector;
+    private final CircuitBreaker breaker;
+    private final String modelName;
+    private final Map<CircuitBreaker.State, Attributes> stateAttributes = new EnumMap<>(CircuitBreaker.State.class);
+    private final Attributes attributes;
+    private final LongCounter rejected;
+
+    private CircuitBreakingChatLanguageModel(
+            ChatLanguageModel delegate,
+            Supplier<ChatLanguageModel> fallback,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        this.delegate = delegate;
+        this.fallback = fallback;
+        this.properties = properties;
+        this.introspector = introspector;
+        ModelProfile profile = ModelProfile.from(
+                properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
+        this.modelName = profile.model() != null ? profile.model() : "unknown-model";
+        this.attributes = telemetry.metricAttributes(profile);
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            stateAttributes.put(state, attributes.toBuilder()
+                    .put(GenAiAttributes.CIRCUIT_BREAKER_STATE, stateName(state))
+                    .build());
+        }
+        LangChain4jTelemetryProperties.CircuitBreaker config = properties.getCircuitBreaker();
+        this.breaker = new CircuitBreaker(
+                config.getWindowSize(),
+                config.getMinimumCalls(),
+                config.getFailureRateThreshold(),
+                config.getSlowCallRateThreshold(),
+                config.getSlowCallDuration().toNanos(),
+                config.getOpenDuration().toNanos(),
+                config.getHalfOpenCalls(),
+                (from, to) -> Span.current().addEvent(STATE_CHANGE_EVENT, Attributes.of(
+                        GenAiAttributes.CIRCUIT_BREAKER_PREVIOUS_STATE, stateName(from),
+                        GenAiAttributes.CIRCUIT_BREAKER_STATE, stateName(to))));
+        this.rejected = telemetry.meter().counterBuilder(METRIC_REJECTED).setUnit("{request}").build();
+        telemetry.register(telemetry.meter()
+                .gaugeBuilder(METRIC_STATE)
+                .ofLongs()
+                .buildWithCallback(measurement -> {
+                    CircuitBreaker.State current = breaker.state();
+                    stateAttributes.forEach((state, attributesOfState) ->
+                            measurement.record(state == current ? 1L : 0L, attributesOfState));
+                }));
+    }
+
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        return wrap(delegate, null, telemetry, properties, introspector);
+    }
+
+    /**
+     * @param fallback supplies the model that answers while the breaker is open; {@code null} fails fast instead
+     */
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            Supplier<ChatLanguageModel> fallback,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        if (delegate instanceof CircuitBreakingChatLanguageModel) {
+            return delegate;
+        }
+        return new CircuitBreakingChatLanguageModel(delegate, fallback, telemetry, properties, introspector);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return guarded(model -> model.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return guarded(model -> model.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return guarded(model -> model.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    public CircuitBreaker.State state() {
+        return breaker.state();
+    }
+
+    private Response<AiMessage> guarded(Function<ChatLanguageModel, Response<AiMessage>> call) {
+        long startNanos = System.nanoTime();
+        if (!breaker.tryAcquire(startNanos)) {
+            rejected.add(1, attributes);
+            Span span = Span.current();
+            span.setAttribute(GenAiAttributes.CIRCUIT_BREAKER_STATE, stateName(breaker.state()));
+            if (fallback != null) {
+                // the fallback bean is instrumented on its own; call its provider so the answer is recorded
+                // once, on this span, under the model that gave it
+                ChatLanguageModel provider = ChatModelDecorator.provider(fallback.get());
+                span.setAttribute(GenAiAttributes.CIRCUIT_BREAKER_FALLBACK, true);
+                span.setAttribute(
+                        GenAiAttributes.RESPONSE_MODEL,
+                        ModelProfile.from(properties, introspector.introspect(provider)).model());
+                return call.apply(provider);
+            }
+            throw new CircuitBreakerOpenException("Circuit breaker for " + modelName + " is open");
+        }
+        Response<AiMessage> response;
+        try {
+            response = call.apply(delegate);
+        } catch (RuntimeException | Error ex) {
+            if (RetryClassifier.isProviderFailure(ex)) {
+                long now = System.nanoTime();
+                breaker.record(now - startNanos, true, now);
+            } else {
+                breaker.release();
+            }
+            throw ex;
+        }
+        long now = System.nanoTime();
+        breaker.record(now - startNanos, false, now);
+        return response;
+    }
+
+    private static String stateName(CircuitBreaker.State state) {
+        return state.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.AdaptiveConcurrencyLimiter;
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * ChatLanguageModel decorator bounding the number of concurrent calls to the delegate with an
+ * {@link AdaptiveConcurrencyLimiter}. The limit follows the delegate's latency, so when the provider slows
+ * down excess callers queue briefly and are then rejected with {@link ConcurrencyLimitExceededException}
+ * instead of piling up request threads.
+ *
+ * <p>Wrap it inside {@link RetryingChatLanguageModel} so each attempt holds a slot on its own and retry
+ * back-off is neither counted as latency nor spent holding a slot.
+ */
+public final class ConcurrencyLimitedChatLanguageModel implements ChatLanguageModel, ChatModelDecorator {
+
+    static final String METRIC_QUEUE_WAIT = "gen_ai.client.concurrency.queue_wait";
+    static final String METRIC_LIMIT = "gen_ai.client.concurrency.limit";
+    static final String METRIC_IN_FLIGHT = "gen_ai.client.concurrency.in_flight";
+    static final String METRIC_REJECTIONS = "gen_ai.client.concurrency.rejections";
+
+    private final ChatLanguageModel delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final long maxQueueWaitNanos;
+    private final Attributes attributes;
+    private final DoubleHistogram queueWait;
+    private final LongCounter rejections;
+
+    private ConcurrencyLimitedChatLanguageModel(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        this.delegate = delegate;
+        LangChain4jTelemetryProperties.Limiter config = properties.getLimiter();
+        this.limiter = new AdaptiveConcurrencyLimiter(
+                config.getInitialLimit(),
+                config.getMinLimit(),
+                config.getMaxLimit(),
+                config.getMaxQueueSize(),
+                config.getLatencyTolerance(),
+                config.getBackoffRatio());
+        this.maxQueueWaitNanos = config.getMaxQueueWait() != null ? config.getMaxQueueWait().toNanos() : 0L;
+        ModelProfile profile = ModelProfile.from(
+                properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
+        this.attributes = telemetry.metricAttributes(profile);
+        Meter meter = telemetry.meter();
+        this.queueWait = meter.histogramBuilder(METRIC_QUEUE_WAIT)
+                .setUnit("s")
+                .setExplicitBucketBoundariesAdvice(properties.getMetrics().getDurationBuckets())
+                .build();
+        this.rejections = meter.counterBuilder(METRIC_REJECTIONS).setUnit("{request}").build();
+        telemetry.register(meter.gaugeBuilder(METRIC_LIMIT)
+                .ofLongs()
+                .setUnit("{request}")
+                .buildWithCallback(measurement -> measurement.record(limiter.limit(), attributes)));
+        telemetry.register(meter.gaugeBuilder(METRIC_IN_FLIGHT)
+                .ofLongs()
+                .setUnit("{request}")
+                .buildWithCallback(measurement -> measurement.record(limiter.inFlight(), attributes)));
+    }
+
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        if (delegate instanceof ConcurrencyLimitedChatLanguageModel) {
+            return delegate;
+        }
+        return new ConcurrencyLimitedChatLanguageModel(delegate, telemetry, properties, introspector);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return limited(() -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return limited(() -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return limited(() -> delegate.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    /** Current concurrency limit, for diagnostics. */
+    public int currentLimit() {
+        return limiter.limit();
+    }
+
+    private Response<AiMessage> limited(Supplier<Response<AiMessage>> call) {
+        long queuedAt = System.nanoTime();
+        boolean acquired = limiter.acquire(maxQueueWaitNanos);
+        long startNanos = System.nanoTime();
+        queueWait.record((startNanos - queuedAt) / 1_000_000_000d, attributes);
+        if (!acquired) {
+            rejections.add(1, attributes);
+            throw new ConcurrencyLimitExceededException(
+                    "Concurrency limit of " + limiter.limit() + " reached with " + limiter.queued() + " calls queued");
+        }
+        boolean failed = true;
+        int outputTokens = 0;
+        try {
+            Response<AiMessage> response = call.get();
+            failed = false;
+            if (response != null && response.tokenUsage() != null && response.tokenUsage().outputTokenCount() != null) {
+                outputTokens = response.tokenUsage().outputTokenCount();
+            }
+            return response;
+        } finally {
+            limiter.release(System.nanoTime() - startNanos, outputTokens, failed);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.LangChain4jTelemetry.ChatInvocationContext;
+import com.dineshkumarkummara.otel.langchain4j.internal.BoundedRingBuffer;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableLongGauge;
+import io.opentelemetry.api.trace.Span;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves prompt and completion events off the calling thread. Callers enqueue a snapshot of the messages and
+ * the response; a single daemon worker truncates the content, adds the events with their original
+ * timestamps and ends the span. A full queue never blocks: the displaced invocation's span is ended without
+ * content events and counted in {@code gen_ai.capture.dropped}, as is anything left queued after close.
+ */
+final class ContentCapture implements AutoCloseable {
+
+    static final String METRIC_QUEUE_DEPTH = "gen_ai.capture.queue.depth";
+    static final String METRIC_DROPPED = "gen_ai.capture.dropped";
+
+    private static final int DRAIN_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final LangChain4jTelemetryProperties properties;
+    private final ContentEmitter emitter;
+    private final boolean deferred;
+    private final BoundedRingBuffer<Task> queue;
+    private final LongCounter dropped;
+    private final ObservableLongGauge queueDepth;
+    private final long anchorEpochNanos;
+    private final long anchorNanoTime;
+    private final Thread worker;
+    private volatile boolean idle;
+    private volatile boolean running = true;
+    private volatile boolean stopped;
+
+    ContentCapture(LangChain4jTelemetryProperties properties, Meter meter, ContentEmitter emitter) {
+        this.properties = properties;
+        this.emitter = emitter;
+        LangChain4jTelemetryProperties.Capture capture = properties.getCapture();
+        this.deferred = capture.getMode() == LangChain4jTelemetryProperties.CaptureMode.ASYNCHRONOUS
+                && (properties.isCapturePrompts() || properties.isCaptureCompletions());
+        Instant now = Instant.now();
+        this.anchorNanoTime = System.nanoTime();
+        this.anchorEpochNanos = TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+        if (!deferred) {
+            this.queue = null;
+            this.dropped = null;
+            this.queueDepth = null;
+            this.worker = null;
+            return;
+        }
+        this.queue = new BoundedRingBuffer<>(
+                capture.getQueueCapacity(), capture.getDropPolicy() == LangChain4jTelemetryProperties.DropPolicy.DROP_OLDEST);
+        this.dropped = meter.counterBuilder(METRIC_DROPPED).setUnit("{invocation}").build();
+        this.queueDepth = meter.gaugeBuilder(METRIC_QUEUE_DEPTH)
+                .ofLongs()
+                .setUnit("{invocation}")
+                .buildWithCallback(measurement -> measurement.record(queue.size()));
+        this.worker = new Thread(this::drainLoop, "otel-genai-capture");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /** Whether content events, and with them the end of recording spans, are handed to the worker. */
+    boolean isDeferred() {
+        return deferred;
+    }
+
+    /** Converts a {@link System#nanoTime()} reading into epoch nanoseconds for explicit span timestamps. */
+    long epochNanos(long nanoTime) {
+        return anchorEpochNanos + (nanoTime - anchorNanoTime);
+    }
+
+    /** Queues the content events of an invocation; the worker ends {@code span} once they are added. */
+    void submit(
+            Span span,
+            ChatInvocationContext invocation,
+            Response<AiMessage> response,
+            long startNanos,
+            boolean includeContent) {
+        // the caller may append the reply to its history list as soon as the call returns
+        invocation.snapshotMessages();
+        Task task = new Task(
+                span, invocation, response, includeContent, epochNanos(startNanos), epochNanos(System.nanoTime()));
+        Task displaced = running ? queue.offer(task) : task;
+        if (displaced != null) {
+            drop(displaced);
+        }
+        if (stopped) {
+            // the worker may have taken its last look at the queue before this task went in
+            dropQueued();
+        } else if (idle) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Stops accepting work and finishes every queued invocation before returning; whatever the worker has
+     * not reached after five seconds is ended without content and counted as dropped.
+     */
+    @Override
+    public void close() {
+        if (!deferred || !running) {
+            return;
+        }
+        running = false;
+        queueDepth.close();
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        dropQueued();
+    }
+
+    private void drainLoop() {
+        List<Task> batch = new ArrayList<>(DRAIN_BATCH);
+        while (true) {
+            batch.clear();
+            if (queue.drainTo(batch, DRAIN_BATCH) == 0) {
+                if (!running) {
+                    stopped = true;
+                    // tasks offered before submitters could see the flag
+                    while (queue.drainTo(batch, DRAIN_BATCH) > 0) {
+                        for (Task task : batch) {
+                            task.emit(properties, emitter);
+                        }
+                        batch.clear();
+                    }
+                    return;
+                }
+                idle = true;
+                if (queue.size() == 0 && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+                continue;
+            }
+            for (Task task : batch) {
+                task.emit(properties, emitter);
+            }
+        }
+    }
+
+    private void dropQueued() {
+        List<Task> leftover = new ArrayList<>();
+        while (queue.drainTo(leftover, DRAIN_BATCH) > 0) {
+            for (Task task : leftover) {
+                drop(task);
+            }
+            leftover.clear();
+        }
+    }
+
+    private void drop(Task task) {
+        task.span.end(task.endEpochNanos, TimeUnit.NANOSECONDS);
+        dropped.add(1);
+    }
+
+    private static final class Task {
+
+        private final Span span;
+        private final ChatInvocationContext invocation;
+        private final Response<AiMessage> response;
+        private final boolean includeContent;
+        private final long startEpochNanos;
+        private final long endEpochNanos;
+
+        private Task(
+                Span span,
+                ChatInvocationContext invocation,
+                Response<AiMessage> response,
+                boolean includeContent,
+                long startEpochNanos,
+                long endEpochNanos) {
+            this.span = span;
+            this.invocation = invocation;
+            this.response = response;
+            this.includeContent = includeContent;
+            this.startEpochNanos = startEpochNanos;
+            this.endEpochNanos = endEpochNanos;
+        }
+
+        private void emit(LangChain4jTelemetryProperties properties, ContentEmitter emitter) {
+            try {
+                if (includeContent) {
+                    invocation.emitPromptEvents(span, properties, emitter, startEpochNanos);
+                }
+                invocation.processResponse(span, response, properties, emitter, endEpochNanos, includeContent);
+                if (includeContent) {
+                    invocation.conversationCaptured(span, response, properties);
+                }
+            } catch (RuntimeException ignored) {
+                // Content capture is best effort; the span must still end.
+            } finally {
+                span.end(endEpochNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import java.util.concurrent.TimeUnit;
+
+/** Destination of the GenAI content events built by {@link LangChain4jTelemetry.ChatInvocationContext}. */
+@FunctionalInterface
+interface ContentEmitter {
+
+    /** Characters of a message kept in content events; longer text is cut. */
+    int MAX_TEXT_LENGTH = 4000;
+
+    /** Adds the events to the span itself. */
+    ContentEmitter SPAN_EVENTS = (span, name, attributes, epochNanos) -> {
+        if (epochNanos == 0L) {
+            span.addEvent(name, attributes);
+        } else {
+            span.addEvent(name, attributes, epochNanos, TimeUnit.NANOSECONDS);
+        }
+    };
+
+    /** Emits event {@code name} for {@code span} at {@code epochNanos}, or at the current time when it is {@code 0}. */
+    void emit(Span span, String name, Attributes attributes, long epochNanos);
+
+    /** Characters of a message passed to {@link #emit}. */
+    default int maxTextLength() {
+        return MAX_TEXT_LENGTH;
+    }
+
+    static String truncate(String text, int maxLength) {
+        if (text == null) {
+            return "";
+        }
+        if (text.length() > maxLength) {
+            return text.substring(0, maxLength) + "…";
+        }
+        return text;
+    }
+}
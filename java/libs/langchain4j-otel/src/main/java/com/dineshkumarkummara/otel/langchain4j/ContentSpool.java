@@ -0,0 +1,323 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Append-only store of captured prompts and completions, so spans can carry a short reference instead of the
+ * full text. Content is written to memory-mapped segment files of a fixed size; a new segment is started when
+ * the current one is full, and the oldest segments are deleted once the spool exceeds its size budget.
+ * Identical content is stored once: the reference is the first 128 bits of its SHA-256 hash.
+ *
+ * <p>Each record is a 4-byte payload length, the 16-byte hash and the UTF-8 payload; a zero length marks
+ * the end of a segment. Opening an existing directory indexes its segments, so a separate process can read
+ * content back with {@link #read(String)}. Directories and segment files the spool creates are readable by
+ * the owner only where the file system supports POSIX permissions. All operations take the spool's lock.
+ */
+public final class ContentSpool implements AutoCloseable {
+
+    private static final String PREFIX = "content-";
+    private static final String SUFFIX = ".spool";
+    private static final int HASH_BYTES = 16;
+    private static final int HEADER_BYTES = Integer.BYTES + HASH_BYTES;
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final boolean temporary;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, Location> index = new HashMap<>();
+    private long totalBytes;
+    private long nextId;
+    private Segment active;
+    private boolean closed;
+
+    /**
+     * Opens the spool in {@code directory}, indexing the segments already there.
+     *
+     * @param segmentBytes size of each segment file; larger records get a segment of their own
+     * @param maxBytes budget for the summed segment sizes, or {@code 0} for no budget
+     */
+    public ContentSpool(Path directory, long segmentBytes, long maxBytes) {
+        this(directory, segmentBytes, maxBytes, false);
+    }
+
+    private ContentSpool(Path directory, long segmentBytes, long maxBytes, boolean temporary) {
+        if (segmentBytes <= HEADER_BYTES || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentBytes out of range: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.temporary = temporary;
+        try {
+            if (isPosix(directory)) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+            } else {
+                Files.createDirectories(directory);
+            }
+            for (Path path : existingSegments()) {
+                Segment segment = map(path, segmentId(path), FileChannel.MapMode.READ_ONLY, Files.size(path));
+                segment.position = scan(segment);
+                segments.add(segment);
+                totalBytes += segment.capacity();
+                nextId = segment.id + 1;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open content spool in " + directory, ex);
+        }
+    }
+
+    /** Creates a fresh directory, private to the current user where supported, under {@code java.io.tmpdir}. */
+    public static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("otel-genai-spool-");
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create a content spool directory", ex);
+        }
+    }
+
+    /**
+     * Opens a spool in a fresh {@link #createTempDirectory() temporary directory} that {@link #close()} deletes
+     * with its segments, for processes that only need the content while they run.
+     */
+    public static ContentSpool temporary(long segmentBytes, long maxBytes) {
+        return new ContentSpool(createTempDirectory(), segmentBytes, maxBytes, true);
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Stores {@code content} unless identical content is already stored and returns its reference, or
+     * {@code null} if the spool is closed, the content does not fit in a segment file or the write failed.
+     */
+    public synchronized String append(String content) {
+        if (closed) {
+            return null;
+        }
+        byte[] payload = content.getBytes(StandardCharsets.UTF_8);
+        if (payload.length > Integer.MAX_VALUE - HEADER_BYTES) {
+            return null;
+        }
+        byte[] hash = hash(payload);
+        String reference = HexFormat.of().formatHex(hash);
+        Location existing = index.get(reference);
+        // A copy in the segment deleted next is written again, so the new reference outlives it.
+        if (existing != null
+                && (maxBytes == 0 || existing.segment == active || existing.segment != segments.peekFirst())) {
+            return reference;
+        }
+        int recordBytes = HEADER_BYTES + payload.length;
+        try {
+            if (active == null || active.capacity() - active.position < recordBytes) {
+                rotate(recordBytes);
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+        ByteBuffer buffer = active.buffer;
+        int offset = active.position;
+        buffer.putInt(offset, payload.length);
+        buffer.put(offset + Integer.BYTES, hash);
+        buffer.put(offset + HEADER_BYTES, payload);
+        active.position = offset + recordBytes;
+        index.put(reference, new Location(active, offset + HEADER_BYTES, payload.length));
+        return reference;
+    }
+
+    /** Returns the content stored under {@code reference}, or {@code null} if it is unknown or was deleted. */
+    public synchronized String read(String reference) {
+        Location location = reference != null ? index.get(reference) : null;
+        if (location == null) {
+            return null;
+        }
+        byte[] payload = new byte[location.length];
+        location.segment.buffer.get(location.offset, payload);
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    /** Summed size of the segment files. */
+    public synchronized long sizeInBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Flushes the current segment to disk, or deletes the directory of a {@link #temporary} spool; later
+     * appends return {@code null}.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (temporary) {
+            index.clear();
+            deleteDirectory();
+        } else if (active != null) {
+            active.buffer.force();
+        }
+    }
+
+    private void deleteDirectory() {
+        try {
+            for (Path path : existingSegments()) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException ignored) {
+            // Best effort; the directory is under java.io.tmpdir.
+        }
+    }
+
+    private void rotate(int recordBytes) throws IOException {
+        if (active != null) {
+            active.buffer.force();
+        }
+        long capacity = Math.max(segmentBytes, recordBytes);
+        Path path = directory.resolve(PREFIX + String.format("%016d", nextId) + SUFFIX);
+        active = map(path, nextId++, FileChannel.MapMode.READ_WRITE, capacity);
+        segments.add(active);
+        totalBytes += capacity;
+        // The active segment is never deleted, so content just written stays readable.
+        while (maxBytes > 0 && totalBytes > maxBytes && segments.peekFirst() != active) {
+            Segment oldest = segments.removeFirst();
+            totalBytes -= oldest.capacity();
+            index.values().removeIf(location -> location.segment == oldest);
+            // The mapping is released once the buffer is collected; the file is gone from the directory now.
+            Files.deleteIfExists(oldest.path);
+        }
+    }
+
+    private int scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > buffer.capacity() - position - HEADER_BYTES) {
+                break;
+            }
+            byte[] hash = new byte[HASH_BYTES];
+            buffer.get(position + Integer.BYTES, hash);
+            index.put(HexFormat.of().formatHex(hash), new Location(segment, position + HEADER_BYTES, length));
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private List<Path> existingSegments() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(paths::add);
+        }
+        paths.sort(null);
+        return paths;
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return 0L;
+        }
+    }
+
+    private static Segment map(Path path, long id, FileChannel.MapMode mode, long capacity) throws IOException {
+        Set<OpenOption> options = mode == FileChannel.MapMode.READ_ONLY
+                ? Set.of(StandardOpenOption.READ)
+                : Set.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileAttribute<?>[] attributes = mode != FileChannel.MapMode.READ_ONLY && isPosix(path)
+                ? new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE)}
+                : new FileAttribute<?>[0];
+        try (FileChannel channel = FileChannel.open(path, options, attributes)) {
+            return new Segment(id, path, channel.map(mode, 0, capacity));
+        }
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    private static byte[] hash(byte[] payload) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload);
+            byte[] hash = new byte[HASH_BYTES];
+            System.arraycopy(digest, 0, hash, 0, HASH_BYTES);
+            return hash;
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class Segment {
+
+        private final long id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        private Segment(long id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        private int capacity() {
+            return buffer.capacity();
+        }
+    }
+
+    private static final class Location {
+
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        private Location(Segment segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.PromptFingerprint;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageType;
+import io.opentelemetry.api.trace.SpanContext;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the last captured turn of recent conversations, so a call resending the history only emits the
+ * messages added since. A conversation is identified by its messages up to the first user message; a turn
+ * matches when the rolling hash of the new call's message prefix equals the hash of the previous turn's
+ * messages plus its reply, when that reply was captured. Turns are recorded once their content has been
+ * emitted, so a turn whose content was dropped is not skipped by the next call. The least recently used
+ * conversations are forgotten beyond a bound.
+ */
+final class ConversationTracker {
+
+    private final Map<PromptFingerprint, Turn> turns;
+
+    ConversationTracker(int maxConversations) {
+        this.turns = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PromptFingerprint, Turn> eldest) {
+                return size() > maxConversations;
+            }
+        };
+    }
+
+    /** Locates {@code messages} in their conversation, or returns {@code null} if they have no user message. */
+    Position begin(List<ChatMessage> messages) {
+        int opening = openingLength(messages);
+        if (opening < 0) {
+            return null;
+        }
+        PromptFingerprint.Hasher hasher = PromptFingerprint.hasher(0L).putMessages(messages.subList(0, opening));
+        PromptFingerprint conversation = hasher.finish();
+        Turn previous;
+        synchronized (turns) {
+            previous = turns.get(conversation);
+        }
+        int from = opening;
+        if (previous != null && previous.length >= opening && previous.length <= messages.size()) {
+            hasher.putMessages(messages.subList(opening, previous.length));
+            from = previous.length;
+            if (!hasher.finish().equals(previous.hash)) {
+                previous = null;
+            }
+        } else {
+            previous = null;
+        }
+        hasher.putMessages(messages.subList(from, messages.size()));
+        return new Position(this, conversation, hasher, messages.size(), previous);
+    }
+
+    private void put(PromptFingerprint conversation, Turn turn) {
+        synchronized (turns) {
+            turns.put(conversation, turn);
+        }
+    }
+
+    private static int openingLength(List<ChatMessage> messages) {
+        for (int i = 0; i < messages.size(); i++) {
+            ChatMessage message = messages.get(i);
+            if (message != null && message.type() == ChatMessageType.USER) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /** Where a call's messages continue their conversation; owned by one invocation. */
+    static final class Position {
+
+        private final ConversationTracker tracker;
+        private final PromptFingerprint conversation;
+        private final PromptFingerprint.Hasher hasher;
+        private final int length;
+        private final Turn previous;
+
+        private Position(
+                ConversationTracker tracker,
+                PromptFingerprint conversation,
+                PromptFingerprint.Hasher hasher,
+                int length,
+                Turn previous) {
+            this.tracker = tracker;
+            this.conversation = conversation;
+            this.hasher = hasher;
+            this.length = length;
+            this.previous = previous;
+        }
+
+        /** Messages already captured by the previous turn. */
+        int capturedMessages() {
+            return previous != null ? previous.length : 0;
+        }
+
+        /** Span of the previous turn, or {@code null} when this call starts or restarts its conversation. */
+        SpanContext previousSpan() {
+            return previous != null ? previous.span : null;
+        }
+
+        /**
+         * Records this call as the latest captured turn of its conversation. Call it only once the content
+         * events were emitted; {@code reply} is the emitted reply, or {@code null} if it was not captured.
+         */
+        void end(AiMessage reply, SpanContext span) {
+            int turnLength = length;
+            if (reply != null) {
+                hasher.putMessages(List.of(reply));
+                turnLength++;
+            }
+            tracker.put(conversation, new Turn(hasher.finish(), turnLength, span));
+        }
+    }
+
+    private static final class Turn {
+
+        private final PromptFingerprint hash;
+        private final int length;
+        private final SpanContext span;
+
+        private Turn(PromptFingerprint hash, int length, SpanContext span) {
+            this.hash = hash;
+            this.length = length;
+            this.span = span;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * ChatLanguageModel decorator enforcing the request timeout (the introspected model timeout, else
+ * {@code tuning.timeout}) as a deadline. The delegate runs on an executor while the caller waits; on the
+ * deadline the delegate thread is interrupted and the caller fails fast with {@link ChatTimeoutException}.
+ * Without a timeout calls go straight to the delegate.
+ *
+ * <p>The deadline covers the whole logical call: {@link RetryingChatLanguageModel} starts it once in the
+ * context, so each attempt only gets the time the earlier attempts and their back-off left over.
+ */
+public final class DeadlineChatLanguageModel implements ChatLanguageModel, ChatModelDecorator {
+
+    /** {@link System#nanoTime()} by which the logical call must have answered. */
+    private static final ContextKey<Long> DEADLINE = ContextKey.named("otel-genai-deadline");
+
+    private final ChatLanguageModel delegate;
+    private final Supplier<ExecutorService> executor;
+    private final Duration timeout;
+
+    private DeadlineChatLanguageModel(ChatLanguageModel delegate, Supplier<ExecutorService> executor, Duration timeout) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    /** Runs the delegate on the telemetry's call executor (virtual threads where available). */
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        return wrap(delegate, telemetry::executor, properties, introspector);
+    }
+
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            Supplier<ExecutorService> executor,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        if (delegate instanceof DeadlineChatLanguageModel) {
+            return delegate;
+        }
+        ModelProfile profile = ModelProfile.from(
+                properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
+        Duration timeout = profile.timeout();
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            return delegate;
+        }
+        return new DeadlineChatLanguageModel(delegate, executor, timeout);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return withDeadline(() -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return withDeadline(() -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return withDeadline(() -> delegate.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    public Duration timeout() {
+        return timeout;
+    }
+
+    /** {@code context} with a deadline {@code timeout} from now, unless it already carries an earlier one. */
+    static Context startDeadline(Context context, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Long current = context.get(DEADLINE);
+        return current != null && current - deadline <= 0 ? context : context.with(DEADLINE, deadline);
+    }
+
+    /** Time left before the deadline in {@code context}, or {@link Long#MAX_VALUE} without one. */
+    static long remainingNanos(Context context) {
+        Long deadline = context.get(DEADLINE);
+        return deadline != null ? deadline - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    private Response<AiMessage> withDeadline(Supplier<Response<AiMessage>> call) {
+        long waitNanos = Math.min(timeout.toNanos(), remainingNanos(Context.current()));
+        if (waitNanos <= 0) {
+            throw new ChatTimeoutException(timeout);
+        }
+        Future<Response<AiMessage>> future = executor.get().submit(Context.current().wrap(call::get));
+        try {
+            return future.get(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            throw new ChatTimeoutException(timeout);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            CancellationException cancelled = new CancellationException("Interrupted while waiting for the chat response");
+            cancelled.initCause(ex);
+            throw cancelled;
+        } finally {
+            // interrupts a delegate still running past the deadline; no-op once it has finished
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import io.opentelemetry.api.common.AttributeKey;
+import java.util.List;
+
+/**
+ * Attribute keys shared by the instrumentation, following the OpenTelemetry GenAI semantic conventions.
+ */
+final class GenAiAttributes {
+
+    static final AttributeKey<String> SYSTEM = AttributeKey.stringKey("gen_ai.system");
+    static final AttributeKey<String> OPERATION_NAME = AttributeKey.stringKey("gen_ai.operation.name");
+    static final AttributeKey<String> REQUEST_MODEL = AttributeKey.stringKey("gen_ai.request.model");
+    static final AttributeKey<Double> REQUEST_TEMPERATURE = AttributeKey.doubleKey("gen_ai.request.temperature");
+    static final AttributeKey<Double> REQUEST_TOP_P = AttributeKey.doubleKey("gen_ai.request.top_p");
+    static final AttributeKey<Long> REQUEST_MAX_TOKENS = AttributeKey.longKey("gen_ai.request.max_tokens");
+    static final AttributeKey<List<String>> REQUEST_STOP_SEQUENCES = AttributeKey.stringArrayKey("gen_ai.request.stop_sequences");
+    static final AttributeKey<Boolean> REQUEST_STREAMING = AttributeKey.booleanKey("gen_ai.request.streaming");
+    static final AttributeKey<Boolean> REQUEST_COALESCED = AttributeKey.booleanKey("gen_ai.request.coalesced");
+    static final AttributeKey<Long> REQUEST_TIMEOUT_MS = AttributeKey.longKey("gen_ai.request.timeout_ms");
+    static final AttributeKey<String> RESPONSE_MODEL = AttributeKey.stringKey("gen_ai.response.model");
+    static final AttributeKey<List<String>> RESPONSE_FINISH_REASONS = AttributeKey.stringArrayKey("gen_ai.response.finish_reasons");
+    static final AttributeKey<Long> USAGE_INPUT_TOKENS = AttributeKey.longKey("gen_ai.usage.input_tokens");
+    static final AttributeKey<Long> USAGE_OUTPUT_TOKENS = AttributeKey.longKey("gen_ai.usage.output_tokens");
+    static final AttributeKey<String> TOKEN_TYPE = AttributeKey.stringKey("gen_ai.token.type");
+    static final AttributeKey<Boolean> RESPONSE_CACHED = AttributeKey.booleanKey("gen_ai.response.cached");
+    static final AttributeKey<String> CAPTURE_REASON = AttributeKey.stringKey("gen_ai.capture.reason");
+    static final AttributeKey<String> CACHE_TYPE = AttributeKey.stringKey("gen_ai.cache.type");
+    static final AttributeKey<Boolean> CACHE_SEMANTIC_HIT = AttributeKey.booleanKey("gen_ai.cache.semantic.hit");
+    static final AttributeKey<Double> CACHE_SEMANTIC_SIMILARITY = AttributeKey.doubleKey("gen_ai.cache.semantic.similarity");
+    static final AttributeKey<String> CACHE_EVICTION_REASON = AttributeKey.stringKey("gen_ai.cache.eviction.reason");
+    static final AttributeKey<Long> RETRY_ATTEMPT = AttributeKey.longKey("gen_ai.retry.attempt");
+    static final AttributeKey<Long> RETRY_BACKOFF_MS = AttributeKey.longKey("gen_ai.retry.backoff_ms");
+    static final AttributeKey<String> RETRY_EXHAUSTED_REASON = AttributeKey.stringKey("gen_ai.retry.exhausted.reason");
+    static final AttributeKey<String> CIRCUIT_BREAKER_STATE = AttributeKey.stringKey("gen_ai.circuit_breaker.state");
+    static final AttributeKey<String> CIRCUIT_BREAKER_PREVIOUS_STATE = AttributeKey.stringKey("gen_ai.circuit_breaker.previous_state");
+    static final AttributeKey<Boolean> CIRCUIT_BREAKER_FALLBACK = AttributeKey.booleanKey("gen_ai.circuit_breaker.fallback");
+    static final AttributeKey<Long> HEDGE_ATTEMPT = AttributeKey.longKey("gen_ai.hedge.attempt");
+    static final AttributeKey<Boolean> HEDGE_FIRED = AttributeKey.booleanKey("gen_ai.hedge.fired");
+    static final AttributeKey<Boolean> HEDGE_WON = AttributeKey.booleanKey("gen_ai.hedge.won");
+    static final AttributeKey<String> ROUTER_NAME = AttributeKey.stringKey("gen_ai.router.name");
+    static final AttributeKey<String> ROUTER_BACKEND = AttributeKey.stringKey("gen_ai.router.backend");
+    static final AttributeKey<String> ROUTER_OUTCOME = AttributeKey.stringKey("gen_ai.router.outcome");
+    static final AttributeKey<Long> CONVERSATION_CAPTURED_MESSAGES = AttributeKey.longKey("gen_ai.conversation.captured_messages");
+    static final AttributeKey<String> QUOTA_KEY = AttributeKey.stringKey("gen_ai.quota.key");
+    static final AttributeKey<String> QUOTA_OUTCOME = AttributeKey.stringKey("gen_ai.quota.outcome");
+    static final AttributeKey<String> ERROR_TYPE = AttributeKey.stringKey("error.type");
+    static final AttributeKey<String> RESPONSE_TEXT = AttributeKey.stringKey("gen_ai.response.content");
+    static final AttributeKey<String> PROMPT_TEXT = AttributeKey.stringKey("gen_ai.prompt.content");
+    static final AttributeKey<String> PROMPT_FINGERPRINT = AttributeKey.stringKey("gen_ai.prompt.fingerprint");
+    static final AttributeKey<String> PROMPT_CONTENT_REF = AttributeKey.stringKey("gen_ai.prompt.content.ref");
+    static final AttributeKey<Long> PROMPT_CONTENT_LENGTH = AttributeKey.longKey("gen_ai.prompt.content.length");
+    static final AttributeKey<String> RESPONSE_CONTENT_REF = AttributeKey.stringKey("gen_ai.response.content.ref");
+    static final AttributeKey<Long> RESPONSE_CONTENT_LENGTH = AttributeKey.longKey("gen_ai.response.content.length");
+    static final AttributeKey<String> ROLE = AttributeKey.stringKey("role");
+    static final AttributeKey<String> TOOL_NAME = AttributeKey.stringKey("tool.name");
+    static final AttributeKey<String> RAG_DATASOURCE = AttributeKey.stringKey("datasource");
+
+    private GenAiAttributes() {
+    }
+}
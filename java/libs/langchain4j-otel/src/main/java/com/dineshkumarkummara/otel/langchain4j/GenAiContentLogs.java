@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import io.opentelemetry.api.logs.LoggerProvider;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.export.BatchLogRecordProcessor;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import io.opentelemetry.sdk.resources.Resource;
+
+/**
+ * Dedicated logger provider for the GenAI content records emitted when {@code capture.destination=logs}, so
+ * content goes through its own batch processor, queue and exporter instead of the application's log
+ * pipeline. Pass it to {@link LangChain4jTelemetry} (or declare it as a bean for the auto-configuration);
+ * without it content records go to the {@code OpenTelemetry} logs bridge.
+ *
+ * <p>Requires {@code io.opentelemetry:opentelemetry-sdk-logs} on the classpath.
+ */
+public final class GenAiContentLogs implements AutoCloseable {
+
+    private final SdkLoggerProvider loggerProvider;
+
+    private GenAiContentLogs(SdkLoggerProvider loggerProvider) {
+        this.loggerProvider = loggerProvider;
+    }
+
+    public static GenAiContentLogs create(LogRecordExporter exporter, LangChain4jTelemetryProperties properties) {
+        return create(Resource.getDefault(), exporter, properties);
+    }
+
+    /** @param resource resource of the content records, usually the one of the application's providers */
+    public static GenAiContentLogs create(
+            Resource resource, LogRecordExporter exporter, LangChain4jTelemetryProperties properties) {
+        LangChain4jTelemetryProperties.ContentLogs logs = properties.getCapture().getLogs();
+        BatchLogRecordProcessor batch = BatchLogRecordProcessor.builder(exporter)
+                .setMaxQueueSize(logs.getMaxQueueSize())
+                .setMaxExportBatchSize(logs.getMaxExportBatchSize())
+                .setScheduleDelay(logs.getScheduleDelay())
+                .build();
+        return new GenAiContentLogs(
+                SdkLoggerProvider.builder().setResource(resource).addLogRecordProcessor(batch).build());
+    }
+
+    LoggerProvider loggerProvider() {
+        return loggerProvider;
+    }
+
+    /** Exports the content records batched so far. */
+    public CompletableResultCode forceFlush() {
+        return loggerProvider.forceFlush();
+    }
+
+    /** Exports the remaining content records and shuts the exporter down. */
+    @Override
+    public void close() {
+        loggerProvider.close();
+    }
+}
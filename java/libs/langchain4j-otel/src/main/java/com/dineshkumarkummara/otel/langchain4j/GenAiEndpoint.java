@@ -0,0 +1,63 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * {@code /actuator/genai}: the current {@link GenAiLiveStats} of every model and operation, and the hottest
+ * prompts when prompt analytics are enabled. Expose it with
+ * {@code management.endpoints.web.exposure.include=genai}.
+ */
+@Endpoint(id = "genai")
+public class GenAiEndpoint {
+
+    private final GenAiLiveStats stats;
+    private final Supplier<List<LangChain4jTelemetry.HotPrompt>> hotPrompts;
+
+    /** @param stats live statistics, or {@code null} when they are disabled */
+    public GenAiEndpoint(GenAiLiveStats stats) {
+        this(stats, List::of);
+    }
+
+    private GenAiEndpoint(GenAiLiveStats stats, Supplier<List<LangChain4jTelemetry.HotPrompt>> hotPrompts) {
+        this.stats = stats;
+        this.hotPrompts = hotPrompts;
+    }
+
+    /** Live statistics and, with prompt analytics enabled, the hottest prompts of {@code telemetry}. */
+    public static GenAiEndpoint create(LangChain4jTelemetry telemetry) {
+        return new GenAiEndpoint(telemetry.liveStats(), telemetry::hotPrompts);
+    }
+
+    /** Current statistics; without live stats (telemetry built with {@code live-stats.enabled=false}) no models. */
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", stats != null);
+        if (stats != null) {
+            body.put("window", stats.window().toString());
+        }
+        body.put("models", stats != null ? stats.snapshots() : List.of());
+        body.put("hotPrompts", hotPrompts.get());
+        return body;
+    }
+}
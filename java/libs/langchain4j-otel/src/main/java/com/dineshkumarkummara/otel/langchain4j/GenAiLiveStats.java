@@ -0,0 +1,218 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.DDSketch;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process sliding-window statistics per model and operation, for components that react to the current
+ * state of the providers (routers, hedging, autoscalers) without a round trip through a metrics backend.
+ * Each series keeps a ring of time buckets holding a {@link DDSketch} of call durations and call, error,
+ * token and cost totals; a {@link #snapshot} merges the buckets still inside the window. Recording is
+ * lock-free; additions landing exactly on a bucket rollover may be lost.
+ */
+public final class GenAiLiveStats {
+
+    private static final double MIN_SECONDS = 1e-6;
+    private static final double MAX_SECONDS = 1e4;
+
+    private final long windowNanos;
+    private final int buckets;
+    private final double relativeAccuracy;
+    private final Map<SeriesKey, Series> series = new ConcurrentHashMap<>();
+
+    GenAiLiveStats(LangChain4jTelemetryProperties.LiveStats config) {
+        this.buckets = Math.max(1, config.getBuckets());
+        this.windowNanos = Math.max(buckets, config.getWindow().toNanos());
+        this.relativeAccuracy = config.getRelativeAccuracy();
+    }
+
+    /** Length of the sliding window. */
+    public Duration window() {
+        return Duration.ofNanos(windowNanos);
+    }
+
+    /** Statistics of {@code operation} calls to {@code model} over the window, or {@code null} if none were seen. */
+    public Snapshot snapshot(String model, String operation) {
+        Series current = series.get(new SeriesKey(model, operation));
+        return current != null ? current.snapshot(System.nanoTime()) : null;
+    }
+
+    /** Statistics of every model and operation seen so far. */
+    public List<Snapshot> snapshots() {
+        long now = System.nanoTime();
+        List<Snapshot> snapshots = new ArrayList<>(series.size());
+        for (Series current : series.values()) {
+            snapshots.add(current.snapshot(now));
+        }
+        return snapshots;
+    }
+
+    Series series(ModelProfile profile) {
+        SeriesKey key = new SeriesKey(profile.model(), profile.operation());
+        Series current = series.get(key);
+        return current != null ? current : series.computeIfAbsent(key, k -> new Series(k.model(), k.operation()));
+    }
+
+    private record SeriesKey(String model, String operation) {
+    }
+
+    /**
+     * Window statistics of one model and operation. Latencies are in seconds and are {@code NaN} when no call
+     * completed in the window; rates are per second of the window, or of the series' lifetime while it is
+     * younger than the window.
+     */
+    public record Snapshot(
+            String model,
+            String operation,
+            long calls,
+            double latencyP50,
+            double latencyP95,
+            double latencyP99,
+            double errorRate,
+            double outputTokensPerSecond,
+            double costPerSecond,
+            long inFlight) {
+    }
+
+    final class Series {
+
+        private final String model;
+        private final String operation;
+        private final long createdNanos = System.nanoTime();
+        private final long bucketNanos = windowNanos / buckets;
+        private final AtomicLong inFlight = new AtomicLong();
+        private final AtomicLongArray epochs = new AtomicLongArray(buckets);
+        private final Bucket[] ring = new Bucket[buckets];
+
+        private Series(String model, String operation) {
+            this.model = model;
+            this.operation = operation;
+            for (int i = 0; i < buckets; i++) {
+                epochs.set(i, Long.MIN_VALUE);
+                ring[i] = new Bucket(new DDSketch(relativeAccuracy, MIN_SECONDS, MAX_SECONDS));
+            }
+        }
+
+        void begin() {
+            inFlight.incrementAndGet();
+        }
+
+        void cancel() {
+            inFlight.decrementAndGet();
+        }
+
+        void end(long nowNanos, double seconds, boolean failed, long outputTokens, double cost) {
+            inFlight.decrementAndGet();
+            Bucket bucket = bucket(nowNanos);
+            if (bucket == null) {
+                return;
+            }
+            bucket.latency.add(seconds);
+            bucket.calls.increment();
+            if (failed) {
+                bucket.errors.increment();
+            }
+            if (outputTokens > 0) {
+                bucket.outputTokens.add(outputTokens);
+            }
+            if (cost > 0) {
+                bucket.cost.add(cost);
+            }
+        }
+
+        private Bucket bucket(long nowNanos) {
+            long epoch = Math.floorDiv(nowNanos, bucketNanos);
+            int index = (int) Math.floorMod(epoch, (long) buckets);
+            while (true) {
+                long current = epochs.get(index);
+                if (current == epoch) {
+                    return ring[index];
+                }
+                if (current > epoch) {
+                    return null;
+                }
+                if (epochs.compareAndSet(index, current, epoch)) {
+                    ring[index].clear();
+                }
+            }
+        }
+
+        private Snapshot snapshot(long nowNanos) {
+            long epoch = Math.floorDiv(nowNanos, bucketNanos);
+            DDSketch latency = ring[0].latency.emptyCopy();
+            long calls = 0L;
+            long errors = 0L;
+            long outputTokens = 0L;
+            double cost = 0d;
+            for (int i = 0; i < buckets; i++) {
+                long bucketEpoch = epochs.get(i);
+                if (bucketEpoch > epoch - buckets && bucketEpoch <= epoch) {
+                    Bucket bucket = ring[i];
+                    latency.merge(bucket.latency);
+                    calls += bucket.calls.sum();
+                    errors += bucket.errors.sum();
+                    outputTokens += bucket.outputTokens.sum();
+                    cost += bucket.cost.sum();
+                }
+            }
+            double seconds = Math.max(bucketNanos, Math.min(windowNanos, nowNanos - createdNanos))
+                    / (double) TimeUnit.SECONDS.toNanos(1);
+            return new Snapshot(
+                    model,
+                    operation,
+                    calls,
+                    latency.quantile(0.50),
+                    latency.quantile(0.95),
+                    latency.quantile(0.99),
+                    calls > 0 ? (double) errors / calls : 0d,
+                    outputTokens / seconds,
+                    cost / seconds,
+                    Math.max(0L, inFlight.get()));
+        }
+    }
+
+    private static final class Bucket {
+
+        private final DDSketch latency;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder outputTokens = new LongAdder();
+        private final DoubleAdder cost = new DoubleAdder();
+
+        private Bucket(DDSketch latency) {
+            this.latency = latency;
+        }
+
+        private void clear() {
+            latency.clear();
+            calls.reset();
+            errors.reset();
+            outputTokens.reset();
+            cost.reset();
+        }
+    }
+}
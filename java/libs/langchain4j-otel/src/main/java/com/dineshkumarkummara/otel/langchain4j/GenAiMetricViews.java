@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.InstrumentSelector;
+import io.opentelemetry.sdk.metrics.SdkMeterProviderBuilder;
+import io.opentelemetry.sdk.metrics.View;
+import java.util.List;
+
+/**
+ * Registers SDK views for the GenAI histograms. The instruments already carry bucket boundaries advice;
+ * views are needed to switch them to base-2 exponential histograms, which the metrics API cannot request.
+ *
+ * <p>Requires {@code io.opentelemetry:opentelemetry-sdk-metrics} on the classpath.
+ */
+public final class GenAiMetricViews {
+
+    private static final String METER_NAME = "otel-genai-bridges";
+
+    private GenAiMetricViews() {
+    }
+
+    public static SdkMeterProviderBuilder register(
+            SdkMeterProviderBuilder builder, LangChain4jTelemetryProperties properties) {
+        LangChain4jTelemetryProperties.Metrics metrics = properties.getMetrics();
+        register(builder, metrics, LangChain4jTelemetry.METRIC_OPERATION_DURATION, metrics.getDurationBuckets());
+        register(builder, metrics, LangChain4jTelemetry.METRIC_TOKEN_USAGE, metrics.getTokenUsageBuckets());
+        register(builder, metrics, LangChain4jTelemetry.METRIC_OPERATION_COST, metrics.getCostBuckets());
+        register(builder, metrics, LangChain4jTelemetry.METRIC_RAG_RETRIEVAL_LATENCY, metrics.getRagLatencyBuckets());
+        register(builder, metrics, LangChain4jTelemetry.METRIC_TIME_TO_FIRST_TOKEN, metrics.getTimeToFirstTokenBuckets());
+        register(builder, metrics, LangChain4jTelemetry.METRIC_TIME_PER_OUTPUT_TOKEN, metrics.getTimePerOutputTokenBuckets());
+        register(builder, metrics, LangChain4jTelemetry.METRIC_OUTPUT_TOKENS_PER_SECOND, metrics.getOutputTokensPerSecondBuckets());
+        register(builder, metrics, ConcurrencyLimitedChatLanguageModel.METRIC_QUEUE_WAIT, metrics.getDurationBuckets());
+        register(builder, metrics, QuotaGovernedChatLanguageModel.METRIC_THROTTLE_DELAY, metrics.getDurationBuckets());
+        return builder;
+    }
+
+    private static void register(
+            SdkMeterProviderBuilder builder,
+            LangChain4jTelemetryProperties.Metrics metrics,
+            String instrument,
+            List<Double> buckets) {
+        Aggregation aggregation = metrics.getHistogramAggregation()
+                        == LangChain4jTelemetryProperties.HistogramAggregation.BASE2_EXPONENTIAL
+                ? Aggregation.base2ExponentialBucketHistogram(
+                        metrics.getExponentialMaxBuckets(), metrics.getExponentialMaxScale())
+                : Aggregation.explicitBucketHistogram(buckets);
+        builder.registerView(
+                InstrumentSelector.builder().setMeterName(METER_NAME).setName(instrument).build(),
+                View.builder().setAggregation(aggregation).build());
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import java.util.Locale;
+
+/**
+ * Local {@link PromptEmbedder} using the hashing trick: lower-cased words and adjacent word pairs are hashed
+ * into a fixed number of signed buckets. It needs no model or service and captures lexical overlap, which is
+ * enough to match reworded FAQ-style prompts; plug in a real embedding model for deeper paraphrases.
+ */
+public final class HashingPromptEmbedder implements PromptEmbedder {
+
+    private static final float BIGRAM_WEIGHT = 0.5f;
+
+    private final int dimensions;
+
+    public HashingPromptEmbedder() {
+        this(256);
+    }
+
+    public HashingPromptEmbedder(int dimensions) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions must be positive: " + dimensions);
+        }
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        if (text == null) {
+            return vector;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        int previous = 0;
+        boolean hasPrevious = false;
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int word = normalized.substring(start, i).hashCode();
+                add(vector, word, 1f);
+                if (hasPrevious) {
+                    add(vector, previous * 31 + word, BIGRAM_WEIGHT);
+                }
+                previous = word;
+                hasPrevious = true;
+                start = -1;
+            }
+        }
+        return vector;
+    }
+
+    private void add(float[] vector, int feature, float weight) {
+        int hash = feature * 0x9e3779b9;
+        hash ^= hash >>> 16;
+        int bucket = Math.floorMod(hash, dimensions);
+        vector[bucket] += (hash & 0x8000) == 0 ? weight : -weight;
+    }
+}
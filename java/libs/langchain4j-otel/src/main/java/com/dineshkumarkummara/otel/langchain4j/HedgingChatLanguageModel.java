@@ -0,0 +1,286 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import com.dineshkumarkummara.otel.langchain4j.internal.RecentLatencies;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ChatLanguageModel decorator that hedges slow calls: when the first attempt has not answered within the
+ * configured latency quantile of recent calls, a second attempt is sent to the same or an alternate model.
+ * The first response wins and the other attempt is cancelled. Each attempt is a child span of the chat span.
+ *
+ * <p>Hedges to the same model go through the decorators inside this one, so with the concurrency limiter
+ * enabled each attempt holds its own slot. Hedges to an alternate model call its provider directly.
+ *
+ * <p>Hedges draw on a credit balance that grows by {@code max-hedge-ratio} per call, so the extra load stays
+ * bounded even when the provider is slow across the board.
+ */
+public final class HedgingChatLanguageModel implements ChatLanguageModel, ChatModelDecorator {
+
+    static final String METRIC_HEDGES_FIRED = "gen_ai.client.hedge.fired";
+    static final String METRIC_HEDGES_WON = "gen_ai.client.hedge.won";
+
+    private static final int LATENCY_SAMPLES = 512;
+    private static final int MIN_SAMPLES = 20;
+    private static final long CREDIT = 1_000L;
+    private static final long MAX_CREDITS = 10 * CREDIT;
+
+    private final ChatLanguageModel delegate;
+    private final Supplier<ChatLanguageModel> alternate;
+    private final LangChain4jTelemetry telemetry;
+    private final String attemptSpanName;
+    private final RecentLatencies latencies;
+    private final long initialDelayNanos;
+    private final long minDelayNanos;
+    private final long creditPerCall;
+    private final AtomicLong credits = new AtomicLong(CREDIT);
+    private final Attributes attributes;
+    private final LongCounter fired;
+    private final LongCounter won;
+
+    private HedgingChatLanguageModel(
+            ChatLanguageModel delegate,
+            Supplier<ChatLanguageModel> alternate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        this.delegate = delegate;
+        this.alternate = alternate;
+        this.telemetry = telemetry;
+        ModelProfile profile = ModelProfile.from(
+                properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
+        this.attemptSpanName = profile.spanName() + " attempt";
+        LangChain4jTelemetryProperties.Hedging config = properties.getHedging();
+        this.latencies = new RecentLatencies(LATENCY_SAMPLES, config.getQuantile());
+        this.initialDelayNanos = config.getInitialDelay() != null ? config.getInitialDelay().toNanos() : 0L;
+        this.minDelayNanos = config.getMinDelay() != null ? config.getMinDelay().toNanos() : 0L;
+        this.creditPerCall = Math.round(Math.max(0d, config.getMaxHedgeRatio()) * CREDIT);
+        this.attributes = telemetry.metricAttributes(profile);
+        this.fired = telemetry.meter().counterBuilder(METRIC_HEDGES_FIRED).setUnit("{request}").build();
+        this.won = telemetry.meter().counterBuilder(METRIC_HEDGES_WON).setUnit("{request}").build();
+    }
+
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        return wrap(delegate, null, telemetry, properties, introspector);
+    }
+
+    /**
+     * @param alternate supplies the model that receives hedges; {@code null} hedges to {@code delegate}
+     */
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            Supplier<ChatLanguageModel> alternate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        if (delegate instanceof HedgingChatLanguageModel) {
+            return delegate;
+        }
+        return new HedgingChatLanguageModel(delegate, alternate, telemetry, properties, introspector);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return hedged(model -> model.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return hedged(model -> model.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return hedged(model -> model.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    private Response<AiMessage> hedged(Function<ChatLanguageModel, Response<AiMessage>> call) {
+        credits.updateAndGet(balance -> Math.min(MAX_CREDITS, balance + creditPerCall));
+        Context parent = Context.current();
+        ExecutorService executor = telemetry.executor();
+        Race race = new Race();
+        Future<?> primary;
+        try {
+            primary = executor.submit(() -> attempt(parent, race, 0, delegate, call));
+        } catch (ConcurrencyLimitExceededException saturated) {
+            // no thread to spare: answer on the caller's thread, unhedged
+            primary = null;
+            attempt(parent, race, 0, delegate, call);
+        }
+        Future<?> hedge = null;
+        try {
+            try {
+                return race.winner.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                if (takeCredit()) {
+                    if (race.join()) {
+                        // the alternate bean is instrumented on its own; call its provider so the
+                        // hedge is not recorded as a second chat call
+                        ChatLanguageModel target =
+                                alternate != null ? ChatModelDecorator.provider(alternate.get()) : delegate;
+                        try {
+                            hedge = executor.submit(() -> attempt(parent, race, 1, target, call));
+                            fired.add(1, attributes);
+                            Span.current().setAttribute(GenAiAttributes.HEDGE_FIRED, true);
+                        } catch (ConcurrencyLimitExceededException saturated) {
+                            // no thread to spare: keep waiting for the primary
+                            race.fail(saturated);
+                            credits.addAndGet(CREDIT);
+                        }
+                    } else {
+                        credits.addAndGet(CREDIT);
+                    }
+                }
+                return race.winner.get();
+            }
+        } catch (ExecutionException ex) {
+            throw propagate(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            CancellationException cancelled = new CancellationException("Interrupted while waiting for the chat response");
+            cancelled.initCause(ex);
+            throw cancelled;
+        } finally {
+            if (primary != null) {
+                primary.cancel(true);
+            }
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    private void attempt(
+            Context parent, Race race, int index, ChatLanguageModel model, Function<ChatLanguageModel, Response<AiMessage>> call) {
+        Span span = telemetry.tracer()
+                .spanBuilder(attemptSpanName)
+                .setParent(parent)
+                .setSpanKind(SpanKind.INTERNAL)
+                .setAttribute(GenAiAttributes.HEDGE_ATTEMPT, (long) index)
+                .startSpan();
+        long startNanos = System.nanoTime();
+        try (Scope ignored = parent.with(span).makeCurrent()) {
+            Response<AiMessage> response = call.apply(model);
+            if (index == 0) {
+                // only answered primaries; a cancelled or failed one would drag the hedge delay down
+                latencies.record(System.nanoTime() - startNanos);
+            }
+            boolean first = race.winner.complete(response);
+            span.setAttribute(GenAiAttributes.HEDGE_WON, first);
+            if (first && index > 0) {
+                won.add(1, attributes);
+            }
+        } catch (Throwable error) {
+            if (race.winner.isDone()) {
+                // the other attempt already answered and this one was cancelled
+                span.setAttribute(GenAiAttributes.ERROR_TYPE, LangChain4jTelemetry.CANCELLED);
+            } else {
+                span.recordException(error);
+                span.setStatus(StatusCode.ERROR, String.valueOf(error.getMessage()));
+                span.setAttribute(GenAiAttributes.ERROR_TYPE, error.getClass().getName());
+            }
+            race.fail(error);
+        } finally {
+            span.end();
+        }
+    }
+
+    private long hedgeDelayNanos() {
+        long quantile = latencies.quantile(MIN_SAMPLES);
+        return Math.max(minDelayNanos, quantile >= 0 ? quantile : initialDelayNanos);
+    }
+
+    private boolean takeCredit() {
+        long balance;
+        do {
+            balance = credits.get();
+            if (balance < CREDIT) {
+                return false;
+            }
+        } while (!credits.compareAndSet(balance, balance - CREDIT));
+        return true;
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(cause);
+    }
+
+    /** Outcome shared by the attempts of one call; fails only once every launched attempt failed. */
+    private static final class Race {
+
+        private final CompletableFuture<Response<AiMessage>> winner = new CompletableFuture<>();
+        private final AtomicInteger pending = new AtomicInteger(1);
+
+        /** Registers another attempt unless every attempt so far has already failed. */
+        boolean join() {
+            int current;
+            do {
+                current = pending.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!pending.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void fail(Throwable error) {
+            if (pending.decrementAndGet() == 0) {
+                winner.completeExceptionally(error);
+            }
+        }
+    }
+}
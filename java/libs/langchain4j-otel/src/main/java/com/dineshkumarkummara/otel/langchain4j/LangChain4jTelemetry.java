@@ -17,6 +17,10 @@ package com.dineshkumarkummara.otel.langchain4j;
 
 import static java.util.Objects.requireNonNull;
 
+import com.dineshkumarkummara.otel.langchain4j.ModelProfile.MetricView;
+import com.dineshkumarkummara.otel.langchain4j.internal.MessageText;
+import com.dineshkumarkummara.otel.langchain4j.internal.PromptFingerprint;
+import com.dineshkumarkummara.otel.langchain4j.internal.RetryBudget;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ChatMessageType;
@@ -27,99 +31,169 @@ import dev.langchain4j.model.output.Response;
 import dev.langchain4j.model.output.TokenUsage;
 import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.OpenTelemetry;
-import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
 import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
 import io.opentelemetry.context.Scope;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 /**
  * Core telemetry engine that turns LangChain4j calls into OpenTelemetry signals.
  */
-public final class LangChain4jTelemetry {
-
-    private static final AttributeKey<String> ATTR_SYSTEM = AttributeKey.stringKey("gen_ai.system");
-    private static final AttributeKey<String> ATTR_OPERATION_NAME = AttributeKey.stringKey("gen_ai.operation.name");
-    private static final AttributeKey<String> ATTR_REQUEST_MODEL = AttributeKey.stringKey("gen_ai.request.model");
-    private static final AttributeKey<Double> ATTR_REQUEST_TEMPERATURE = AttributeKey.doubleKey("gen_ai.request.temperature");
-    private static final AttributeKey<Double> ATTR_REQUEST_TOP_P = AttributeKey.doubleKey("gen_ai.request.top_p");
-    private static final AttributeKey<Long> ATTR_REQUEST_MAX_TOKENS = AttributeKey.longKey("gen_ai.request.max_tokens");
-    private static final AttributeKey<List<String>> ATTR_REQUEST_STOP_SEQUENCES = AttributeKey.stringArrayKey("gen_ai.request.stop_sequences");
-    private static final AttributeKey<List<String>> ATTR_RESPONSE_FINISH_REASONS = AttributeKey.stringArrayKey("gen_ai.response.finish_reasons");
-    private static final AttributeKey<Long> ATTR_USAGE_INPUT_TOKENS = AttributeKey.longKey("gen_ai.usage.input_tokens");
-    private static final AttributeKey<Long> ATTR_USAGE_OUTPUT_TOKENS = AttributeKey.longKey("gen_ai.usage.output_tokens");
-    private static final AttributeKey<String> ATTR_TOKEN_TYPE = AttributeKey.stringKey("gen_ai.token.type");
-    private static final AttributeKey<Boolean> ATTR_RESPONSE_CACHED = AttributeKey.booleanKey("gen_ai.response.cached");
-    private static final AttributeKey<String> ATTR_ERROR_TYPE = AttributeKey.stringKey("error.type");
-    private static final AttributeKey<String> ATTR_RESPONSE_TEXT = AttributeKey.stringKey("gen_ai.response.content");
-    private static final AttributeKey<String> ATTR_PROMPT_TEXT = AttributeKey.stringKey("gen_ai.prompt.content");
-    private static final AttributeKey<String> ATTR_TOOL_NAME = AttributeKey.stringKey("tool.name");
-    private static final AttributeKey<String> ATTR_RAG_DATASOURCE = AttributeKey.stringKey("datasource");
+public final class LangChain4jTelemetry implements AutoCloseable {
+
+    static final String METRIC_OPERATION_DURATION = "gen_ai.client.operation.duration";
+    static final String METRIC_TOKEN_USAGE = "gen_ai.client.token.usage";
+    static final String METRIC_OPERATION_ERRORS = "gen_ai.client.operation.errors";
+    static final String METRIC_OPERATION_COST = "gen_ai.client.operation.cost";
+    static final String METRIC_TOOL_CALLS = "gen_ai.client.tool.calls";
+    static final String METRIC_RAG_RETRIEVAL_LATENCY = "gen_ai.rag.retrieval.latency";
+    static final String METRIC_COALESCED_REQUESTS = "gen_ai.client.requests.coalesced";
+    static final String METRIC_TIME_TO_FIRST_TOKEN = "gen_ai.client.time_to_first_token";
+    static final String METRIC_TIME_PER_OUTPUT_TOKEN = "gen_ai.client.time_per_output_token";
+    static final String METRIC_OUTPUT_TOKENS_PER_SECOND = "gen_ai.client.output_tokens_per_second";
+    static final String CANCELLED = "cancelled";
+    static final String TIMEOUT = "timeout";
+
+    private static final Map<FinishReason, List<String>> FINISH_REASONS = finishReasons();
+    /** Invocation of the chat call in progress, for decorators that need to annotate it. */
+    private static final ContextKey<ChatInvocationContext> INVOCATION = ContextKey.named("otel-genai-invocation");
 
     private final LangChain4jTelemetryProperties properties;
     private final Tracer tracer;
+    private final Meter meter;
     private final DoubleHistogram duration;
     private final DoubleHistogram tokenUsage;
     private final LongCounter errorCounter;
     private final DoubleHistogram costHistogram;
     private final LongCounter toolCallCounter;
+    private final LongCounter coalescedCounter;
     private final DoubleHistogram ragLatency;
+    private final DoubleHistogram timeToFirstToken;
+    private final DoubleHistogram timePerOutputToken;
+    private final DoubleHistogram outputTokensPerSecond;
+    private final MetricAttributeProjection metricProjection;
+    private final ContentSpool contentSpool;
+    private final ContentEmitter contentEmitter;
+    private final ContentCapture contentCapture;
+    private final CapturePolicy capturePolicy;
+    private final ConversationTracker conversations;
+    private final PromptAnalytics promptAnalytics;
+    private final GenAiLiveStats liveStats;
+    private final boolean promptsUpFront;
+    private final Map<String, TokenQuota> quotas = new ConcurrentHashMap<>();
+    private final Queue<AutoCloseable> instruments = new ConcurrentLinkedQueue<>();
+    private volatile ExecutorService executor;
+    private final RetryBudget retryBudget;
 
     public LangChain4jTelemetry(LangChain4jTelemetryProperties properties) {
         this(GlobalOpenTelemetry.get(), properties);
     }
 
     public LangChain4jTelemetry(OpenTelemetry openTelemetry, LangChain4jTelemetryProperties properties) {
+        this(openTelemetry, null, properties);
+    }
+
+    /**
+     * @param contentLogs logger provider for content records with {@code capture.destination=logs};
+     *     {@code null} uses the logs bridge of {@code openTelemetry}. Not closed by {@link #close()}.
+     */
+    public LangChain4jTelemetry(
+            OpenTelemetry openTelemetry, GenAiContentLogs contentLogs, LangChain4jTelemetryProperties properties) {
         this.properties = requireNonNull(properties, "properties");
         OpenTelemetry otel = requireNonNull(openTelemetry, "openTelemetry");
         this.tracer = otel.getTracer("otel-genai-bridges/langchain4j");
-        this.duration = otel
-                .meterBuilder("otel-genai-bridges")
-                .setInstrumentationVersion("0.1.0")
-                .build()
-                .histogramBuilder("gen_ai.client.operation.duration")
+        this.metricProjection = new MetricAttributeProjection(properties.getMetrics());
+        this.meter = otel.meterBuilder("otel-genai-bridges").setInstrumentationVersion("0.1.0").build();
+        LangChain4jTelemetryProperties.Metrics metrics = properties.getMetrics();
+        this.duration = meter.histogramBuilder(METRIC_OPERATION_DURATION)
                 .setUnit("s")
+                .setExplicitBucketBoundariesAdvice(metrics.getDurationBuckets())
                 .build();
-        this.tokenUsage = otel
-                .meterBuilder("otel-genai-bridges")
-                .setInstrumentationVersion("0.1.0")
-                .build()
-                .histogramBuilder("gen_ai.client.token.usage")
+        this.tokenUsage = meter.histogramBuilder(METRIC_TOKEN_USAGE)
                 .setUnit("{token}")
+                .setExplicitBucketBoundariesAdvice(metrics.getTokenUsageBuckets())
                 .build();
-        this.errorCounter = otel
-                .meterBuilder("otel-genai-bridges")
-                .build()
-                .counterBuilder("gen_ai.client.operation.errors")
-                .build();
-        this.costHistogram = otel
-                .meterBuilder("otel-genai-bridges")
-                .build()
-                .histogramBuilder("gen_ai.client.operation.cost")
+        this.errorCounter = meter.counterBuilder(METRIC_OPERATION_ERRORS).build();
+        this.costHistogram = meter.histogramBuilder(METRIC_OPERATION_COST)
                 .setUnit(properties.getCost().getCurrency().toLowerCase(Locale.ROOT))
+                .setExplicitBucketBoundariesAdvice(metrics.getCostBuckets())
                 .build();
-        this.toolCallCounter = otel
-                .meterBuilder("otel-genai-bridges")
-                .build()
-                .counterBuilder("gen_ai.client.tool.calls")
-                .build();
-        this.ragLatency = otel
-                .meterBuilder("otel-genai-bridges")
-                .build()
-                .histogramBuilder("gen_ai.rag.retrieval.latency")
+        this.toolCallCounter = meter.counterBuilder(METRIC_TOOL_CALLS).build();
+        this.coalescedCounter = meter.counterBuilder(METRIC_COALESCED_REQUESTS).setUnit("{request}").build();
+        this.ragLatency = meter.histogramBuilder(METRIC_RAG_RETRIEVAL_LATENCY)
                 .setUnit("ms")
+                .setExplicitBucketBoundariesAdvice(metrics.getRagLatencyBuckets())
                 .build();
+        this.timeToFirstToken = meter.histogramBuilder(METRIC_TIME_TO_FIRST_TOKEN)
+                .setUnit("s")
+                .setExplicitBucketBoundariesAdvice(metrics.getTimeToFirstTokenBuckets())
+                .build();
+        this.timePerOutputToken = meter.histogramBuilder(METRIC_TIME_PER_OUTPUT_TOKEN)
+                .setUnit("s")
+                .setExplicitBucketBoundariesAdvice(metrics.getTimePerOutputTokenBuckets())
+                .build();
+        this.outputTokensPerSecond = meter.histogramBuilder(METRIC_OUTPUT_TOKENS_PER_SECOND)
+                .setUnit("{token}/s")
+                .setExplicitBucketBoundariesAdvice(metrics.getOutputTokensPerSecondBuckets())
+                .build();
+        this.retryBudget = new RetryBudget(
+                properties.getRetry().getBudgetPercent() / 100d, properties.getRetry().getBudgetBurst());
+        LangChain4jTelemetryProperties.Capture capture = properties.getCapture();
+        ContentEmitter emitter = capture.getDestination() == LangChain4jTelemetryProperties.ContentDestination.LOGS
+                ? new LogContentEmitter((contentLogs != null ? contentLogs.loggerProvider() : otel.getLogsBridge())
+                        .get(LogContentEmitter.SCOPE_NAME))
+                : ContentEmitter.SPAN_EVENTS;
+        LangChain4jTelemetryProperties.Spool spool = capture.getSpool();
+        this.contentSpool = spool.isEnabled() && (properties.isCapturePrompts() || properties.isCaptureCompletions())
+                ? spool.getDirectory() != null
+                        ? new ContentSpool(spool.getDirectory(), spool.getSegmentBytes(), spool.getMaxBytes())
+                        : ContentSpool.temporary(spool.getSegmentBytes(), spool.getMaxBytes())
+                : null;
+        this.contentEmitter = contentSpool != null ? new SpoolingContentEmitter(emitter, contentSpool) : emitter;
+        this.contentCapture = new ContentCapture(properties, meter, contentEmitter);
+        this.capturePolicy = new CapturePolicy(properties.getCapture());
+        this.conversations = capture.isIncremental() && properties.isCapturePrompts()
+                ? new ConversationTracker(capture.getMaxConversations())
+                : null;
+        this.promptAnalytics = properties.getPromptAnalytics().isEnabled()
+                ? new PromptAnalytics(properties.getPromptAnalytics(), meter)
+                : null;
+        this.liveStats = properties.getLiveStats().isEnabled() ? new GenAiLiveStats(properties.getLiveStats()) : null;
+        // Prompt events are added when the call starts unless the decision to keep them is made at the end.
+        this.promptsUpFront = !contentCapture.isDeferred() && !capturePolicy.isConditional();
     }
 
     public Response<AiMessage> instrumentChat(ChatInvocationContext context, Supplier<Response<AiMessage>> delegate) {
@@ -127,76 +201,511 @@ public final class LangChain4jTelemetry {
             return delegate.get();
         }
 
-        Attributes baseAttributes = context.toAttributes();
-        String spanName = context.spanName();
-        Span span = tracer.spanBuilder(spanName).setSpanKind(SpanKind.CLIENT).setAllAttributes(baseAttributes).startSpan();
+        ModelProfile profile = context.profile();
+        MetricView metrics = profile.metrics(metricProjection);
         long startNanos = System.nanoTime();
-        try (Scope scope = span.makeCurrent()) {
-            context.emitPromptEvents(span, properties);
+        Span span = startSpan(profile, Context.current(), startNanos, false);
+        // Spans dropped by the sampler only feed metrics; events and attributes would be discarded anyway.
+        boolean recording = span.isRecording() || !properties.isNonRecordingFastPath();
+        try (Scope scope = Context.current().with(span).with(INVOCATION, context).makeCurrent()) {
+            fingerprintPrompt(span, context);
+            beginLive(profile);
+            if (recording) {
+                beginConversation(span, context);
+                if (promptsUpFront) {
+                    context.emitPromptEvents(span, properties, contentEmitter, 0L);
+                }
+            }
             Response<AiMessage> response = delegate.get();
-            context.processResponse(span, response, properties);
-
-            finishSpanSuccessfully(span, response, baseAttributes, startNanos);
+            finishSpanSuccessfully(span, context, response, metrics, startNanos, recording);
             return response;
         } catch (RuntimeException ex) {
-            span.recordException(ex);
-            span.setStatus(StatusCode.ERROR);
-            span.setAttribute(ATTR_ERROR_TYPE, ex.getClass().getName());
-            recordErrorMetric(baseAttributes);
-            duration.record(elapsedSeconds(startNanos), baseAttributes);
-            span.end();
+            finishSpanWithError(span, context, ex, metrics, startNanos, recording);
             throw ex;
         }
     }
 
+    /**
+     * Asynchronous counterpart of {@link #instrumentChat}. The span is current while {@code delegate} starts
+     * the call, so work it submits through a {@link Context#taskWrapping(java.util.concurrent.Executor)
+     * context-wrapping} executor is parented correctly; the span ends when the stage completes, without
+     * blocking any thread. The returned stage completes with the caller's context current, and cancelling it
+     * cancels the delegate's stage. Cancellation is recorded as {@code error.type=cancelled} rather than as
+     * an error.
+     */
+    public CompletableFuture<Response<AiMessage>> instrumentChatAsync(
+            ChatInvocationContext context, Supplier<? extends CompletionStage<Response<AiMessage>>> delegate) {
+        if (!properties.isEnabled()) {
+            return delegate.get().toCompletableFuture();
+        }
+
+        ModelProfile profile = context.profile();
+        MetricView metrics = profile.metrics(metricProjection);
+        Context parentContext = Context.current();
+        long startNanos = System.nanoTime();
+        Span span = startSpan(profile, parentContext, startNanos, false);
+        boolean recording = span.isRecording() || !properties.isNonRecordingFastPath();
+        CompletionStage<Response<AiMessage>> stage;
+        try (Scope scope = parentContext.with(span).with(INVOCATION, context).makeCurrent()) {
+            fingerprintPrompt(span, context);
+            beginLive(profile);
+            if (recording) {
+                beginConversation(span, context);
+                if (promptsUpFront) {
+                    context.emitPromptEvents(span, properties, contentEmitter, 0L);
+                }
+            }
+            stage = delegate.get();
+            if (stage == null) {
+                throw new NullPointerException("Chat delegate returned a null completion stage");
+            }
+        } catch (RuntimeException ex) {
+            finishSpanWithError(span, context, ex, metrics, startNanos, recording);
+            throw ex;
+        }
+
+        CompletableFuture<Response<AiMessage>> result = new CompletableFuture<>();
+        stage.whenComplete((response, failure) -> {
+            Throwable cause = unwrap(failure);
+            try {
+                if (cause == null) {
+                    finishSpanSuccessfully(span, context, response, metrics, startNanos, recording);
+                } else if (cause instanceof CancellationException) {
+                    finishSpanCancelled(span, context, metrics, startNanos, recording);
+                } else {
+                    finishSpanWithError(span, context, cause, metrics, startNanos, recording);
+                }
+            } finally {
+                // The caller waits on the result; it must complete even if recording the outcome failed.
+                try (Scope scope = parentContext.makeCurrent()) {
+                    if (cause == null) {
+                        result.complete(response);
+                    } else {
+                        result.completeExceptionally(cause);
+                    }
+                }
+            }
+        });
+        if (stage instanceof Future<?> future) {
+            result.whenComplete((response, failure) -> {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Starts the span of a streaming call without making it current. The returned observation keeps the
+     * span open across the asynchronous callbacks and ends it on {@link StreamingObservation#onComplete}
+     * or {@link StreamingObservation#onError}, from whichever thread delivers them.
+     */
+    public StreamingObservation startStreaming(ChatInvocationContext context) {
+        if (!properties.isEnabled()) {
+            return new StreamingObservation(context, null, null, false, System.nanoTime());
+        }
+        ModelProfile profile = context.profile();
+        MetricView metrics = profile.metrics(metricProjection);
+        long startNanos = System.nanoTime();
+        Span span = startSpan(profile, Context.current(), startNanos, true);
+        boolean recording = span.isRecording() || !properties.isNonRecordingFastPath();
+        try {
+            fingerprintPrompt(span, context);
+            beginLive(profile);
+            if (recording) {
+                beginConversation(span, context);
+                if (promptsUpFront) {
+                    context.emitPromptEvents(span, properties, contentEmitter, 0L);
+                }
+            }
+        } catch (RuntimeException ex) {
+            finishSpanWithError(span, context, ex, metrics, startNanos, recording);
+            throw ex;
+        }
+        return new StreamingObservation(context, span, metrics, recording, startNanos);
+    }
+
+    /** Retry budget shared by every model instrumented by this telemetry. */
+    RetryBudget retryBudget() {
+        return retryBudget;
+    }
+
+    /** Tracer for the child spans of decorators that fan a call out into attempts. */
+    Tracer tracer() {
+        return tracer;
+    }
+
+    /**
+     * Executor for decorators that run the delegate off the caller thread, created on first use: virtual
+     * threads when configured and the runtime supports them, else up to {@code executor-max-threads} daemon
+     * platform threads. Calls beyond that bound are rejected with {@link ConcurrencyLimitExceededException}
+     * rather than queued, since a queued call would only start after its caller stopped waiting.
+     */
+    ExecutorService executor() {
+        ExecutorService current = executor;
+        if (current == null) {
+            synchronized (this) {
+                current = executor;
+                if (current == null) {
+                    current = properties.getExecutor() == LangChain4jTelemetryProperties.ExecutorType.VIRTUAL
+                            ? virtualThreadExecutor()
+                            : null;
+                    if (current == null) {
+                        AtomicInteger threads = new AtomicInteger();
+                        int maxThreads = Math.max(1, properties.getExecutorMaxThreads());
+                        current = new ThreadPoolExecutor(
+                                0,
+                                maxThreads,
+                                60L,
+                                TimeUnit.SECONDS,
+                                new SynchronousQueue<>(),
+                                task -> {
+                                    Thread thread = new Thread(task, "otel-genai-call-" + threads.incrementAndGet());
+                                    thread.setDaemon(true);
+                                    return thread;
+                                },
+                                (task, pool) -> {
+                                    throw new ConcurrencyLimitExceededException(
+                                            "All " + maxThreads + " call executor threads are busy");
+                                });
+                    }
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** Meter shared by the decorators that report alongside the chat instrumentation. */
+    Meter meter() {
+        return meter;
+    }
+
+    /** Keeps an asynchronous instrument of a decorator so {@link #close()} unregisters its callback. */
+    <T extends AutoCloseable> T register(T instrument) {
+        instruments.add(instrument);
+        return instrument;
+    }
+
+    /** Projected metric attributes of {@code profile}, as used by the chat metrics. */
+    Attributes metricAttributes(ModelProfile profile) {
+        return profile.metrics(metricProjection).attributes();
+    }
+
+    /** Token budget shared by every decorator with the same quota key and model. */
+    TokenQuota quota(ModelProfile profile) {
+        LangChain4jTelemetryProperties.Quota config = properties.getQuota();
+        String model = profile.model() != null ? profile.model() : "unknown-model";
+        return quotas.computeIfAbsent(config.getKey() + '/' + model, key -> {
+            LangChain4jTelemetryProperties.Quota.Limits limits = config.getModels().get(model);
+            return new TokenQuota(
+                    limits != null ? limits.getTokensPerMinute() : config.getTokensPerMinute(),
+                    limits != null ? limits.getRequestsPerMinute() : config.getRequestsPerMinute(),
+                    meter,
+                    metricAttributes(profile).toBuilder().put(GenAiAttributes.QUOTA_KEY, config.getKey()).build());
+        });
+    }
+
+    /**
+     * The profile of the chat call in the current context, or {@code null} outside one. Cache decorators key on
+     * it so a profile rebuilt by {@link OtelChatLanguageModel#refreshMetadata()} takes effect immediately.
+     */
+    static ModelProfile currentProfile() {
+        ChatInvocationContext invocation = Context.current().get(INVOCATION);
+        return invocation != null ? invocation.profile() : null;
+    }
+
+    /**
+     * Records that the current call was answered from a response cache, so the cached response's usage is
+     * kept out of the token and cost metrics. Called by cache decorators on the calling thread.
+     */
+    static void markCached() {
+        ChatInvocationContext invocation = Context.current().get(INVOCATION);
+        if (invocation != null) {
+            invocation.markCached();
+        }
+    }
+
+    /**
+     * Records that the current call was served by another in-flight call: links the current span to the
+     * leader's span and keeps the shared response out of the token and cost metrics.
+     */
+    void markCoalesced(ChatInvocationContext context, SpanContext leader) {
+        context.markShared();
+        Span span = Span.current();
+        if (leader.isValid()) {
+            span.addLink(leader);
+        }
+        span.setAttribute(GenAiAttributes.REQUEST_COALESCED, true);
+        coalescedCounter.add(1, metricAttributes(context.profile()));
+    }
+
+    /**
+     * The {@code prompt-analytics.top-k} most frequent prompts of the current window, most frequent first;
+     * empty when prompt analytics are disabled.
+     */
+    public List<HotPrompt> hotPrompts() {
+        return promptAnalytics != null ? promptAnalytics.hotPrompts() : List.of();
+    }
+
+    /** Sliding-window latency, error, token and cost statistics per model, or {@code null} when disabled. */
+    public GenAiLiveStats liveStats() {
+        return liveStats;
+    }
+
+    /**
+     * Spool holding the full content referenced by {@code gen_ai.*.content.ref} event attributes, or
+     * {@code null} when {@code capture.spool} is disabled.
+     */
+    public ContentSpool contentSpool() {
+        return contentSpool;
+    }
+
+    /**
+     * Ends every span still waiting for asynchronous content capture, flushes the content spool, unregisters
+     * the gauge callbacks and stops the call executor.
+     */
+    @Override
+    public void close() {
+        contentCapture.close();
+        if (promptAnalytics != null) {
+            promptAnalytics.close();
+        }
+        quotas.values().forEach(TokenQuota::close);
+        for (AutoCloseable instrument = instruments.poll(); instrument != null; instrument = instruments.poll()) {
+            try {
+                instrument.close();
+            } catch (Exception ignored) {
+                // Unregistering a callback is best effort.
+            }
+        }
+        if (contentSpool != null) {
+            contentSpool.close();
+        }
+        ExecutorService current = executor;
+        if (current != null) {
+            current.shutdownNow();
+        }
+    }
+
     public void recordRagLatency(String datasource, Duration latency, Attributes baseAttributes) {
         if (!properties.isEnabled()) {
             return;
         }
-        Attributes attributes = Attributes.builder()
-                .putAll(baseAttributes)
-                .put(ATTR_RAG_DATASOURCE, datasource)
+        Attributes attributes = metricProjection.project(baseAttributes).toBuilder()
+                .put(GenAiAttributes.RAG_DATASOURCE, metricProjection.limit(GenAiAttributes.RAG_DATASOURCE, datasource))
                 .build();
         ragLatency.record(latency.toMillis(), attributes);
     }
 
+    private void beginLive(ModelProfile profile) {
+        if (liveStats != null) {
+            liveStats.series(profile).begin();
+        }
+    }
+
+    private void endLive(ChatInvocationContext invocation, double seconds, boolean failed, long outputTokens, double cost) {
+        if (liveStats != null) {
+            liveStats.series(invocation.profile()).end(System.nanoTime(), seconds, failed, outputTokens, cost);
+        }
+    }
+
+    /**
+     * Records the fingerprint of the call's messages on the span and in the prompt statistics, which count
+     * sampled and unsampled calls alike. Does nothing unless {@code prompt-analytics} is enabled.
+     */
+    private void fingerprintPrompt(Span span, ChatInvocationContext context) {
+        if (promptAnalytics == null) {
+            return;
+        }
+        try {
+            ModelProfile profile = context.profile();
+            PromptFingerprint fingerprint = profile.fingerprint(context.messages(), null);
+            span.setAttribute(GenAiAttributes.PROMPT_FINGERPRINT, fingerprint.toHex());
+            promptAnalytics.record(fingerprint, metricAttributes(profile));
+        } catch (RuntimeException ignored) {
+            // Prompt analytics is best effort; it must never fail the call.
+        }
+    }
+
+    /**
+     * Links the span to the previous captured turn of its conversation, whose messages are not emitted
+     * again. Does nothing unless {@code capture.incremental} is enabled.
+     */
+    private void beginConversation(Span span, ChatInvocationContext context) {
+        if (conversations == null) {
+            return;
+        }
+        ConversationTracker.Position position = conversations.begin(context.messages());
+        if (position == null) {
+            return;
+        }
+        context.conversation(position);
+        SpanContext previous = position.previousSpan();
+        if (previous != null) {
+            span.addLink(previous);
+            span.setAttribute(GenAiAttributes.CONVERSATION_CAPTURED_MESSAGES, (long) position.capturedMessages());
+        }
+    }
+
+    private Span startSpan(ModelProfile profile, Context parent, long startNanos, boolean streaming) {
+        SpanBuilder builder = tracer.spanBuilder(profile.spanName())
+                .setParent(parent)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAllAttributes(profile.attributes());
+        if (streaming) {
+            builder.setAttribute(GenAiAttributes.REQUEST_STREAMING, true);
+        }
+        if (contentCapture.isDeferred()) {
+            // The capture worker ends the span with an explicit timestamp, so start it on the same clock.
+            builder.setStartTimestamp(contentCapture.epochNanos(startNanos), TimeUnit.NANOSECONDS);
+        }
+        return builder.startSpan();
+    }
+
+    private void endSpan(
+            Span span,
+            ChatInvocationContext invocation,
+            Response<AiMessage> response,
+            long startNanos,
+            boolean recording,
+            boolean failed) {
+        if (!recording) {
+            span.end();
+            return;
+        }
+        boolean includeContent = true;
+        if (capturePolicy.isConditional()) {
+            String reason = capturePolicy.reason(failed, System.nanoTime() - startNanos, response);
+            includeContent = reason != null;
+            if (includeContent) {
+                span.setAttribute(GenAiAttributes.CAPTURE_REASON, reason);
+            }
+        }
+        if (contentCapture.isDeferred()) {
+            contentCapture.submit(span, invocation, response, startNanos, includeContent);
+            return;
+        }
+        if (includeContent && !promptsUpFront) {
+            invocation.emitPromptEvents(span, properties, contentEmitter, 0L);
+        }
+        invocation.processResponse(span, response, properties, contentEmitter, 0L, includeContent);
+        if (includeContent) {
+            invocation.conversationCaptured(span, response, properties);
+        }
+        span.end();
+    }
+
     private void finishSpanSuccessfully(
-            Span span, Response<AiMessage> response, Attributes baseAttributes, long startNanos) {
+            Span span,
+            ChatInvocationContext invocation,
+            Response<AiMessage> response,
+            MetricView metrics,
+            long startNanos,
+            boolean recording) {
+        Attributes baseAttributes = metrics.attributes();
+        long outputTokenCount = 0L;
+        double cost = 0d;
         if (response != null) {
             FinishReason finishReason = response.finishReason();
-            if (finishReason != null) {
-                span.setAttribute(
-                        ATTR_RESPONSE_FINISH_REASONS,
-                        Collections.singletonList(finishReason.name().toLowerCase(Locale.ROOT)));
+            if (recording && finishReason != null) {
+                span.setAttribute(GenAiAttributes.RESPONSE_FINISH_REASONS, FINISH_REASONS.get(finishReason));
             }
             TokenUsage tokenUsage = response.tokenUsage();
-            if (tokenUsage != null) {
-                ofNullable(tokenUsage.inputTokenCount())
-                        .ifPresent(count -> span.setAttribute(ATTR_USAGE_INPUT_TOKENS, count.longValue()));
-                ofNullable(tokenUsage.outputTokenCount())
-                        .ifPresent(count -> span.setAttribute(ATTR_USAGE_OUTPUT_TOKENS, count.longValue()));
-                recordTokenMetrics(tokenUsage, baseAttributes);
-                recordCost(tokenUsage, baseAttributes);
+            // Coalesced and cached calls reuse a response whose tokens were already counted once.
+            if (tokenUsage != null && !invocation.isShared() && !invocation.isCached()) {
+                if (recording) {
+                    Integer inputTokens = tokenUsage.inputTokenCount();
+                    if (inputTokens != null) {
+                        span.setAttribute(GenAiAttributes.USAGE_INPUT_TOKENS, inputTokens.longValue());
+                    }
+                    Integer outputTokens = tokenUsage.outputTokenCount();
+                    if (outputTokens != null) {
+                        span.setAttribute(GenAiAttributes.USAGE_OUTPUT_TOKENS, outputTokens.longValue());
+                    }
+                }
+                recordTokenMetrics(tokenUsage, metrics);
+                cost = recordCost(tokenUsage, baseAttributes);
+                if (tokenUsage.outputTokenCount() != null) {
+                    outputTokenCount = tokenUsage.outputTokenCount();
+                }
             }
-            recordToolMetrics(response, baseAttributes);
+            recordToolMetrics(response, metrics);
         }
-        span.end();
-        duration.record(elapsedSeconds(startNanos), baseAttributes);
+        endSpan(span, invocation, response, startNanos, recording, false);
+        double seconds = elapsedSeconds(startNanos);
+        duration.record(seconds, baseAttributes);
+        endLive(invocation, seconds, false, outputTokenCount, cost);
     }
 
-    private void recordTokenMetrics(TokenUsage usage, Attributes baseAttributes) {
+    private void finishSpanWithError(
+            Span span,
+            ChatInvocationContext invocation,
+            Throwable error,
+            MetricView metrics,
+            long startNanos,
+            boolean recording) {
+        boolean timedOut = error instanceof ChatTimeoutException;
+        if (recording) {
+            span.recordException(error);
+            span.setStatus(StatusCode.ERROR);
+            span.setAttribute(GenAiAttributes.ERROR_TYPE, timedOut ? TIMEOUT : error.getClass().getName());
+        }
+        Attributes attributes = timedOut ? metrics.timeoutAttributes() : metrics.attributes();
+        recordErrorMetric(attributes);
+        double seconds = elapsedSeconds(startNanos);
+        duration.record(seconds, attributes);
+        endLive(invocation, seconds, true, 0L, 0d);
+        endSpan(span, invocation, null, startNanos, recording, true);
+    }
+
+    private void finishSpanCancelled(
+            Span span, ChatInvocationContext invocation, MetricView metrics, long startNanos, boolean recording) {
+        if (recording) {
+            span.setAttribute(GenAiAttributes.ERROR_TYPE, CANCELLED);
+            span.addEvent("gen_ai.cancelled");
+        }
+        duration.record(elapsedSeconds(startNanos), metrics.cancelledAttributes());
+        if (liveStats != null) {
+            // Cancelled calls leave the in-flight count without skewing latency or error rate.
+            liveStats.series(invocation.profile()).cancel();
+        }
+        // not a failure for the capture policy either
+        endSpan(span, invocation, null, startNanos, recording, false);
+    }
+
+    /** {@code Executors.newVirtualThreadPerTaskExecutor()} on Java 21+, looked up reflectively; else {@code null}. */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private void recordTokenMetrics(TokenUsage usage, MetricView metrics) {
         if (usage.inputTokenCount() != null) {
-            tokenUsage.record(usage.inputTokenCount(), append(baseAttributes, ATTR_TOKEN_TYPE, "input"));
+            tokenUsage.record(usage.inputTokenCount(), metrics.tokenAttributes(true));
         }
         if (usage.outputTokenCount() != null) {
-            tokenUsage.record(usage.outputTokenCount(), append(baseAttributes, ATTR_TOKEN_TYPE, "output"));
+            tokenUsage.record(usage.outputTokenCount(), metrics.tokenAttributes(false));
         }
     }
 
-    private void recordCost(TokenUsage usage, Attributes baseAttributes) {
+    /** Records the cost of {@code usage} and returns it, or {@code 0} when cost tracking is disabled. */
+    private double recordCost(TokenUsage usage, Attributes baseAttributes) {
         LangChain4jTelemetryProperties.Cost cost = properties.getCost();
         if (!cost.isEnabled()) {
-            return;
+            return 0d;
         }
         double total = 0d;
         if (usage.inputTokenCount() != null && cost.getInputPerThousand() != null) {
@@ -208,9 +717,10 @@ public final class LangChain4jTelemetry {
         if (total > 0) {
             costHistogram.record(total, baseAttributes);
         }
+        return total;
     }
 
-    private void recordToolMetrics(Response<AiMessage> response, Attributes baseAttributes) {
+    private void recordToolMetrics(Response<AiMessage> response, MetricView metrics) {
         AiMessage message = response.content();
         if (message == null || !message.hasToolExecutionRequests()) {
             return;
@@ -220,11 +730,7 @@ public final class LangChain4jTelemetry {
             return;
         }
         for (ToolExecutionRequest request : requests) {
-            Attributes attributes = Attributes.builder()
-                    .putAll(baseAttributes)
-                    .put(ATTR_TOOL_NAME, request.name())
-                    .build();
-            toolCallCounter.add(1, attributes);
+            toolCallCounter.add(1, metrics.toolAttributes(request.name()));
         }
     }
 
@@ -237,29 +743,101 @@ public final class LangChain4jTelemetry {
         return durationNanos / 1_000_000_000d;
     }
 
-    private static Attributes append(Attributes base, AttributeKey<String> key, String value) {
-        AttributesBuilder builder = Attributes.builder();
-        builder.putAll(base);
-        builder.put(key, value);
-        return builder.build();
+    private static Map<FinishReason, List<String>> finishReasons() {
+        Map<FinishReason, List<String>> reasons = new EnumMap<>(FinishReason.class);
+        for (FinishReason reason : FinishReason.values()) {
+            reasons.put(reason, Collections.singletonList(reason.name().toLowerCase(Locale.ROOT)));
+        }
+        return reasons;
     }
 
-    private static <T> Optional<T> ofNullable(T value) {
-        return Optional.ofNullable(value);
+    /**
+     * Telemetry of one streaming call. Records time to first token, time per output token, output tokens per
+     * second and the total stream duration ({@code gen_ai.client.operation.duration}) once the stream ends.
+     */
+    public final class StreamingObservation {
+
+        private final ChatInvocationContext invocation;
+        private final Span span;
+        private final Context context;
+        private final MetricView metrics;
+        private final boolean recording;
+        private final long startNanos;
+        private final AtomicInteger chunks = new AtomicInteger();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile long firstTokenNanos;
+
+        private StreamingObservation(
+                ChatInvocationContext invocation, Span span, MetricView metrics, boolean recording, long startNanos) {
+            this.invocation = invocation;
+            this.startNanos = startNanos;
+            this.span = span != null ? span : Span.getInvalid();
+            this.context = span != null ? Context.current().with(span) : Context.current();
+            this.metrics = metrics;
+            this.recording = recording;
+        }
+
+        /** Context carrying the stream's span; make it current while invoking the delegate and callbacks. */
+        public Context context() {
+            return context;
+        }
+
+        public void onToken(String token) {
+            if (metrics == null || finished.get()) {
+                return;
+            }
+            if (chunks.getAndIncrement() == 0) {
+                firstTokenNanos = System.nanoTime();
+                if (recording) {
+                    span.addEvent("gen_ai.first_token");
+                }
+            }
+        }
+
+        public void onComplete(Response<AiMessage> response) {
+            if (metrics == null || !finished.compareAndSet(false, true)) {
+                return;
+            }
+            long endNanos = System.nanoTime();
+            recordStreamMetrics(response, endNanos);
+            finishSpanSuccessfully(span, invocation, response, metrics, startNanos, recording);
+        }
+
+        public void onError(Throwable error) {
+            if (metrics == null || !finished.compareAndSet(false, true)) {
+                return;
+            }
+            finishSpanWithError(span, invocation, error, metrics, startNanos, recording);
+        }
+
+        private void recordStreamMetrics(Response<AiMessage> response, long endNanos) {
+            int chunkCount = chunks.get();
+            if (chunkCount == 0) {
+                return;
+            }
+            long firstToken = firstTokenNanos;
+            Attributes attributes = metrics.attributes();
+            timeToFirstToken.record((firstToken - startNanos) / 1_000_000_000d, attributes);
+
+            TokenUsage usage = response != null ? response.tokenUsage() : null;
+            int outputTokens = usage != null && usage.outputTokenCount() != null ? usage.outputTokenCount() : chunkCount;
+            if (outputTokens > 1) {
+                timePerOutputToken.record((endNanos - firstToken) / 1_000_000_000d / (outputTokens - 1), attributes);
+            }
+            double streamSeconds = (endNanos - startNanos) / 1_000_000_000d;
+            if (streamSeconds > 0) {
+                outputTokensPerSecond.record(outputTokens / streamSeconds, attributes);
+            }
+        }
     }
 
     public static final class ChatInvocationContext {
 
-        private final List<ChatMessage> messages;
-        private final String model;
-        private final String system;
-        private final String operation;
-        private final Double temperature;
-        private final Double topP;
-        private final Integer maxTokens;
-        private final List<String> stopSequences;
-        private final boolean cached;
-        private final Duration timeout;
+        private final ModelProfile profile;
+        private List<ChatMessage> messages;
+        private volatile boolean shared;
+        private volatile boolean cached;
+        private ConversationTracker.Position conversation;
 
         public ChatInvocationContext(
                 LangChain4jTelemetryProperties properties,
@@ -273,94 +851,153 @@ public final class LangChain4jTelemetry {
                 List<String> stopSequences,
                 boolean cached,
                 Duration timeout) {
+            this(
+                    ModelProfile.create(
+                            properties, model, system, operation, temperature, topP, maxTokens, stopSequences, cached, timeout),
+                    messages);
+        }
+
+        public ChatInvocationContext(ModelProfile profile, List<ChatMessage> messages) {
+            this.profile = requireNonNull(profile, "profile");
             this.messages = messages != null ? messages : List.of();
-            this.model = model != null ? model : properties.getDefaultModel();
-            this.system = system != null ? system : properties.getSystem();
-            this.operation = operation != null ? operation : properties.getOperationName();
-            this.temperature = temperature != null ? temperature : properties.getTuning().getTemperature();
-            this.topP = topP != null ? topP : properties.getTuning().getTopP();
-            this.maxTokens = maxTokens != null ? maxTokens : properties.getTuning().getMaxTokens();
-            this.stopSequences = stopSequences != null ? stopSequences : properties.getTuning().getStopSequences();
-            this.cached = cached || properties.isDefaultCached();
-            this.timeout = timeout != null ? timeout : properties.getTuning().getTimeout();
+        }
+
+        public ModelProfile profile() {
+            return profile;
+        }
+
+        List<ChatMessage> messages() {
+            return messages;
+        }
+
+        /** Detaches the messages from the caller's list before they are read on another thread. */
+        void snapshotMessages() {
+            // not List.copyOf: prompt events skip null messages rather than failing the call
+            messages = Collections.unmodifiableList(new ArrayList<>(messages));
+        }
+
+        /** Marks the response as shared with another invocation, see {@link #markCoalesced}. */
+        void markShared() {
+            shared = true;
+        }
+
+        boolean isShared() {
+            return shared;
+        }
+
+        /** Marks the response as served from a cache, see {@link LangChain4jTelemetry#markCached}. */
+        void markCached() {
+            cached = true;
+        }
+
+        boolean isCached() {
+            return cached;
+        }
+
+        /** Places the call in its conversation; prompt events then skip the messages already captured. */
+        void conversation(ConversationTracker.Position position) {
+            conversation = position;
+        }
+
+        /** Records the call as the latest captured turn of its conversation, once its content was emitted. */
+        void conversationCaptured(
+                Span span, Response<AiMessage> response, LangChain4jTelemetryProperties properties) {
+            if (conversation != null) {
+                // a reply that was not emitted has to go out with the next turn's prompt
+                AiMessage reply = response != null && properties.isCaptureCompletions() ? response.content() : null;
+                conversation.end(reply, span.getSpanContext());
+            }
         }
 
         public String spanName() {
-            return operation + " " + (model != null ? model : "unknown-model");
+            return profile.spanName();
         }
 
         public Attributes toAttributes() {
-            AttributesBuilder builder = Attributes.builder()
-                    .put(ATTR_SYSTEM, system)
-                    .put(ATTR_OPERATION_NAME, operation);
-            if (model != null) {
-                builder.put(ATTR_REQUEST_MODEL, model);
-            }
-            ofNullable(temperature).ifPresent(value -> builder.put(ATTR_REQUEST_TEMPERATURE, value));
-            ofNullable(topP).ifPresent(value -> builder.put(ATTR_REQUEST_TOP_P, value));
-            ofNullable(maxTokens).ifPresent(value -> builder.put(ATTR_REQUEST_MAX_TOKENS, value.longValue()));
-            ofNullable(stopSequences).ifPresent(value -> builder.put(ATTR_REQUEST_STOP_SEQUENCES, value));
-            builder.put(ATTR_RESPONSE_CACHED, cached);
-            ofNullable(timeout)
-                    .map(Duration::toMillis)
-                    .ifPresent(value -> builder.put(AttributeKey.longKey("gen_ai.request.timeout_ms"), value));
-            return builder.build();
+            return profile.attributes();
         }
 
         public void emitPromptEvents(Span span, LangChain4jTelemetryProperties properties) {
+            emitPromptEvents(span, properties, ContentEmitter.SPAN_EVENTS, 0L);
+        }
+
+        /** Emits the prompt events at {@code epochNanos}, or at the current time when it is {@code 0}. */
+        void emitPromptEvents(
+                Span span, LangChain4jTelemetryProperties properties, ContentEmitter emitter, long epochNanos) {
             if (!properties.isCapturePrompts()) {
                 return;
             }
-            for (ChatMessage message : messages) {
+            String system = profile.system();
+            int captured = conversation != null ? conversation.capturedMessages() : 0;
+            for (ChatMessage message : captured > 0 ? messages.subList(captured, messages.size()) : messages) {
                 if (message == null) {
                     continue;
                 }
                 if (message.type() == ChatMessageType.SYSTEM) {
-                    span.addEvent(
+                    emitter.emit(
+                            span,
                             "gen_ai.system.message",
-                            Attributes.of(ATTR_SYSTEM, system, ATTR_PROMPT_TEXT, safeText(message.text())));
+                            Attributes.of(GenAiAttributes.SYSTEM, system, GenAiAttributes.PROMPT_TEXT, safeText(MessageText.of(message), emitter)),
+                            epochNanos);
                 } else if (message.type() == ChatMessageType.USER) {
                     String role = message instanceof UserMessage && ((UserMessage) message).name() != null
                             ? ((UserMessage) message).name()
                             : "user";
                     AttributesBuilder builder = Attributes.builder()
-                            .put(ATTR_SYSTEM, system)
-                            .put(ATTR_PROMPT_TEXT, safeText(message.text()))
-                            .put(AttributeKey.stringKey("role"), role);
-                    span.addEvent("gen_ai.user.message", builder.build());
+                            .put(GenAiAttributes.SYSTEM, system)
+                            .put(GenAiAttributes.PROMPT_TEXT, safeText(MessageText.of(message), emitter))
+                            .put(GenAiAttributes.ROLE, role);
+                    emitter.emit(span, "gen_ai.user.message", builder.build(), epochNanos);
                 }
             }
         }
 
         public void processResponse(Span span, Response<AiMessage> response, LangChain4jTelemetryProperties properties) {
+            processResponse(span, response, properties, ContentEmitter.SPAN_EVENTS, 0L, true);
+        }
+
+        /**
+         * Emits the response events at {@code epochNanos}, or at the current time when it is {@code 0}. Tool
+         * call events are always added; the completion text only when {@code includeContent} is set.
+         */
+        void processResponse(
+                Span span,
+                Response<AiMessage> response,
+                LangChain4jTelemetryProperties properties,
+                ContentEmitter emitter,
+                long epochNanos,
+                boolean includeContent) {
             if (response == null) {
                 return;
             }
             AiMessage content = response.content();
+            String system = profile.system();
             if (content != null) {
-                if (properties.isCaptureCompletions()) {
-                    span.addEvent(
+                if (includeContent && properties.isCaptureCompletions()) {
+                    emitter.emit(
+                            span,
                             "gen_ai.assistant.message",
-                            Attributes.of(ATTR_SYSTEM, system, ATTR_RESPONSE_TEXT, safeText(content.text())));
+                            Attributes.of(GenAiAttributes.SYSTEM, system, GenAiAttributes.RESPONSE_TEXT, safeText(content.text(), emitter)),
+                            epochNanos);
                 }
                 if (content.hasToolExecutionRequests()) {
                     for (ToolExecutionRequest request : content.toolExecutionRequests()) {
-                        span.addEvent(
+                        emitter.emit(
+                                span,
                                 "gen_ai.tool.message",
-                                Attributes.of(ATTR_SYSTEM, system, ATTR_TOOL_NAME, request.name()));
+                                Attributes.of(GenAiAttributes.SYSTEM, system, GenAiAttributes.TOOL_NAME, request.name()),
+                                epochNanos);
                     }
                 }
             }
         }
 
-        private String safeText(String text) {
-            if (text == null) {
-                return "";
-            }
-            if (text.length() > 4000) {
-                return text.substring(0, 4000) + "…";
-            }
-            return text;
+        private static String safeText(String text, ContentEmitter emitter) {
+            return ContentEmitter.truncate(text, emitter.maxTextLength());
         }
     }
+
+    /** A frequent prompt: its {@code gen_ai.prompt.fingerprint} and estimated calls in the current window. */
+    public record HotPrompt(String fingerprint, long calls) {
+    }
 }
@@ -16,14 +16,17 @@
 package com.dineshkumarkummara.otel.langchain4j;
 
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import io.opentelemetry.api.GlobalOpenTelemetry;
 import io.opentelemetry.api.OpenTelemetry;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 
 /**
  * Auto-configuration entry point allowing Spring Boot users to pick up instrumentation automatically.
@@ -37,18 +40,34 @@ public class LangChain4jTelemetryAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
     public LangChain4jTelemetry langChain4jTelemetry(
-            LangChain4jTelemetryProperties properties, ObjectProvider<OpenTelemetry> openTelemetry) {
+            LangChain4jTelemetryProperties properties,
+            ObjectProvider<OpenTelemetry> openTelemetry,
+            ObjectProvider<GenAiContentLogs> contentLogs) {
         OpenTelemetry otel = openTelemetry.getIfAvailable(OpenTelemetry::noop);
         if (otel == OpenTelemetry.noop()) {
-            return new LangChain4jTelemetry(properties);
+            otel = GlobalOpenTelemetry.get();
         }
-        return new LangChain4jTelemetry(otel, properties);
+        return new LangChain4jTelemetry(otel, contentLogs.getIfAvailable(), properties);
     }
 
     @Bean
     @ConditionalOnMissingBean
     public LangChain4jTelemetryBeanPostProcessor langChain4jTelemetryBeanPostProcessor(
-            LangChain4jTelemetry telemetry, LangChain4jTelemetryProperties properties) {
-        return new LangChain4jTelemetryBeanPostProcessor(telemetry, properties);
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            ObjectProvider<PromptEmbedder> embedder) {
+        return new LangChain4jTelemetryBeanPostProcessor(telemetry, properties, embedder);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    @ConditionalOnProperty(prefix = "otel.langchain4j.live-stats", name = "enabled", havingValue = "true")
+    static class GenAiEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public GenAiEndpoint genAiEndpoint(LangChain4jTelemetry telemetry) {
+            return GenAiEndpoint.create(telemetry);
+        }
     }
 }
@@ -17,22 +17,46 @@ package com.dineshkumarkummara.otel.langchain4j;
 
 import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import java.util.function.Supplier;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 
 /**
  * Automatically wraps LangChain4j models registered as Spring beans.
  */
-public final class LangChain4jTelemetryBeanPostProcessor implements BeanPostProcessor {
+public final class LangChain4jTelemetryBeanPostProcessor implements BeanPostProcessor, BeanFactoryAware {
 
     private final LangChain4jTelemetry telemetry;
     private final LangChain4jTelemetryProperties properties;
+    private final ObjectProvider<PromptEmbedder> embedder;
     private final LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+    private BeanFactory beanFactory;
 
     public LangChain4jTelemetryBeanPostProcessor(
             LangChain4jTelemetry telemetry, LangChain4jTelemetryProperties properties) {
+        this(telemetry, properties, null);
+    }
+
+    /**
+     * @param embedder optional {@link PromptEmbedder} bean for the semantic cache; the hashing embedder is
+     *     used when absent
+     */
+    public LangChain4jTelemetryBeanPostProcessor(
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            ObjectProvider<PromptEmbedder> embedder) {
         this.telemetry = telemetry;
         this.properties = properties;
+        this.embedder = embedder;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
     }
 
     @Override
@@ -40,12 +64,67 @@ public final class LangChain4jTelemetryBeanPostProcessor implements BeanPostProc
         if (!properties.isEnabled()) {
             return bean;
         }
-        if (bean instanceof OtelChatLanguageModel) {
+        if (bean instanceof OtelChatLanguageModel
+                || bean instanceof OtelStreamingChatLanguageModel
+                || bean instanceof RoutingChatLanguageModel) {
             return bean;
         }
         if (bean instanceof ChatLanguageModel chatModel) {
-            return OtelChatLanguageModel.wrap(chatModel, telemetry, properties, introspector);
+            ChatLanguageModel model = chatModel;
+            if (properties.getDeadline().isEnabled()) {
+                model = DeadlineChatLanguageModel.wrap(model, telemetry, properties, introspector);
+            }
+            // inside hedging and retry, so each attempt holds a slot and the limiter sees attempt latency
+            // without back-off
+            if (properties.getLimiter().isEnabled()) {
+                model = ConcurrencyLimitedChatLanguageModel.wrap(model, telemetry, properties, introspector);
+            }
+            // every attempt and hedge is charged to the quota; waiting for quota must not hold a concurrency slot
+            if (properties.getQuota().isEnabled()) {
+                model = QuotaGovernedChatLanguageModel.wrap(model, telemetry, properties, introspector);
+            }
+            if (properties.getHedging().isEnabled()) {
+                model = HedgingChatLanguageModel.wrap(
+                        model,
+                        lazyModel(properties.getHedging().getAlternateModel(), beanName),
+                        telemetry,
+                        properties,
+                        introspector);
+            }
+            if (properties.getRetry().isEnabled()) {
+                model = RetryingChatLanguageModel.wrap(model, telemetry, properties, introspector);
+            }
+            if (properties.getCircuitBreaker().isEnabled()) {
+                model = CircuitBreakingChatLanguageModel.wrap(
+                        model,
+                        lazyModel(properties.getCircuitBreaker().getFallbackModel(), beanName),
+                        telemetry,
+                        properties,
+                        introspector);
+            }
+            if (properties.getSemanticCache().isEnabled()) {
+                PromptEmbedder promptEmbedder = embedder != null ? embedder.getIfAvailable() : null;
+                model = SemanticCachingChatLanguageModel.wrap(model, promptEmbedder, telemetry, properties, introspector);
+            }
+            if (properties.getCache().isEnabled()) {
+                model = CachingChatLanguageModel.wrap(model, telemetry, properties, introspector);
+            }
+            return OtelChatLanguageModel.wrap(model, telemetry, properties, introspector);
+        }
+        if (bean instanceof StreamingChatLanguageModel streamingModel) {
+            return OtelStreamingChatLanguageModel.wrap(streamingModel, telemetry, properties, introspector);
         }
         return bean;
     }
+
+    /**
+     * Resolves another model bean (hedge target, fallback) lazily, as it may not have been created yet;
+     * {@code null} when unset or naming the bean being wrapped.
+     */
+    private Supplier<ChatLanguageModel> lazyModel(String name, String beanName) {
+        if (name == null || name.isBlank() || name.equals(beanName) || beanFactory == null) {
+            return null;
+        }
+        return () -> beanFactory.getBean(name, ChatLanguageModel.class);
+    }
 }
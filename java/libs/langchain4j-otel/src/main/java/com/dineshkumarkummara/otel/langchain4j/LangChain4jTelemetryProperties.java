@@ -15,8 +15,12 @@
  */
 package com.dineshkumarkummara.otel.langchain4j;
 
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
@@ -47,6 +51,24 @@ public class LangChain4jTelemetryProperties {
     /** Flag to mark responses as cached. */
     private boolean defaultCached;
 
+    /** Skip event and span attribute work for spans the sampler dropped; metrics are still recorded. */
+    private boolean nonRecordingFastPath = true;
+
+    /** Let concurrent identical chat requests share a single upstream call. */
+    private boolean coalesceRequests;
+
+    /**
+     * Threads running delegate calls off the caller thread, shared by the deadline and hedging decorators.
+     * Virtual threads need Java 21+; older runtimes use the bounded platform pool instead.
+     */
+    private ExecutorType executor = ExecutorType.VIRTUAL;
+
+    /**
+     * Most platform threads running delegate calls; further calls fail with
+     * {@link ConcurrencyLimitExceededException}. Does not apply to virtual threads.
+     */
+    private int executorMaxThreads = 256;
+
     /** Optional cost calculator configuration. */
     @NestedConfigurationProperty
     private Cost cost = new Cost();
@@ -55,6 +77,58 @@ public class LangChain4jTelemetryProperties {
     @NestedConfigurationProperty
     private Tuning tuning = new Tuning();
 
+    /** Shape of the exported metrics. */
+    @NestedConfigurationProperty
+    private Metrics metrics = new Metrics();
+
+    /** How captured prompts and completions are turned into span events. */
+    @NestedConfigurationProperty
+    private Capture capture = new Capture();
+
+    /** Duplicate-rate and hot-prompt statistics over prompt fingerprints. */
+    @NestedConfigurationProperty
+    private PromptAnalytics promptAnalytics = new PromptAnalytics();
+
+    /** In-process sliding-window statistics per model, also served by the {@code genai} actuator endpoint. */
+    @NestedConfigurationProperty
+    private LiveStats liveStats = new LiveStats();
+
+    /** Exact-match response cache placed in front of wrapped chat models. */
+    @NestedConfigurationProperty
+    private Cache cache = new Cache();
+
+    /** Similarity-based response cache placed in front of wrapped chat models. */
+    @NestedConfigurationProperty
+    private SemanticCache semanticCache = new SemanticCache();
+
+    /** Adaptive concurrency limit placed in front of wrapped chat models. */
+    @NestedConfigurationProperty
+    private Limiter limiter = new Limiter();
+
+    /** Client-side tokens/requests-per-minute budget kept below the provider quota. */
+    @NestedConfigurationProperty
+    private Quota quota = new Quota();
+
+    /** Second attempt for calls that are slower than usual. */
+    @NestedConfigurationProperty
+    private Hedging hedging = new Hedging();
+
+    /** Enforcement of the request timeout as a deadline. */
+    @NestedConfigurationProperty
+    private Deadline deadline = new Deadline();
+
+    /** Load balancing of {@link RoutingChatLanguageModel} groups. */
+    @NestedConfigurationProperty
+    private Router router = new Router();
+
+    /** Retries of transient failures within a traffic-proportional budget. */
+    @NestedConfigurationProperty
+    private Retry retry = new Retry();
+
+    /** Per-model circuit breaker that fails fast while a provider is unhealthy. */
+    @NestedConfigurationProperty
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -111,6 +185,38 @@ public class LangChain4jTelemetryProperties {
         this.defaultCached = defaultCached;
     }
 
+    public boolean isNonRecordingFastPath() {
+        return nonRecordingFastPath;
+    }
+
+    public void setNonRecordingFastPath(boolean nonRecordingFastPath) {
+        this.nonRecordingFastPath = nonRecordingFastPath;
+    }
+
+    public boolean isCoalesceRequests() {
+        return coalesceRequests;
+    }
+
+    public void setCoalesceRequests(boolean coalesceRequests) {
+        this.coalesceRequests = coalesceRequests;
+    }
+
+    public ExecutorType getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(ExecutorType executor) {
+        this.executor = executor;
+    }
+
+    public int getExecutorMaxThreads() {
+        return executorMaxThreads;
+    }
+
+    public void setExecutorMaxThreads(int executorMaxThreads) {
+        this.executorMaxThreads = executorMaxThreads;
+    }
+
     public Cost getCost() {
         return cost;
     }
@@ -127,6 +233,110 @@ public class LangChain4jTelemetryProperties {
         this.tuning = tuning;
     }
 
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Capture getCapture() {
+        return capture;
+    }
+
+    public void setCapture(Capture capture) {
+        this.capture = capture;
+    }
+
+    public PromptAnalytics getPromptAnalytics() {
+        return promptAnalytics;
+    }
+
+    public void setPromptAnalytics(PromptAnalytics promptAnalytics) {
+        this.promptAnalytics = promptAnalytics;
+    }
+
+    public LiveStats getLiveStats() {
+        return liveStats;
+    }
+
+    public void setLiveStats(LiveStats liveStats) {
+        this.liveStats = liveStats;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    public SemanticCache getSemanticCache() {
+        return semanticCache;
+    }
+
+    public void setSemanticCache(SemanticCache semanticCache) {
+        this.semanticCache = semanticCache;
+    }
+
+    public Limiter getLimiter() {
+        return limiter;
+    }
+
+    public void setLimiter(Limiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public Quota getQuota() {
+        return quota;
+    }
+
+    public void setQuota(Quota quota) {
+        this.quota = quota;
+    }
+
+    public Hedging getHedging() {
+        return hedging;
+    }
+
+    public void setHedging(Hedging hedging) {
+        this.hedging = hedging;
+    }
+
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    public Router getRouter() {
+        return router;
+    }
+
+    public void setRouter(Router router) {
+        this.router = router;
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    public void setRetry(Retry retry) {
+        this.retry = retry;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
     public static class Cost {
 
         /** Whether cost instrumentation is enabled. */
@@ -226,4 +436,1140 @@ public class LangChain4jTelemetryProperties {
             this.timeout = timeout;
         }
     }
+
+    public static class Metrics {
+
+        /**
+         * Span attributes that metrics also carry. Request tuning parameters are span-only by default so
+         * that tuning changes do not create new metric series.
+         */
+        private List<String> attributes = new ArrayList<>(List.of(
+                "gen_ai.system", "gen_ai.operation.name", "gen_ai.request.model"));
+
+        /** Distinct values kept per string metric attribute before folding into {@code other}; 0 disables the cap. */
+        private int cardinalityLimit = 100;
+
+        /** Bucket boundaries advice for {@code gen_ai.client.operation.duration}, in seconds. */
+        private List<Double> durationBuckets = new ArrayList<>(List.of(
+                0.01, 0.02, 0.04, 0.08, 0.16, 0.32, 0.64, 1.28, 2.56, 5.12, 10.24, 20.48, 40.96, 81.92));
+
+        /** Bucket boundaries advice for {@code gen_ai.client.token.usage}. */
+        private List<Double> tokenUsageBuckets = new ArrayList<>(List.of(
+                1d, 4d, 16d, 64d, 256d, 1024d, 4096d, 16384d, 65536d, 262144d, 1048576d, 4194304d, 16777216d, 67108864d));
+
+        /** Bucket boundaries advice for {@code gen_ai.client.operation.cost}, in the configured currency. */
+        private List<Double> costBuckets = new ArrayList<>(List.of(
+                0.00001, 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1d, 5d));
+
+        /** Bucket boundaries advice for {@code gen_ai.rag.retrieval.latency}, in milliseconds. */
+        private List<Double> ragLatencyBuckets = new ArrayList<>(List.of(
+                1d, 5d, 10d, 25d, 50d, 100d, 250d, 500d, 1000d, 2500d, 5000d, 10000d));
+
+        /** Bucket boundaries advice for {@code gen_ai.client.time_to_first_token}, in seconds. */
+        private List<Double> timeToFirstTokenBuckets = new ArrayList<>(List.of(
+                0.01, 0.02, 0.04, 0.08, 0.16, 0.32, 0.64, 1.28, 2.56, 5.12, 10.24, 20.48, 40.96, 81.92));
+
+        /** Bucket boundaries advice for {@code gen_ai.client.time_per_output_token}, in seconds. */
+        private List<Double> timePerOutputTokenBuckets = new ArrayList<>(List.of(
+                0.01, 0.025, 0.05, 0.075, 0.1, 0.15, 0.2, 0.3, 0.4, 0.5, 0.75, 1d, 2.5));
+
+        /** Bucket boundaries advice for {@code gen_ai.client.output_tokens_per_second}. */
+        private List<Double> outputTokensPerSecondBuckets = new ArrayList<>(List.of(
+                1d, 2d, 5d, 10d, 20d, 30d, 50d, 75d, 100d, 150d, 200d, 300d, 500d, 1000d));
+
+        /**
+         * Aggregation applied to the GenAI histograms by {@link GenAiMetricViews}. Explicit buckets follow the
+         * advice above; base-2 exponential histograms adapt their range to the recorded values.
+         */
+        private HistogramAggregation histogramAggregation = HistogramAggregation.EXPLICIT;
+
+        /** Maximum number of buckets of each base-2 exponential histogram. */
+        private int exponentialMaxBuckets = 160;
+
+        /** Maximum (initial) scale of each base-2 exponential histogram. */
+        private int exponentialMaxScale = 20;
+
+        public List<String> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(List<String> attributes) {
+            this.attributes = attributes;
+        }
+
+        public int getCardinalityLimit() {
+            return cardinalityLimit;
+        }
+
+        public void setCardinalityLimit(int cardinalityLimit) {
+            this.cardinalityLimit = cardinalityLimit;
+        }
+
+        public List<Double> getDurationBuckets() {
+            return durationBuckets;
+        }
+
+        public void setDurationBuckets(List<Double> durationBuckets) {
+            this.durationBuckets = durationBuckets;
+        }
+
+        public List<Double> getTokenUsageBuckets() {
+            return tokenUsageBuckets;
+        }
+
+        public void setTokenUsageBuckets(List<Double> tokenUsageBuckets) {
+            this.tokenUsageBuckets = tokenUsageBuckets;
+        }
+
+        public List<Double> getCostBuckets() {
+            return costBuckets;
+        }
+
+        public void setCostBuckets(List<Double> costBuckets) {
+            this.costBuckets = costBuckets;
+        }
+
+        public List<Double> getRagLatencyBuckets() {
+            return ragLatencyBuckets;
+        }
+
+        public void setRagLatencyBuckets(List<Double> ragLatencyBuckets) {
+            this.ragLatencyBuckets = ragLatencyBuckets;
+        }
+
+        public List<Double> getTimeToFirstTokenBuckets() {
+            return timeToFirstTokenBuckets;
+        }
+
+        public void setTimeToFirstTokenBuckets(List<Double> timeToFirstTokenBuckets) {
+            this.timeToFirstTokenBuckets = timeToFirstTokenBuckets;
+        }
+
+        public List<Double> getTimePerOutputTokenBuckets() {
+            return timePerOutputTokenBuckets;
+        }
+
+        public void setTimePerOutputTokenBuckets(List<Double> timePerOutputTokenBuckets) {
+            this.timePerOutputTokenBuckets = timePerOutputTokenBuckets;
+        }
+
+        public List<Double> getOutputTokensPerSecondBuckets() {
+            return outputTokensPerSecondBuckets;
+        }
+
+        public void setOutputTokensPerSecondBuckets(List<Double> outputTokensPerSecondBuckets) {
+            this.outputTokensPerSecondBuckets = outputTokensPerSecondBuckets;
+        }
+
+        public HistogramAggregation getHistogramAggregation() {
+            return histogramAggregation;
+        }
+
+        public void setHistogramAggregation(HistogramAggregation histogramAggregation) {
+            this.histogramAggregation = histogramAggregation;
+        }
+
+        public int getExponentialMaxBuckets() {
+            return exponentialMaxBuckets;
+        }
+
+        public void setExponentialMaxBuckets(int exponentialMaxBuckets) {
+            this.exponentialMaxBuckets = exponentialMaxBuckets;
+        }
+
+        public int getExponentialMaxScale() {
+            return exponentialMaxScale;
+        }
+
+        public void setExponentialMaxScale(int exponentialMaxScale) {
+            this.exponentialMaxScale = exponentialMaxScale;
+        }
+    }
+
+    public static class Capture {
+
+        /**
+         * {@code synchronous} builds content events on the calling thread. {@code asynchronous} only queues
+         * references; a background worker truncates the content, adds the events and ends the span.
+         */
+        private CaptureMode mode = CaptureMode.SYNCHRONOUS;
+
+        /** Capacity of the asynchronous capture queue, in invocations. */
+        private int queueCapacity = 2048;
+
+        /** What to drop when the asynchronous capture queue is full. Dropped invocations keep their span but lose content events. */
+        private DropPolicy dropPolicy = DropPolicy.DROP_OLDEST;
+
+        /**
+         * Keep prompts and completions only for calls matching one of the conditions below. The decision is
+         * made when the call ends; until then the messages are only referenced, not copied.
+         */
+        private boolean conditional;
+
+        /** Keep content of failed calls. */
+        private boolean onError = true;
+
+        /** Keep content of calls slower than this. */
+        private Duration latencyThreshold;
+
+        /** Keep content of calls using more total tokens than this. */
+        private Integer tokenThreshold;
+
+        /** Fraction of the remaining calls whose content is kept anyway, between 0 and 1. */
+        private double sampleRate;
+
+        /**
+         * Where prompts and completions go. {@code logs} emits them as log records correlated with the span
+         * through the OpenTelemetry Logs API, keeping spans small; see {@link GenAiContentLogs}.
+         */
+        private ContentDestination destination = ContentDestination.SPAN_EVENTS;
+
+        /** Batching of the content log records, used by {@link GenAiContentLogs}. */
+        @NestedConfigurationProperty
+        private ContentLogs logs = new ContentLogs();
+
+        /**
+         * Emit only the messages added since the previous turn of a conversation and link the span to that
+         * turn's span, instead of re-emitting the whole history on every call.
+         */
+        private boolean incremental;
+
+        /** Conversations remembered for incremental capture; the least recently used are forgotten. */
+        private int maxConversations = 10_000;
+
+        /** Local store for full prompts and completions; content events then only carry a reference. */
+        @NestedConfigurationProperty
+        private Spool spool = new Spool();
+
+        public CaptureMode getMode() {
+            return mode;
+        }
+
+        public void setMode(CaptureMode mode) {
+            this.mode = mode;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public DropPolicy getDropPolicy() {
+            return dropPolicy;
+        }
+
+        public void setDropPolicy(DropPolicy dropPolicy) {
+            this.dropPolicy = dropPolicy;
+        }
+
+        public boolean isConditional() {
+            return conditional;
+        }
+
+        public void setConditional(boolean conditional) {
+            this.conditional = conditional;
+        }
+
+        public boolean isOnError() {
+            return onError;
+        }
+
+        public void setOnError(boolean onError) {
+            this.onError = onError;
+        }
+
+        public Duration getLatencyThreshold() {
+            return latencyThreshold;
+        }
+
+        public void setLatencyThreshold(Duration latencyThreshold) {
+            this.latencyThreshold = latencyThreshold;
+        }
+
+        public Integer getTokenThreshold() {
+            return tokenThreshold;
+        }
+
+        public void setTokenThreshold(Integer tokenThreshold) {
+            this.tokenThreshold = tokenThreshold;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public ContentDestination getDestination() {
+            return destination;
+        }
+
+        public void setDestination(ContentDestination destination) {
+            this.destination = destination;
+        }
+
+        public ContentLogs getLogs() {
+            return logs;
+        }
+
+        public void setLogs(ContentLogs logs) {
+            this.logs = logs;
+        }
+
+        public boolean isIncremental() {
+            return incremental;
+        }
+
+        public void setIncremental(boolean incremental) {
+            this.incremental = incremental;
+        }
+
+        public int getMaxConversations() {
+            return maxConversations;
+        }
+
+        public void setMaxConversations(int maxConversations) {
+            this.maxConversations = maxConversations;
+        }
+
+        public Spool getSpool() {
+            return spool;
+        }
+
+        public void setSpool(Spool spool) {
+            this.spool = spool;
+        }
+    }
+
+    public static class ContentLogs {
+
+        /** Content records buffered before new ones are dropped. */
+        private int maxQueueSize = 2048;
+
+        /** Content records sent per export. */
+        private int maxExportBatchSize = 512;
+
+        /** Delay between two exports. */
+        private Duration scheduleDelay = Duration.ofSeconds(1);
+
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        public void setMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+        }
+
+        public int getMaxExportBatchSize() {
+            return maxExportBatchSize;
+        }
+
+        public void setMaxExportBatchSize(int maxExportBatchSize) {
+            this.maxExportBatchSize = maxExportBatchSize;
+        }
+
+        public Duration getScheduleDelay() {
+            return scheduleDelay;
+        }
+
+        public void setScheduleDelay(Duration scheduleDelay) {
+            this.scheduleDelay = scheduleDelay;
+        }
+    }
+
+    public static class PromptAnalytics {
+
+        /**
+         * Record a fingerprint of the normalized messages as {@code gen_ai.prompt.fingerprint} and report
+         * duplicate ratio, distinct prompts and the hottest prompts as metrics.
+         */
+        private boolean enabled;
+
+        /** Length of the windows over which distinct prompts and the duplicate ratio are counted. */
+        private Duration window = Duration.ofMinutes(1);
+
+        /** Number of hottest prompts tracked, see {@link LangChain4jTelemetry#hotPrompts()}. */
+        private int topK = 10;
+
+        /** Counters per row of the frequency sketch; wider sketches over-count less. */
+        private int sketchWidth = 4096;
+
+        /** HyperLogLog index bits; 12 uses 4096 registers for a standard error of about 1.6%. */
+        private int precision = 12;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public int getTopK() {
+            return topK;
+        }
+
+        public void setTopK(int topK) {
+            this.topK = topK;
+        }
+
+        public int getSketchWidth() {
+            return sketchWidth;
+        }
+
+        public void setSketchWidth(int sketchWidth) {
+            this.sketchWidth = sketchWidth;
+        }
+
+        public int getPrecision() {
+            return precision;
+        }
+
+        public void setPrecision(int precision) {
+            this.precision = precision;
+        }
+    }
+
+    public static class LiveStats {
+
+        /** Keep latency quantiles, error rate, token and cost rates and in-flight calls per model in memory. */
+        private boolean enabled;
+
+        /** Length of the sliding window. */
+        private Duration window = Duration.ofMinutes(1);
+
+        /** Time buckets the window slides by; more buckets slide more smoothly and use more memory. */
+        private int buckets = 6;
+
+        /** Relative error of the latency quantiles. */
+        private double relativeAccuracy = 0.01;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public int getBuckets() {
+            return buckets;
+        }
+
+        public void setBuckets(int buckets) {
+            this.buckets = buckets;
+        }
+
+        public double getRelativeAccuracy() {
+            return relativeAccuracy;
+        }
+
+        public void setRelativeAccuracy(double relativeAccuracy) {
+            this.relativeAccuracy = relativeAccuracy;
+        }
+    }
+
+    public static class Spool {
+
+        /**
+         * Write captured content to memory-mapped files instead of cutting it at 4000 characters; events carry
+         * {@code gen_ai.*.content.ref} and {@code gen_ai.*.content.length}, see {@link ContentSpool#read}.
+         */
+        private boolean enabled;
+
+        /**
+         * Directory of the segment files. Unset, each process gets a new directory under {@code java.io.tmpdir},
+         * readable only by its user and deleted when the telemetry is closed; see {@link ContentSpool#directory()}.
+         */
+        private Path directory;
+
+        /** Size of each segment file, in bytes. */
+        private long segmentBytes = 64L * 1024 * 1024;
+
+        /** Budget for all segment files, in bytes; the oldest segments are deleted beyond it. 0 keeps everything. */
+        private long maxBytes = 1024L * 1024 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+        public long getSegmentBytes() {
+            return segmentBytes;
+        }
+
+        public void setSegmentBytes(long segmentBytes) {
+            this.segmentBytes = segmentBytes;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    public static class Cache {
+
+        /** Serve repeated prompts from memory instead of calling the provider. */
+        private boolean enabled;
+
+        /** Maximum number of cached responses per model. */
+        private int maxEntries = 10_000;
+
+        /** Time a cached response stays valid. */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /** Budget for the estimated size of cached responses per model, in bytes; 0 disables the budget. */
+        private long maxBytes;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    public static class SemanticCache {
+
+        /** Serve responses of sufficiently similar earlier prompts. */
+        private boolean enabled;
+
+        /** Minimum cosine similarity between prompt embeddings for a hit. */
+        private double similarityThreshold = 0.92d;
+
+        /** Dimensions of the default hashing embedder. */
+        private int dimensions = 256;
+
+        /** Maximum number of remembered prompts per model. */
+        private int maxEntries = 5_000;
+
+        /** Time a cached response stays valid. */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSimilarityThreshold() {
+            return similarityThreshold;
+        }
+
+        public void setSimilarityThreshold(double similarityThreshold) {
+            this.similarityThreshold = similarityThreshold;
+        }
+
+        public int getDimensions() {
+            return dimensions;
+        }
+
+        public void setDimensions(int dimensions) {
+            this.dimensions = dimensions;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    public static class Limiter {
+
+        /** Bound concurrent calls per model with a latency-driven limit. */
+        private boolean enabled;
+
+        /** Limit before any latency has been observed. */
+        private int initialLimit = 20;
+
+        private int minLimit = 1;
+
+        private int maxLimit = 200;
+
+        /** Calls allowed to wait for a slot; further calls are rejected immediately. */
+        private int maxQueueSize = 50;
+
+        /** Longest time a call waits for a slot before it is rejected. */
+        private Duration maxQueueWait = Duration.ofSeconds(1);
+
+        /** Recent latency per output token above this multiple of its long-term average counts as congestion. */
+        private double latencyTolerance = 2.0d;
+
+        /** Factor applied to the limit on congestion or failure. */
+        private double backoffRatio = 0.9d;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        public int getMaxQueueSize() {
+            return maxQueueSize;
+        }
+
+        public void setMaxQueueSize(int maxQueueSize) {
+            this.maxQueueSize = maxQueueSize;
+        }
+
+        public Duration getMaxQueueWait() {
+            return maxQueueWait;
+        }
+
+        public void setMaxQueueWait(Duration maxQueueWait) {
+            this.maxQueueWait = maxQueueWait;
+        }
+
+        public double getLatencyTolerance() {
+            return latencyTolerance;
+        }
+
+        public void setLatencyTolerance(double latencyTolerance) {
+            this.latencyTolerance = latencyTolerance;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public void setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+        }
+    }
+
+    public static class Quota {
+
+        /** Delay or reject calls that would exceed the per-minute budget. */
+        private boolean enabled;
+
+        /** Name of the API key or account the budget belongs to; models sharing key and model name share a budget. */
+        private String key = "default";
+
+        /** Tokens per minute; {@code 0} leaves tokens unbounded. */
+        private long tokensPerMinute;
+
+        /** Requests per minute; {@code 0} leaves requests unbounded. */
+        private long requestsPerMinute;
+
+        /** Longest time a call is delayed waiting for budget before it is rejected. */
+        private Duration maxWait = Duration.ofSeconds(5);
+
+        /** Per-model overrides of the per-minute limits, keyed by model name. */
+        private Map<String, Limits> models = new LinkedHashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public long getTokensPerMinute() {
+            return tokensPerMinute;
+        }
+
+        public void setTokensPerMinute(long tokensPerMinute) {
+            this.tokensPerMinute = tokensPerMinute;
+        }
+
+        public long getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(long requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public Map<String, Limits> getModels() {
+            return models;
+        }
+
+        public void setModels(Map<String, Limits> models) {
+            this.models = models;
+        }
+
+        public static class Limits {
+
+            private long tokensPerMinute;
+
+            private long requestsPerMinute;
+
+            public long getTokensPerMinute() {
+                return tokensPerMinute;
+            }
+
+            public void setTokensPerMinute(long tokensPerMinute) {
+                this.tokensPerMinute = tokensPerMinute;
+            }
+
+            public long getRequestsPerMinute() {
+                return requestsPerMinute;
+            }
+
+            public void setRequestsPerMinute(long requestsPerMinute) {
+                this.requestsPerMinute = requestsPerMinute;
+            }
+        }
+    }
+
+    public static class Hedging {
+
+        /** Send a second attempt when the first has not answered within the hedge delay. */
+        private boolean enabled;
+
+        /** Latency quantile of recent calls used as the hedge delay. */
+        private double quantile = 0.95d;
+
+        /** Hedge delay until enough calls were observed to compute the quantile. */
+        private Duration initialDelay = Duration.ofSeconds(2);
+
+        /** Lower bound of the hedge delay. */
+        private Duration minDelay = Duration.ofMillis(50);
+
+        /** Hedges allowed per call, on average; caps the extra load sent to the provider. */
+        private double maxHedgeRatio = 0.1d;
+
+        /**
+         * Bean name of the {@code ChatLanguageModel} that receives the hedge; the same model when unset. The
+         * hedge calls that bean's provider model, bypassing its own decorators and instrumentation.
+         */
+        private String alternateModel;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getQuantile() {
+            return quantile;
+        }
+
+        public void setQuantile(double quantile) {
+            this.quantile = quantile;
+        }
+
+        public Duration getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public double getMaxHedgeRatio() {
+            return maxHedgeRatio;
+        }
+
+        public void setMaxHedgeRatio(double maxHedgeRatio) {
+            this.maxHedgeRatio = maxHedgeRatio;
+        }
+
+        public String getAlternateModel() {
+            return alternateModel;
+        }
+
+        public void setAlternateModel(String alternateModel) {
+            this.alternateModel = alternateModel;
+        }
+    }
+
+    public static class Deadline {
+
+        /** Fail calls that outlive the request timeout instead of only recording it as an attribute. */
+        private boolean enabled;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    public static class Retry {
+
+        /** Retry rate limits, 5xx responses, timeouts and I/O errors. */
+        private boolean enabled;
+
+        /** Attempts per call, including the first. */
+        private int maxAttempts = 3;
+
+        /** Backoff before the first retry; doubles per retry, with full jitter. */
+        private Duration initialBackoff = Duration.ofMillis(200);
+
+        private Duration maxBackoff = Duration.ofSeconds(10);
+
+        /** Provider retry-after hints longer than this end the retries instead of being waited out. */
+        private Duration maxRetryAfter = Duration.ofSeconds(30);
+
+        /** Retries allowed as a percentage of calls, across all models. */
+        private double budgetPercent = 20d;
+
+        /** Retries that may be spent at once before the budget has to refill. */
+        private int budgetBurst = 10;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+
+        public Duration getMaxRetryAfter() {
+            return maxRetryAfter;
+        }
+
+        public void setMaxRetryAfter(Duration maxRetryAfter) {
+            this.maxRetryAfter = maxRetryAfter;
+        }
+
+        public double getBudgetPercent() {
+            return budgetPercent;
+        }
+
+        public void setBudgetPercent(double budgetPercent) {
+            this.budgetPercent = budgetPercent;
+        }
+
+        public int getBudgetBurst() {
+            return budgetBurst;
+        }
+
+        public void setBudgetBurst(int budgetBurst) {
+            this.budgetBurst = budgetBurst;
+        }
+    }
+
+    public static class CircuitBreaker {
+
+        /** Open the breaker when recent calls fail or run slow too often. */
+        private boolean enabled;
+
+        /** Number of recent calls the rates are computed over. */
+        private int windowSize = 100;
+
+        /** Calls needed in the window before the breaker may open. */
+        private int minimumCalls = 20;
+
+        /** Failure rate, in percent, that opens the breaker. */
+        private double failureRateThreshold = 50d;
+
+        /** Slow-call rate, in percent, that opens the breaker. */
+        private double slowCallRateThreshold = 80d;
+
+        /** Calls taking at least this long count as slow. */
+        private Duration slowCallDuration = Duration.ofSeconds(30);
+
+        /** How long the breaker stays open before probing the provider again. */
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        /** Probe calls let through while half-open. */
+        private int halfOpenCalls = 5;
+
+        /**
+         * Bean name of the {@code ChatLanguageModel} answering while the breaker is open; fail fast when unset.
+         * The breaker calls that bean's provider model, bypassing its own decorators and instrumentation.
+         */
+        private String fallbackModel;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        public int getMinimumCalls() {
+            return minimumCalls;
+        }
+
+        public void setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+
+        public double getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(double failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public double getSlowCallRateThreshold() {
+            return slowCallRateThreshold;
+        }
+
+        public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+        }
+
+        public Duration getSlowCallDuration() {
+            return slowCallDuration;
+        }
+
+        public void setSlowCallDuration(Duration slowCallDuration) {
+            this.slowCallDuration = slowCallDuration;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+
+        public int getHalfOpenCalls() {
+            return halfOpenCalls;
+        }
+
+        public void setHalfOpenCalls(int halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+        }
+
+        public String getFallbackModel() {
+            return fallbackModel;
+        }
+
+        public void setFallbackModel(String fallbackModel) {
+            this.fallbackModel = fallbackModel;
+        }
+    }
+
+    public static class Router {
+
+        /** Weight of the newest call in the EWMA latency and error rate of a backend. */
+        private double ewmaAlpha = 0.3d;
+
+        /** Failures in a row after which a backend is ejected. */
+        private int consecutiveFailures = 5;
+
+        /** How long an ejected backend receives no calls. */
+        private Duration ejectionTime = Duration.ofSeconds(30);
+
+        /** Share of a group's backends that may be ejected at the same time. */
+        private int maxEjectionPercent = 50;
+
+        public double getEwmaAlpha() {
+            return ewmaAlpha;
+        }
+
+        public void setEwmaAlpha(double ewmaAlpha) {
+            this.ewmaAlpha = ewmaAlpha;
+        }
+
+        public int getConsecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        public void setConsecutiveFailures(int consecutiveFailures) {
+            this.consecutiveFailures = consecutiveFailures;
+        }
+
+        public Duration getEjectionTime() {
+            return ejectionTime;
+        }
+
+        public void setEjectionTime(Duration ejectionTime) {
+            this.ejectionTime = ejectionTime;
+        }
+
+        public int getMaxEjectionPercent() {
+            return maxEjectionPercent;
+        }
+
+        public void setMaxEjectionPercent(int maxEjectionPercent) {
+            this.maxEjectionPercent = maxEjectionPercent;
+        }
+    }
+
+    public enum ExecutorType {
+        /** One virtual thread per call; requires Java 21+ and falls back to {@link #PLATFORM} on older runtimes. */
+        VIRTUAL,
+        /** Pool of at most {@code executor-max-threads} daemon platform threads. */
+        PLATFORM
+    }
+
+    public enum HistogramAggregation {
+        EXPLICIT,
+        BASE2_EXPONENTIAL
+    }
+
+    public enum CaptureMode {
+        SYNCHRONOUS,
+        ASYNCHRONOUS
+    }
+
+    public enum ContentDestination {
+        SPAN_EVENTS,
+        LOGS
+    }
+
+    public enum DropPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST
+    }
 }
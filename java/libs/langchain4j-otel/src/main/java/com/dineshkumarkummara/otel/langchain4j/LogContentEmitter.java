@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.logs.LogRecordBuilder;
+import io.opentelemetry.api.logs.Logger;
+import io.opentelemetry.api.logs.Severity;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emits GenAI content events as log records, following the event flavour of the GenAI semantic conventions:
+ * the event name goes into {@code event.name}, the message text into the body and the remaining attributes
+ * stay attributes. Records carry the span's context, so backends correlate them by trace and span ID while
+ * the span itself stays small.
+ */
+final class LogContentEmitter implements ContentEmitter {
+
+    static final String SCOPE_NAME = "otel-genai-bridges/langchain4j";
+    static final AttributeKey<String> EVENT_NAME = AttributeKey.stringKey("event.name");
+
+    private final Logger logger;
+
+    LogContentEmitter(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void emit(Span span, String name, Attributes attributes, long epochNanos) {
+        LogRecordBuilder builder = logger.logRecordBuilder()
+                .setContext(Context.root().with(span))
+                .setSeverity(Severity.INFO)
+                .setAttribute(EVENT_NAME, name);
+        if (epochNanos != 0L) {
+            builder.setTimestamp(epochNanos, TimeUnit.NANOSECONDS);
+        }
+        String body = attributes.get(GenAiAttributes.PROMPT_TEXT);
+        if (body == null) {
+            body = attributes.get(GenAiAttributes.RESPONSE_TEXT);
+        }
+        if (body != null) {
+            builder.setBody(body);
+            AttributesBuilder remaining = attributes.toBuilder();
+            remaining.remove(GenAiAttributes.PROMPT_TEXT);
+            remaining.remove(GenAiAttributes.RESPONSE_TEXT);
+            attributes = remaining.build();
+        }
+        builder.setAllAttributes(attributes).emit();
+    }
+}
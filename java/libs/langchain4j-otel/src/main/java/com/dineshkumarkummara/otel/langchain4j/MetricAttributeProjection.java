@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.CardinalityLimiter;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.AttributeType;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which span attributes metrics carry and caps the distinct values of each string attribute,
+ * folding overflow values into {@value CardinalityLimiter#OVERFLOW_VALUE}.
+ */
+final class MetricAttributeProjection {
+
+    private final Set<String> allowedKeys;
+    private final int cardinalityLimit;
+    private final Map<String, CardinalityLimiter> limiters = new ConcurrentHashMap<>();
+
+    MetricAttributeProjection(LangChain4jTelemetryProperties.Metrics metrics) {
+        List<String> attributes = metrics.getAttributes();
+        this.allowedKeys = attributes != null ? Set.copyOf(attributes) : Set.of();
+        this.cardinalityLimit = metrics.getCardinalityLimit();
+    }
+
+    /** Keeps only the configured keys, applying the per-attribute cardinality cap to string values. */
+    Attributes project(Attributes attributes) {
+        AttributesBuilder builder = Attributes.builder();
+        attributes.forEach((key, value) -> {
+            if (!allowedKeys.contains(key.getKey())) {
+                return;
+            }
+            if (key.getType() == AttributeType.STRING) {
+                builder.put(key.getKey(), limit(key.getKey(), (String) value));
+            } else {
+                put(builder, key, value);
+            }
+        });
+        return builder.build();
+    }
+
+    /** Applies the cardinality cap to a metric-only attribute such as {@code tool.name}. */
+    String limit(AttributeKey<String> key, String value) {
+        return limit(key.getKey(), value);
+    }
+
+    private String limit(String key, String value) {
+        if (cardinalityLimit <= 0) {
+            return value;
+        }
+        return limiters.computeIfAbsent(key, ignored -> new CardinalityLimiter(cardinalityLimit)).limit(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(AttributesBuilder builder, AttributeKey<?> key, Object value) {
+        builder.put((AttributeKey<Object>) key, value);
+    }
+}
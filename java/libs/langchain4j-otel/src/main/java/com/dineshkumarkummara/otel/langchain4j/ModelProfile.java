@@ -0,0 +1,238 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector.ModelMetadata;
+import com.dineshkumarkummara.otel.langchain4j.internal.PromptFingerprint;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.ChatMessage;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable telemetry shape of a wrapped model: resolved request parameters, the span name and every
+ * attribute set the hot path needs, built once so individual calls do not allocate attribute builders.
+ */
+public final class ModelProfile {
+
+    private static final int MAX_TOOL_VARIANTS = 128;
+
+    private final String system;
+    private final String model;
+    private final String operation;
+    private final Double temperature;
+    private final Double topP;
+    private final Integer maxTokens;
+    private final List<String> stopSequences;
+    private final boolean cached;
+    private final Duration timeout;
+    private final String spanName;
+    private final Attributes attributes;
+    private final long fingerprintSeed;
+    private volatile MetricView metricView;
+
+    private ModelProfile(
+            LangChain4jTelemetryProperties properties,
+            String model,
+            String system,
+            String operation,
+            Double temperature,
+            Double topP,
+            Integer maxTokens,
+            List<String> stopSequences,
+            boolean cached,
+            Duration timeout) {
+        this.model = model != null ? model : properties.getDefaultModel();
+        this.system = system != null ? system : properties.getSystem();
+        this.operation = operation != null ? operation : properties.getOperationName();
+        this.temperature = temperature != null ? temperature : properties.getTuning().getTemperature();
+        this.topP = topP != null ? topP : properties.getTuning().getTopP();
+        this.maxTokens = maxTokens != null ? maxTokens : properties.getTuning().getMaxTokens();
+        this.stopSequences = stopSequences != null ? stopSequences : properties.getTuning().getStopSequences();
+        this.cached = cached || properties.isDefaultCached();
+        this.timeout = timeout != null ? timeout : properties.getTuning().getTimeout();
+        this.spanName = this.operation + " " + (this.model != null ? this.model : "unknown-model");
+        this.attributes = buildAttributes();
+        // Request parameters seed every prompt fingerprint, so differently tuned models never share results.
+        this.fingerprintSeed = PromptFingerprint.hasher(0L).putString(attributes.toString()).finish().low();
+    }
+
+    public static ModelProfile create(
+            LangChain4jTelemetryProperties properties,
+            String model,
+            String system,
+            String operation,
+            Double temperature,
+            Double topP,
+            Integer maxTokens,
+            List<String> stopSequences,
+            boolean cached,
+            Duration timeout) {
+        return new ModelProfile(
+                properties, model, system, operation, temperature, topP, maxTokens, stopSequences, cached, timeout);
+    }
+
+    public static ModelProfile from(LangChain4jTelemetryProperties properties, ModelMetadata metadata) {
+        return new ModelProfile(
+                properties,
+                metadata.model(),
+                metadata.system(),
+                properties.getOperationName(),
+                metadata.temperature(),
+                metadata.topP(),
+                metadata.maxTokens(),
+                metadata.stopSequences(),
+                Boolean.TRUE.equals(metadata.cached()),
+                metadata.timeout());
+    }
+
+    public String system() {
+        return system;
+    }
+
+    public String model() {
+        return model;
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    public Duration timeout() {
+        return timeout;
+    }
+
+    public String spanName() {
+        return spanName;
+    }
+
+    /** Attributes set on the span of every invocation. */
+    public Attributes attributes() {
+        return attributes;
+    }
+
+    /** Seed of {@link #fingerprint}, derived from the request parameters. */
+    long fingerprintSeed() {
+        return fingerprintSeed;
+    }
+
+    /** Fingerprint of a request to this model: normalized messages, tool specifications and request parameters. */
+    PromptFingerprint fingerprint(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        PromptFingerprint.Hasher hasher = PromptFingerprint.hasher(fingerprintSeed).putMessages(messages);
+        if (toolSpecifications != null) {
+            for (ToolSpecification specification : toolSpecifications) {
+                hasher.putString(String.valueOf(specification));
+            }
+        }
+        return hasher.finish();
+    }
+
+    /** Metric attribute sets derived from {@link #attributes()}, built once per projection. */
+    MetricView metrics(MetricAttributeProjection projection) {
+        MetricView view = metricView;
+        if (view == null || view.projection != projection) {
+            view = new MetricView(projection, projection.project(attributes));
+            metricView = view;
+        }
+        return view;
+    }
+
+    private Attributes buildAttributes() {
+        AttributesBuilder builder = Attributes.builder()
+                .put(GenAiAttributes.SYSTEM, system)
+                .put(GenAiAttributes.OPERATION_NAME, operation);
+        if (model != null) {
+            builder.put(GenAiAttributes.REQUEST_MODEL, model);
+        }
+        if (temperature != null) {
+            builder.put(GenAiAttributes.REQUEST_TEMPERATURE, temperature);
+        }
+        if (topP != null) {
+            builder.put(GenAiAttributes.REQUEST_TOP_P, topP);
+        }
+        if (maxTokens != null) {
+            builder.put(GenAiAttributes.REQUEST_MAX_TOKENS, maxTokens.longValue());
+        }
+        if (stopSequences != null) {
+            builder.put(GenAiAttributes.REQUEST_STOP_SEQUENCES, stopSequences);
+        }
+        builder.put(GenAiAttributes.RESPONSE_CACHED, cached);
+        if (timeout != null) {
+            builder.put(GenAiAttributes.REQUEST_TIMEOUT_MS, timeout.toMillis());
+        }
+        return builder.build();
+    }
+
+    /** Precomputed metric attribute variants of a profile. */
+    static final class MetricView {
+
+        private final MetricAttributeProjection projection;
+        private final Attributes attributes;
+        private final Attributes inputTokenAttributes;
+        private final Attributes outputTokenAttributes;
+        private final Attributes cancelledAttributes;
+        private final Attributes timeoutAttributes;
+        private final Map<String, Attributes> toolAttributes = new ConcurrentHashMap<>();
+
+        private MetricView(MetricAttributeProjection projection, Attributes attributes) {
+            this.projection = projection;
+            this.attributes = attributes;
+            this.inputTokenAttributes = attributes.toBuilder().put(GenAiAttributes.TOKEN_TYPE, "input").build();
+            this.outputTokenAttributes = attributes.toBuilder().put(GenAiAttributes.TOKEN_TYPE, "output").build();
+            this.cancelledAttributes = attributes.toBuilder()
+                    .put(GenAiAttributes.ERROR_TYPE, LangChain4jTelemetry.CANCELLED)
+                    .build();
+            this.timeoutAttributes = attributes.toBuilder()
+                    .put(GenAiAttributes.ERROR_TYPE, LangChain4jTelemetry.TIMEOUT)
+                    .build();
+        }
+
+        Attributes attributes() {
+            return attributes;
+        }
+
+        Attributes tokenAttributes(boolean input) {
+            return input ? inputTokenAttributes : outputTokenAttributes;
+        }
+
+        Attributes cancelledAttributes() {
+            return cancelledAttributes;
+        }
+
+        Attributes timeoutAttributes() {
+            return timeoutAttributes;
+        }
+
+        Attributes toolAttributes(String toolName) {
+            String name = toolName != null ? toolName : "";
+            Attributes cachedVariant = toolAttributes.get(name);
+            if (cachedVariant != null) {
+                return cachedVariant;
+            }
+            Attributes variant = attributes.toBuilder()
+                    .put(GenAiAttributes.TOOL_NAME, projection.limit(GenAiAttributes.TOOL_NAME, name))
+                    .build();
+            if (toolAttributes.size() < MAX_TOOL_VARIANTS) {
+                toolAttributes.putIfAbsent(name, variant);
+            }
+            return variant;
+        }
+    }
+}
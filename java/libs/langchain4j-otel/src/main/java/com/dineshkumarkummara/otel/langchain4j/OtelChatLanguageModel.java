@@ -16,23 +16,43 @@
 package com.dineshkumarkummara.otel.langchain4j;
 
 import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
-import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector.ModelMetadata;
+import com.dineshkumarkummara.otel.langchain4j.internal.PromptFingerprint;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 import dev.langchain4j.model.output.Response;
 import dev.langchain4j.data.message.AiMessage;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * ChatLanguageModel decorator that emits OpenTelemetry signals.
  */
-public final class OtelChatLanguageModel implements ChatLanguageModel {
+public final class OtelChatLanguageModel implements ChatLanguageModel, ChatModelDecorator {
 
     private final ChatLanguageModel delegate;
     private final LangChain4jTelemetry telemetry;
     private final LangChain4jTelemetryProperties properties;
     private final LangChain4jModelIntrospector introspector;
+    private final Map<PromptFingerprint, InFlight> inFlight = new ConcurrentHashMap<>();
+    private volatile ModelProfile profile;
 
     private OtelChatLanguageModel(
             ChatLanguageModel delegate,
@@ -43,6 +63,7 @@ public final class OtelChatLanguageModel implements ChatLanguageModel {
         this.telemetry = telemetry;
         this.properties = properties;
         this.introspector = introspector;
+        this.profile = ModelProfile.from(properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
     }
 
     public static ChatLanguageModel wrap(
@@ -59,34 +80,187 @@ public final class OtelChatLanguageModel implements ChatLanguageModel {
     @Override
     public Response<AiMessage> generate(List<ChatMessage> messages) {
         LangChain4jTelemetry.ChatInvocationContext context = buildContext(messages);
-        return telemetry.instrumentChat(context, () -> delegate.generate(messages));
+        return telemetry.instrumentChat(context, coalesced(context, null, () -> delegate.generate(messages)));
     }
 
     @Override
     public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
         LangChain4jTelemetry.ChatInvocationContext context = buildContext(messages);
-        return telemetry.instrumentChat(context, () -> delegate.generate(messages, toolSpecifications));
+        return telemetry.instrumentChat(
+                context, coalesced(context, toolSpecifications, () -> delegate.generate(messages, toolSpecifications)));
     }
 
     @Override
     public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
         LangChain4jTelemetry.ChatInvocationContext context = buildContext(messages);
-        return telemetry.instrumentChat(context, () -> delegate.generate(messages, toolSpecification));
+        return telemetry.instrumentChat(
+                context,
+                coalesced(
+                        context,
+                        Collections.singletonList(toolSpecification),
+                        () -> delegate.generate(messages, toolSpecification)));
+    }
+
+    /**
+     * Runs the delegate on {@code executor} with the caller's OpenTelemetry context. The span covers the call
+     * including any queueing on the executor and ends when the returned future completes; cancelling the
+     * future interrupts the call, and an executor rejecting the task fails it. Pass a virtual-thread-per-task
+     * executor to fan out many calls without tying up platform threads.
+     */
+    public CompletableFuture<Response<AiMessage>> generateAsync(List<ChatMessage> messages, Executor executor) {
+        return async(messages, executor, () -> delegate.generate(messages));
+    }
+
+    /** Asynchronous {@link #generate(List, List)}, see {@link #generateAsync(List, Executor)}. */
+    public CompletableFuture<Response<AiMessage>> generateAsync(
+            List<ChatMessage> messages, List<ToolSpecification> toolSpecifications, Executor executor) {
+        return async(messages, executor, () -> delegate.generate(messages, toolSpecifications));
+    }
+
+    /** Asynchronous {@link #generate(List, ToolSpecification)}, see {@link #generateAsync(List, Executor)}. */
+    public CompletableFuture<Response<AiMessage>> generateAsync(
+            List<ChatMessage> messages, ToolSpecification toolSpecification, Executor executor) {
+        return async(messages, executor, () -> delegate.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    /**
+     * Re-reads the delegate's model metadata. Call this after reconfiguring the delegate at runtime; the
+     * snapshot taken at wrap time is used otherwise.
+     */
+    public void refreshMetadata() {
+        Object model = ChatModelDecorator.innermost(delegate);
+        introspector.invalidate(model.getClass());
+        this.profile = ModelProfile.from(properties, introspector.introspect(model));
+    }
+
+    /**
+     * With {@code otel.langchain4j.coalesce-requests} enabled, concurrent identical requests share a single
+     * upstream call: the first caller leads, later callers wait for its response and link their span to the
+     * leader's.
+     */
+    private Supplier<Response<AiMessage>> coalesced(
+            LangChain4jTelemetry.ChatInvocationContext context,
+            List<ToolSpecification> toolSpecifications,
+            Supplier<Response<AiMessage>> call) {
+        if (!properties.isCoalesceRequests()) {
+            return call;
+        }
+        return () -> {
+            PromptFingerprint key = context.profile().fingerprint(context.messages(), toolSpecifications);
+            InFlight flight = new InFlight(Span.current().getSpanContext());
+            InFlight leader = inFlight.putIfAbsent(key, flight);
+            if (leader != null) {
+                telemetry.markCoalesced(context, leader.spanContext);
+                return leader.await(followerTimeout(context.profile()));
+            }
+            try {
+                Response<AiMessage> response = call.get();
+                flight.result.complete(response);
+                return response;
+            } catch (Throwable ex) {
+                // Followers block on the result; it must complete whatever the leader throws.
+                flight.result.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        };
+    }
+
+    private CompletableFuture<Response<AiMessage>> async(
+            List<ChatMessage> messages, Executor executor, Callable<Response<AiMessage>> call) {
+        LangChain4jTelemetry.ChatInvocationContext context = buildContext(messages);
+        Executor contextExecutor = Context.taskWrapping(executor);
+        return telemetry.instrumentChatAsync(context, () -> {
+            FutureTask<Response<AiMessage>> task = new FutureTask<>(call);
+            CompletableFuture<Response<AiMessage>> future = new CompletableFuture<>() {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    task.cancel(mayInterruptIfRunning);
+                    return super.cancel(mayInterruptIfRunning);
+                }
+            };
+            try {
+                contextExecutor.execute(() -> {
+                    task.run();
+                    try {
+                        future.complete(task.get());
+                    } catch (ExecutionException ex) {
+                        future.completeExceptionally(ex.getCause());
+                    } catch (CancellationException ex) {
+                        future.cancel(false);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        future.completeExceptionally(ex);
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                // async callers get every failure through the returned future
+                future.completeExceptionally(ex);
+            }
+            return future;
+        });
+    }
+
+    /**
+     * How long a follower waits for its leader: the time left before a deadline in the context, bounded by
+     * the request timeout when {@code deadline.enabled}; {@code null} to wait for as long as the leader runs.
+     */
+    private Duration followerTimeout(ModelProfile profile) {
+        long remaining = DeadlineChatLanguageModel.remainingNanos(Context.current());
+        Duration timeout = profile.timeout();
+        if (properties.getDeadline().isEnabled() && timeout != null && !timeout.isZero() && !timeout.isNegative()) {
+            remaining = Math.min(remaining, timeout.toNanos());
+        }
+        return remaining == Long.MAX_VALUE ? null : Duration.ofNanos(Math.max(0L, remaining));
     }
 
     private LangChain4jTelemetry.ChatInvocationContext buildContext(List<ChatMessage> messages) {
-        ModelMetadata metadata = introspector.introspect(delegate);
-        return new LangChain4jTelemetry.ChatInvocationContext(
-                properties,
-                messages,
-                metadata.model(),
-                metadata.system(),
-                properties.getOperationName(),
-                metadata.temperature(),
-                metadata.topP(),
-                metadata.maxTokens(),
-                metadata.stopSequences(),
-                Boolean.TRUE.equals(metadata.cached()),
-                metadata.timeout());
+        return new LangChain4jTelemetry.ChatInvocationContext(profile, messages);
+    }
+
+    private static final class InFlight {
+
+        private final SpanContext spanContext;
+        private final CompletableFuture<Response<AiMessage>> result = new CompletableFuture<>();
+
+        private InFlight(SpanContext spanContext) {
+            this.spanContext = spanContext;
+        }
+
+        /**
+         * Waits for the leader's response, at most {@code timeout} when it is not {@code null}. A failed leader's
+         * exception is rethrown to every follower as is, so callers and error classification see its own type.
+         */
+        private Response<AiMessage> await(Duration timeout) {
+            try {
+                return timeout != null ? result.get(timeout.toNanos(), TimeUnit.NANOSECONDS) : result.get();
+            } catch (ExecutionException ex) {
+                throw rethrow(ex.getCause());
+            } catch (TimeoutException ex) {
+                throw new ChatTimeoutException(timeout);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                CancellationException cancelled =
+                        new CancellationException("Interrupted while waiting for the coalesced chat response");
+                cancelled.initCause(ex);
+                throw cancelled;
+            }
+        }
+
+        private static RuntimeException rethrow(Throwable failure) {
+            if (failure instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (failure instanceof Error error) {
+                throw error;
+            }
+            return new CompletionException(failure);
+        }
     }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.context.Scope;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * StreamingChatLanguageModel decorator that emits OpenTelemetry signals. The span stays open until the
+ * delegate reports completion or an error, and streaming latency metrics are derived from the callbacks.
+ */
+public final class OtelStreamingChatLanguageModel implements StreamingChatLanguageModel, ChatModelDecorator {
+
+    private final StreamingChatLanguageModel delegate;
+    private final LangChain4jTelemetry telemetry;
+    private final LangChain4jTelemetryProperties properties;
+    private final LangChain4jModelIntrospector introspector;
+    private volatile ModelProfile profile;
+
+    private OtelStreamingChatLanguageModel(
+            StreamingChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        this.delegate = delegate;
+        this.telemetry = telemetry;
+        this.properties = properties;
+        this.introspector = introspector;
+        this.profile = ModelProfile.from(properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
+    }
+
+    public static StreamingChatLanguageModel wrap(
+            StreamingChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        if (delegate instanceof OtelStreamingChatLanguageModel) {
+            return delegate;
+        }
+        return new OtelStreamingChatLanguageModel(delegate, telemetry, properties, introspector);
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        stream(messages, handler, instrumented -> delegate.generate(messages, instrumented));
+    }
+
+    @Override
+    public void generate(
+            List<ChatMessage> messages,
+            List<ToolSpecification> toolSpecifications,
+            StreamingResponseHandler<AiMessage> handler) {
+        stream(messages, handler, instrumented -> delegate.generate(messages, toolSpecifications, instrumented));
+    }
+
+    @Override
+    public void generate(
+            List<ChatMessage> messages,
+            ToolSpecification toolSpecification,
+            StreamingResponseHandler<AiMessage> handler) {
+        stream(messages, handler, instrumented -> delegate.generate(messages, toolSpecification, instrumented));
+    }
+
+    @Override
+    public StreamingChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    /**
+     * Re-reads the delegate's model metadata. Call this after reconfiguring the delegate at runtime; the
+     * snapshot taken at wrap time is used otherwise.
+     */
+    public void refreshMetadata() {
+        Object model = ChatModelDecorator.innermost(delegate);
+        introspector.invalidate(model.getClass());
+        this.profile = ModelProfile.from(properties, introspector.introspect(model));
+    }
+
+    private void stream(
+            List<ChatMessage> messages,
+            StreamingResponseHandler<AiMessage> handler,
+            Consumer<StreamingResponseHandler<AiMessage>> invocation) {
+        if (!properties.isEnabled()) {
+            invocation.accept(handler);
+            return;
+        }
+        LangChain4jTelemetry.StreamingObservation observation =
+                telemetry.startStreaming(new LangChain4jTelemetry.ChatInvocationContext(profile, messages));
+        try (Scope ignored = observation.context().makeCurrent()) {
+            invocation.accept(new InstrumentedHandler(handler, observation));
+        } catch (RuntimeException ex) {
+            observation.onError(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Forwards callbacks to the caller's handler with the stream's span current. Telemetry failures are
+     * swallowed so the caller's handler always runs, and the span ends only after the terminal callback
+     * returned, so spans the caller creates there are parented to a live span.
+     */
+    private static final class InstrumentedHandler implements StreamingResponseHandler<AiMessage> {
+
+        private final StreamingResponseHandler<AiMessage> delegate;
+        private final LangChain4jTelemetry.StreamingObservation observation;
+
+        private InstrumentedHandler(
+                StreamingResponseHandler<AiMessage> delegate, LangChain4jTelemetry.StreamingObservation observation) {
+            this.delegate = delegate;
+            this.observation = observation;
+        }
+
+        @Override
+        public void onNext(String token) {
+            try {
+                observation.onToken(token);
+            } catch (RuntimeException ignored) {
+                // telemetry must never break the stream
+            } finally {
+                try (Scope ignored = observation.context().makeCurrent()) {
+                    delegate.onNext(token);
+                }
+            }
+        }
+
+        @Override
+        public void onComplete(Response<AiMessage> response) {
+            try (Scope ignored = observation.context().makeCurrent()) {
+                delegate.onComplete(response);
+            } finally {
+                try {
+                    observation.onComplete(response);
+                } catch (RuntimeException ignored) {
+                    // telemetry must never break the stream
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            try (Scope ignored = observation.context().makeCurrent()) {
+                delegate.onError(error);
+            } finally {
+                try {
+                    observation.onError(error);
+                } catch (RuntimeException ignored) {
+                    // telemetry must never break the stream
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.CountMinSketch;
+import com.dineshkumarkummara.otel.langchain4j.internal.HyperLogLog;
+import com.dineshkumarkummara.otel.langchain4j.internal.PromptFingerprint;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleGauge;
+import io.opentelemetry.api.metrics.ObservableLongGauge;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded-memory statistics of prompt fingerprints, telling how much a response cache or request coalescing
+ * would save before enabling either. A HyperLogLog counts distinct prompts per tumbling window; a count-min
+ * sketch estimates how often each prompt was seen and feeds a small heavy-hitters table of the hottest
+ * prompts, listed by {@link LangChain4jTelemetry#hotPrompts()} rather than as metric series. Windows roll on
+ * the first call or collection after they end; the sketch is halved at each roll so the hot prompts follow
+ * recent traffic.
+ */
+final class PromptAnalytics {
+
+    static final String METRIC_DUPLICATES = "gen_ai.client.prompt.duplicates";
+    static final String METRIC_DISTINCT = "gen_ai.client.prompt.distinct";
+    static final String METRIC_DUPLICATE_RATIO = "gen_ai.client.prompt.duplicate_ratio";
+    static final String METRIC_HOT = "gen_ai.client.prompt.hot";
+
+    private final long windowNanos;
+    private final int topK;
+    private final CountMinSketch sketch;
+    private final HyperLogLog distinct;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong windowStart;
+    private final Map<PromptFingerprint, Integer> hot = new HashMap<>();
+    private volatile int hotThreshold;
+    private final LongCounter duplicates;
+    private final ObservableLongGauge distinctGauge;
+    private final ObservableDoubleGauge duplicateRatioGauge;
+    private final ObservableLongGauge hotGauge;
+
+    PromptAnalytics(LangChain4jTelemetryProperties.PromptAnalytics config, Meter meter) {
+        this.windowNanos = config.getWindow().toNanos();
+        this.topK = config.getTopK();
+        this.sketch = new CountMinSketch(config.getSketchWidth(), 4, Integer.MAX_VALUE, 0L);
+        this.distinct = new HyperLogLog(config.getPrecision());
+        this.windowStart = new AtomicLong(System.nanoTime());
+        this.duplicates = meter.counterBuilder(METRIC_DUPLICATES).setUnit("{request}").build();
+        this.distinctGauge = meter.gaugeBuilder(METRIC_DISTINCT)
+                .ofLongs()
+                .setUnit("{prompt}")
+                .buildWithCallback(measurement -> {
+                    roll(System.nanoTime());
+                    measurement.record(distinct.estimate());
+                });
+        this.duplicateRatioGauge = meter.gaugeBuilder(METRIC_DUPLICATE_RATIO)
+                .setUnit("1")
+                .buildWithCallback(measurement -> {
+                    roll(System.nanoTime());
+                    long total = calls.get();
+                    if (total > 0) {
+                        measurement.record(Math.max(0d, 1d - (double) distinct.estimate() / total));
+                    }
+                });
+        // one series: fingerprints are unbounded, so the hot prompts themselves are listed by hotPrompts()
+        this.hotGauge = meter.gaugeBuilder(METRIC_HOT)
+                .ofLongs()
+                .setUnit("{request}")
+                .buildWithCallback(measurement -> {
+                    List<LangChain4jTelemetry.HotPrompt> hottest = hotPrompts();
+                    if (!hottest.isEmpty()) {
+                        measurement.record(hottest.get(0).calls());
+                    }
+                });
+    }
+
+    /** Unregisters the gauges. */
+    void close() {
+        distinctGauge.close();
+        duplicateRatioGauge.close();
+        hotGauge.close();
+    }
+
+    /** Counts one call with prompt {@code fingerprint}. */
+    void record(PromptFingerprint fingerprint, Attributes metricAttributes) {
+        roll(System.nanoTime());
+        calls.incrementAndGet();
+        distinct.add(fingerprint.high());
+        int seen = sketch.increment(fingerprint.low());
+        if (seen > 1) {
+            duplicates.add(1, metricAttributes);
+        }
+        if (seen > hotThreshold) {
+            offerHot(fingerprint, seen);
+        }
+    }
+
+    private synchronized void offerHot(PromptFingerprint fingerprint, int seen) {
+        if (hot.containsKey(fingerprint) || hot.size() < topK) {
+            hot.put(fingerprint, seen);
+        } else {
+            PromptFingerprint coldest = null;
+            int coldestCount = Integer.MAX_VALUE;
+            for (Map.Entry<PromptFingerprint, Integer> entry : hot.entrySet()) {
+                if (entry.getValue() < coldestCount) {
+                    coldest = entry.getKey();
+                    coldestCount = entry.getValue();
+                }
+            }
+            if (seen <= coldestCount) {
+                hotThreshold = coldestCount;
+                return;
+            }
+            hot.remove(coldest);
+            hot.put(fingerprint, seen);
+        }
+        hotThreshold = hot.size() < topK ? 0 : hot.values().stream().mapToInt(Integer::intValue).min().orElse(0);
+    }
+
+    /** The hottest prompts of the current window, most frequent first. */
+    List<LangChain4jTelemetry.HotPrompt> hotPrompts() {
+        roll(System.nanoTime());
+        List<LangChain4jTelemetry.HotPrompt> hottest = new ArrayList<>(topK);
+        synchronized (this) {
+            hot.forEach((fingerprint, count) ->
+                    hottest.add(new LangChain4jTelemetry.HotPrompt(fingerprint.toHex(), count)));
+        }
+        hottest.sort(Comparator.comparingLong(LangChain4jTelemetry.HotPrompt::calls).reversed());
+        return hottest;
+    }
+
+    private void roll(long now) {
+        long start = windowStart.get();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        distinct.clear();
+        calls.set(0);
+        sketch.age();
+        synchronized (this) {
+            hot.replaceAll((fingerprint, count) -> sketch.estimate(fingerprint.low()));
+            hot.values().removeIf(count -> count == 0);
+            hotThreshold = 0;
+        }
+    }
+}
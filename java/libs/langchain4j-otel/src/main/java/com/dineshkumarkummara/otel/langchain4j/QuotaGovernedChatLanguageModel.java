@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * ChatLanguageModel decorator keeping calls within a client-side tokens/requests-per-minute budget, so the
+ * provider quota is respected up front instead of discovered through 429 responses. Calls that do not fit
+ * are delayed until the sliding window frees enough budget, or rejected with {@link QuotaExceededException}
+ * when that would take longer than {@code quota.max-wait}.
+ *
+ * <p>Wrap it inside {@link RetryingChatLanguageModel} and {@link HedgingChatLanguageModel} so every request
+ * sent to the provider is charged, and outside {@link ConcurrencyLimitedChatLanguageModel} so waiting for
+ * budget does not hold a slot.
+ */
+public final class QuotaGovernedChatLanguageModel implements ChatLanguageModel, ChatModelDecorator {
+
+    static final String METRIC_THROTTLED = "gen_ai.client.quota.throttled";
+    static final String METRIC_THROTTLE_DELAY = "gen_ai.client.quota.delay";
+    private static final String DELAYED = "delayed";
+    private static final String REJECTED = "rejected";
+
+    private final ChatLanguageModel delegate;
+    private final TokenQuota quota;
+    private final long maxWaitNanos;
+    private final Attributes delayedAttributes;
+    private final Attributes rejectedAttributes;
+    private final LongCounter throttled;
+    private final DoubleHistogram delay;
+
+    private QuotaGovernedChatLanguageModel(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        this.delegate = delegate;
+        ModelProfile profile = ModelProfile.from(
+                properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
+        this.quota = telemetry.quota(profile);
+        LangChain4jTelemetryProperties.Quota config = properties.getQuota();
+        this.maxWaitNanos = config.getMaxWait() != null ? config.getMaxWait().toNanos() : 0L;
+        Attributes attributes = telemetry.metricAttributes(profile).toBuilder()
+                .put(GenAiAttributes.QUOTA_KEY, config.getKey())
+                .build();
+        this.delayedAttributes = attributes.toBuilder().put(GenAiAttributes.QUOTA_OUTCOME, DELAYED).build();
+        this.rejectedAttributes = attributes.toBuilder().put(GenAiAttributes.QUOTA_OUTCOME, REJECTED).build();
+        this.throttled = telemetry.meter().counterBuilder(METRIC_THROTTLED).setUnit("{request}").build();
+        this.delay = telemetry.meter().histogramBuilder(METRIC_THROTTLE_DELAY)
+                .setUnit("s")
+                .setExplicitBucketBoundariesAdvice(properties.getMetrics().getDurationBuckets())
+                .build();
+    }
+
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        if (delegate instanceof QuotaGovernedChatLanguageModel) {
+            return delegate;
+        }
+        return new QuotaGovernedChatLanguageModel(delegate, telemetry, properties, introspector);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return governed(TokenQuota.estimateInputTokens(messages, null), () -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return governed(
+                TokenQuota.estimateInputTokens(messages, toolSpecifications),
+                () -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return governed(
+                TokenQuota.estimateInputTokens(messages, Collections.singletonList(toolSpecification)),
+                () -> delegate.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    private Response<AiMessage> governed(long estimatedTokens, Supplier<Response<AiMessage>> call) {
+        reserve(estimatedTokens);
+        Response<AiMessage> response = call.get();
+        quota.settle(estimatedTokens, response != null && response.tokenUsage() != null
+                ? response.tokenUsage().totalTokenCount()
+                : null);
+        return response;
+    }
+
+    private void reserve(long estimatedTokens) {
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + maxWaitNanos;
+        long now = startNanos;
+        while (true) {
+            long wait = quota.tryReserve(estimatedTokens, now);
+            if (wait == 0L) {
+                if (now != startNanos) {
+                    throttled.add(1, delayedAttributes);
+                    delay.record((now - startNanos) / 1_000_000_000d, delayedAttributes);
+                }
+                return;
+            }
+            if (wait < 0L || now + wait - deadline > 0L || Thread.currentThread().isInterrupted()) {
+                throttled.add(1, rejectedAttributes);
+                throw new QuotaExceededException("Request of ~" + estimatedTokens
+                        + " tokens does not fit the per-minute quota within the maximum wait");
+            }
+            LockSupport.parkNanos(wait);
+            now = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides whether a failed chat call is worth retrying, from the exception types in its cause chain: timeouts,
+ * I/O errors, and provider errors whose HTTP status (read from a {@code statusCode()} or {@code code()}
+ * accessor) is 408, 429 or 5xx. Also tells provider failures from caller errors and extracts provider
+ * retry-after hints.
+ */
+final class RetryClassifier {
+
+    private static final int MAX_CAUSES = 8;
+    private static final String[] STATUS_ACCESSORS = {"statusCode", "getStatusCode", "code", "getCode", "status"};
+    private static final String[] RETRY_AFTER_ACCESSORS = {"retryAfter", "getRetryAfter"};
+    /** "Please try again in 1.5s" / "in 340ms" (OpenAI) and "Retry-After: 20" style hints. */
+    private static final Pattern TRY_AGAIN_IN =
+            Pattern.compile("try again in (\\d+(?:\\.\\d+)?)\\s*(ms|s)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern RETRY_AFTER =
+            Pattern.compile("retry[- ]after[:=\\s]+(\\d+(?:\\.\\d+)?)", Pattern.CASE_INSENSITIVE);
+
+    private RetryClassifier() {
+    }
+
+    static boolean isRetryable(Throwable failure) {
+        Throwable cause = failure;
+        for (int depth = 0; cause != null && depth < MAX_CAUSES; depth++, cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyLimitExceededException
+                    || cause instanceof QuotaExceededException
+                    || cause instanceof InterruptedException) {
+                // local back-pressure already had its chance to wait
+                return false;
+            }
+            if (cause instanceof ChatTimeoutException
+                    || cause instanceof TimeoutException
+                    || cause instanceof IOException) {
+                return true;
+            }
+            Integer status = status(cause);
+            if (status != null) {
+                return status == 408 || status == 429 || (status >= 500 && status < 600);
+            }
+            String name = cause.getClass().getSimpleName().toLowerCase(Locale.ROOT);
+            if (name.contains("ratelimit") || name.contains("timeout") || name.contains("unavailable")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a failure reflects on the provider's health: anything but a 4xx client error (408 and 429 aside),
+     * local back-pressure or an interrupted caller.
+     */
+    static boolean isProviderFailure(Throwable failure) {
+        Throwable cause = failure;
+        for (int depth = 0; cause != null && depth < MAX_CAUSES; depth++, cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyLimitExceededException
+                    || cause instanceof QuotaExceededException
+                    || cause instanceof InterruptedException) {
+                return false;
+            }
+            if (cause instanceof ChatTimeoutException
+                    || cause instanceof TimeoutException
+                    || cause instanceof IOException) {
+                return true;
+            }
+            Integer status = status(cause);
+            if (status != null) {
+                return status < 400 || status >= 500 || status == 408 || status == 429;
+            }
+        }
+        return true;
+    }
+
+    /** The provider's retry-after hint anywhere in the cause chain, or {@code null}. */
+    static Duration retryAfter(Throwable failure) {
+        Throwable cause = failure;
+        for (int depth = 0; cause != null && depth < MAX_CAUSES; depth++, cause = cause.getCause()) {
+            Object hint = invoke(cause, RETRY_AFTER_ACCESSORS);
+            if (hint instanceof Duration duration) {
+                return duration;
+            }
+            if (hint instanceof Number seconds) {
+                return Duration.ofMillis(Math.round(seconds.doubleValue() * 1000));
+            }
+            String message = cause.getMessage();
+            if (message != null) {
+                Matcher matcher = TRY_AGAIN_IN.matcher(message);
+                if (matcher.find()) {
+                    double value = Double.parseDouble(matcher.group(1));
+                    boolean millis = matcher.group(2).equalsIgnoreCase("ms");
+                    return Duration.ofMillis(Math.round(millis ? value : value * 1000));
+                }
+                matcher = RETRY_AFTER.matcher(message);
+                if (matcher.find()) {
+                    return Duration.ofMillis(Math.round(Double.parseDouble(matcher.group(1)) * 1000));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Integer status(Throwable cause) {
+        Object status = invoke(cause, STATUS_ACCESSORS);
+        if (status instanceof Number number && number.intValue() >= 100 && number.intValue() < 600) {
+            return number.intValue();
+        }
+        return null;
+    }
+
+    private static Object invoke(Throwable target, String[] accessors) {
+        for (String accessor : accessors) {
+            try {
+                Method method = target.getClass().getMethod(accessor);
+                if (method.getParameterCount() == 0) {
+                    return method.invoke(target);
+                }
+            } catch (NoSuchMethodException ex) {
+                // try the next accessor name
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import com.dineshkumarkummara.otel.langchain4j.internal.RetryBudget;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * ChatLanguageModel decorator retrying transient failures (see {@link RetryClassifier}) with exponential
+ * backoff and full jitter, waiting at least as long as the provider's retry-after hint. Retries draw on the
+ * telemetry-wide {@link RetryBudget}, so during an outage they stay a bounded share of traffic instead of
+ * multiplying it. Each attempt is a child span of the chat span; the chat span and the error metric only
+ * see the final outcome.
+ *
+ * <p>With {@code deadline.enabled} the request timeout bounds the whole call: attempts share one deadline
+ * (see {@link DeadlineChatLanguageModel}) and no retry is started whose back-off would outlast it.
+ */
+public final class RetryingChatLanguageModel implements ChatLanguageModel, ChatModelDecorator {
+
+    static final String METRIC_RETRY_ATTEMPTS = "gen_ai.client.retry.attempts";
+    static final String METRIC_RETRY_EXHAUSTED = "gen_ai.client.retry.exhausted";
+    private static final String EXHAUSTED_ATTEMPTS = "attempts";
+    private static final String EXHAUSTED_BUDGET = "budget";
+    private static final String EXHAUSTED_RETRY_AFTER = "retry_after";
+    private static final String EXHAUSTED_INTERRUPTED = "interrupted";
+    private static final String EXHAUSTED_DEADLINE = "deadline";
+
+    private final ChatLanguageModel delegate;
+    private final LangChain4jTelemetry telemetry;
+    private final RetryBudget budget;
+    private final String attemptSpanName;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Duration maxRetryAfter;
+    private final Duration deadline;
+    private final Attributes attributes;
+    private final LongCounter retries;
+    private final LongCounter exhausted;
+
+    private RetryingChatLanguageModel(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        this.delegate = delegate;
+        this.telemetry = telemetry;
+        this.budget = telemetry.retryBudget();
+        ModelProfile profile = ModelProfile.from(
+                properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
+        this.attemptSpanName = profile.spanName() + " attempt";
+        LangChain4jTelemetryProperties.Retry config = properties.getRetry();
+        this.maxAttempts = Math.max(1, config.getMaxAttempts());
+        this.initialBackoffMillis = config.getInitialBackoff() != null ? config.getInitialBackoff().toMillis() : 0L;
+        this.maxBackoffMillis = config.getMaxBackoff() != null ? config.getMaxBackoff().toMillis() : Long.MAX_VALUE;
+        this.maxRetryAfter = config.getMaxRetryAfter();
+        Duration timeout = profile.timeout();
+        this.deadline = properties.getDeadline().isEnabled()
+                        && timeout != null
+                        && !timeout.isZero()
+                        && !timeout.isNegative()
+                ? timeout
+                : null;
+        this.attributes = telemetry.metricAttributes(profile);
+        this.retries = telemetry.meter().counterBuilder(METRIC_RETRY_ATTEMPTS).setUnit("{request}").build();
+        this.exhausted = telemetry.meter().counterBuilder(METRIC_RETRY_EXHAUSTED).setUnit("{request}").build();
+    }
+
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        if (delegate instanceof RetryingChatLanguageModel) {
+            return delegate;
+        }
+        return new RetryingChatLanguageModel(delegate, telemetry, properties, introspector);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return retrying(() -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return retrying(() -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return retrying(() -> delegate.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    private Response<AiMessage> retrying(Supplier<Response<AiMessage>> call) {
+        budget.deposit();
+        Context parent = deadline != null
+                ? DeadlineChatLanguageModel.startDeadline(Context.current(), deadline)
+                : Context.current();
+        long backoffMillis = 0L;
+        for (int attempt = 0; ; attempt++) {
+            SpanBuilder builder = telemetry.tracer()
+                    .spanBuilder(attemptSpanName)
+                    .setParent(parent)
+                    .setSpanKind(SpanKind.INTERNAL)
+                    .setAttribute(GenAiAttributes.RETRY_ATTEMPT, (long) attempt);
+            if (attempt > 0) {
+                builder.setAttribute(GenAiAttributes.RETRY_BACKOFF_MS, backoffMillis);
+            }
+            Span span = builder.startSpan();
+            RuntimeException failure;
+            try (Scope ignored = parent.with(span).makeCurrent()) {
+                return call.get();
+            } catch (RuntimeException ex) {
+                failure = ex;
+                span.recordException(ex);
+                span.setStatus(StatusCode.ERROR);
+                span.setAttribute(GenAiAttributes.ERROR_TYPE, ex instanceof ChatTimeoutException
+                        ? LangChain4jTelemetry.TIMEOUT
+                        : ex.getClass().getName());
+            } finally {
+                span.end();
+            }
+            if (!RetryClassifier.isRetryable(failure)) {
+                throw failure;
+            }
+            Duration retryAfter = RetryClassifier.retryAfter(failure);
+            if (attempt + 1 >= maxAttempts) {
+                throw exhausted(failure, EXHAUSTED_ATTEMPTS);
+            }
+            if (retryAfter != null && maxRetryAfter != null && retryAfter.compareTo(maxRetryAfter) > 0) {
+                throw exhausted(failure, EXHAUSTED_RETRY_AFTER);
+            }
+            backoffMillis = backoffMillis(attempt, retryAfter);
+            if (DeadlineChatLanguageModel.remainingNanos(parent) / 1_000_000L <= backoffMillis) {
+                throw exhausted(failure, EXHAUSTED_DEADLINE);
+            }
+            if (!budget.tryWithdraw()) {
+                throw exhausted(failure, EXHAUSTED_BUDGET);
+            }
+            retries.add(1, attributes);
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw exhausted(failure, EXHAUSTED_INTERRUPTED);
+            }
+        }
+    }
+
+    /** Full jitter over the exponential backoff, but never shorter than the provider's hint. */
+    private long backoffMillis(int attempt, Duration retryAfter) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 30));
+        long jittered = ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0L;
+        return retryAfter != null ? Math.max(jittered, retryAfter.toMillis()) : jittered;
+    }
+
+    private RuntimeException exhausted(RuntimeException failure, String reason) {
+        exhausted.add(1, attributes.toBuilder().put(GenAiAttributes.RETRY_EXHAUSTED_REASON, reason).build());
+        return failure;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * ChatLanguageModel that load-balances across a group of models serving the same capability, e.g. one bean
+ * per region or provider. Each call picks the cheaper of two random backends (power of two choices), where
+ * the cost grows with the backend's EWMA latency, its in-flight calls and its EWMA error rate. A backend that
+ * fails {@code router.consecutive-failures} times in a row is ejected for {@code router.ejection-time}.
+ * Failures never make a backend look faster: their latency counts as at least the slowest backend's. Like the
+ * circuit breaker, only provider failures count against a backend; client errors, local back-pressure and
+ * interrupted callers leave its health alone.
+ *
+ * <p>Each call gets a {@code router <name>} span naming the chosen backend. Backends are typically the
+ * already instrumented model beans, so their chat spans nest under it; the telemetry bean post-processor
+ * leaves routers themselves unwrapped.
+ */
+public final class RoutingChatLanguageModel implements ChatLanguageModel {
+
+    static final String METRIC_ROUTED_REQUESTS = "gen_ai.client.router.requests";
+    static final String METRIC_BACKEND_LATENCY = "gen_ai.client.router.latency";
+    static final String METRIC_EJECTIONS = "gen_ai.client.router.ejections";
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+    /** Multiplier of the cost per unit of error rate, so a backend failing half its calls costs 6x. */
+    private static final double ERROR_PENALTY = 10d;
+
+    private final String name;
+    private final String spanName;
+    private final LangChain4jTelemetry telemetry;
+    private final List<Backend> backends;
+    private final double alpha;
+    private final int consecutiveFailures;
+    private final long ejectionNanos;
+    private final int maxEjected;
+    private final LongCounter requests;
+    private final LongCounter ejections;
+
+    private RoutingChatLanguageModel(
+            String name,
+            Map<String, ? extends ChatLanguageModel> backends,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("Router " + name + " needs at least one backend");
+        }
+        this.name = name;
+        this.spanName = "router " + name;
+        this.telemetry = telemetry;
+        LangChain4jTelemetryProperties.Router config = properties.getRouter();
+        this.alpha = Math.max(0.01d, Math.min(1d, config.getEwmaAlpha()));
+        this.consecutiveFailures = Math.max(1, config.getConsecutiveFailures());
+        this.ejectionNanos = config.getEjectionTime() != null ? config.getEjectionTime().toNanos() : 0L;
+        this.maxEjected = backends.size() * Math.max(0, Math.min(100, config.getMaxEjectionPercent())) / 100;
+        Meter meter = telemetry.meter();
+        this.requests = meter.counterBuilder(METRIC_ROUTED_REQUESTS).setUnit("{request}").build();
+        this.ejections = meter.counterBuilder(METRIC_EJECTIONS).build();
+        List<Backend> list = new ArrayList<>(backends.size());
+        backends.forEach((backendName, model) -> list.add(new Backend(backendName, model)));
+        this.backends = List.copyOf(list);
+        telemetry.register(meter.gaugeBuilder(METRIC_BACKEND_LATENCY)
+                .setUnit("s")
+                .buildWithCallback(measurement -> {
+                    for (Backend backend : this.backends) {
+                        measurement.record(backend.latencyNanos() / 1_000_000_000d, backend.attributes);
+                    }
+                }));
+    }
+
+    /**
+     * @param name router name, recorded as {@code gen_ai.router.name}
+     * @param backends models to balance across, keyed by a backend name such as the bean name; iteration order
+     *     is kept
+     */
+    public static RoutingChatLanguageModel create(
+            String name,
+            Map<String, ? extends ChatLanguageModel> backends,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties) {
+        return new RoutingChatLanguageModel(name, backends, telemetry, properties);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return route(model -> model.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return route(model -> model.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return route(model -> model.generate(messages, toolSpecification));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    private Response<AiMessage> route(Function<ChatLanguageModel, Response<AiMessage>> call) {
+        Backend backend = choose(System.nanoTime());
+        Span span = telemetry.tracer()
+                .spanBuilder(spanName)
+                .setSpanKind(SpanKind.INTERNAL)
+                .setAllAttributes(backend.attributes)
+                .startSpan();
+        backend.inFlight.incrementAndGet();
+        long startNanos = System.nanoTime();
+        try (Scope ignored = span.makeCurrent()) {
+            Response<AiMessage> response = call.apply(backend.model);
+            backend.succeeded(System.nanoTime() - startNanos);
+            requests.add(1, backend.successAttributes);
+            return response;
+        } catch (RuntimeException | Error ex) {
+            if (RetryClassifier.isProviderFailure(ex)) {
+                backend.failed(System.nanoTime() - startNanos);
+            }
+            requests.add(1, backend.failureAttributes);
+            span.recordException(ex);
+            span.setStatus(StatusCode.ERROR);
+            span.setAttribute(GenAiAttributes.ERROR_TYPE, ex.getClass().getName());
+            throw ex;
+        } finally {
+            backend.inFlight.decrementAndGet();
+            span.end();
+        }
+    }
+
+    /** Power of two choices over the backends that are not ejected; all backends when every one is. */
+    private Backend choose(long nowNanos) {
+        List<Backend> available = new ArrayList<>(backends.size());
+        for (Backend backend : backends) {
+            if (backend.ejectedUntil - nowNanos <= 0) {
+                available.add(backend);
+            }
+        }
+        if (available.isEmpty()) {
+            available = backends;
+        }
+        int size = available.size();
+        if (size == 1) {
+            return available.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        Backend a = available.get(first);
+        Backend b = available.get(second);
+        return a.cost() <= b.cost() ? a : b;
+    }
+
+    private double slowestLatencyNanos() {
+        double slowest = 0d;
+        for (Backend backend : backends) {
+            slowest = Math.max(slowest, backend.latencyNanos());
+        }
+        return slowest;
+    }
+
+    private int ejectedCount(long nowNanos) {
+        int count = 0;
+        for (Backend backend : backends) {
+            if (backend.ejectedUntil - nowNanos > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private final class Backend {
+
+        private final String name;
+        private final ChatLanguageModel model;
+        private final Attributes attributes;
+        private final Attributes successAttributes;
+        private final Attributes failureAttributes;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger failuresInARow = new AtomicInteger();
+        /** EWMA latency in nanoseconds and EWMA error rate, stored as double bits. */
+        private final AtomicLong latency = new AtomicLong(Double.doubleToRawLongBits(0d));
+        private final AtomicLong errorRate = new AtomicLong(Double.doubleToRawLongBits(0d));
+        private volatile long ejectedUntil = System.nanoTime();
+
+        private Backend(String name, ChatLanguageModel model) {
+            this.name = name;
+            this.model = model;
+            this.attributes = Attributes.of(
+                    GenAiAttributes.ROUTER_NAME, RoutingChatLanguageModel.this.name, GenAiAttributes.ROUTER_BACKEND, name);
+            this.successAttributes = attributes.toBuilder().put(GenAiAttributes.ROUTER_OUTCOME, SUCCESS).build();
+            this.failureAttributes = attributes.toBuilder().put(GenAiAttributes.ROUTER_OUTCOME, FAILURE).build();
+        }
+
+        double cost() {
+            // unseen backends cost nothing, so every backend gets probed early on
+            return latencyNanos() * (inFlight.get() + 1) * (1d + ERROR_PENALTY * Double.longBitsToDouble(errorRate.get()));
+        }
+
+        double latencyNanos() {
+            return Double.longBitsToDouble(latency.get());
+        }
+
+        void succeeded(long latencyNanos) {
+            failuresInARow.set(0);
+            update(latency, latencyNanos);
+            update(errorRate, 0d);
+        }
+
+        void failed(long latencyNanos) {
+            // a fast failure must not make the backend look cheap
+            update(latency, Math.max(latencyNanos, slowestLatencyNanos()));
+            update(errorRate, 1d);
+            if (failuresInARow.incrementAndGet() >= consecutiveFailures) {
+                long now = System.nanoTime();
+                if (ejectedUntil - now <= 0 && ejectedCount(now) < maxEjected) {
+                    ejectedUntil = now + ejectionNanos;
+                    failuresInARow.set(0);
+                    ejections.add(1, attributes);
+                }
+            }
+        }
+
+        private void update(AtomicLong average, double sample) {
+            long current;
+            long next;
+            do {
+                current = average.get();
+                double value = Double.longBitsToDouble(current);
+                double updated = value == 0d && average == latency ? sample : value + alpha * (sample - value);
+                next = Double.doubleToRawLongBits(updated);
+            } while (!average.compareAndSet(current, next));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import com.dineshkumarkummara.otel.langchain4j.internal.LshIndex;
+import com.dineshkumarkummara.otel.langchain4j.internal.MessageText;
+import com.dineshkumarkummara.otel.langchain4j.internal.PromptFingerprint;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.Span;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * ChatLanguageModel decorator serving the response of an earlier, similar prompt. The last user message is
+ * embedded with a {@link PromptEmbedder} and looked up in an {@link LshIndex}; a response is reused when the
+ * cosine similarity reaches {@code otel.langchain4j.semantic-cache.similarity-threshold} and every other
+ * message (system prompt and earlier turns) is identical and the model's request parameters, read like
+ * {@link CachingChatLanguageModel} does, are unchanged. Requests with tool specifications always reach the
+ * delegate.
+ *
+ * <p>Wrap it inside {@link OtelChatLanguageModel}: the hit, the best similarity and
+ * {@code gen_ai.response.cached} are recorded on the chat span.
+ */
+public final class SemanticCachingChatLanguageModel implements ChatLanguageModel, ChatModelDecorator {
+
+    private static final int HASH_TABLES = 8;
+    private static final int BITS_PER_TABLE = 10;
+
+    private final ChatLanguageModel delegate;
+    private final PromptEmbedder embedder;
+    private final LshIndex<Entry> index;
+    private final double threshold;
+    private final ModelProfile profile;
+    private final Attributes attributes;
+    private final LongCounter hits;
+    private final LongCounter misses;
+
+    private SemanticCachingChatLanguageModel(
+            ChatLanguageModel delegate,
+            PromptEmbedder embedder,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        this.delegate = delegate;
+        LangChain4jTelemetryProperties.SemanticCache config = properties.getSemanticCache();
+        this.embedder = embedder != null ? embedder : new HashingPromptEmbedder(config.getDimensions());
+        this.threshold = config.getSimilarityThreshold();
+        int dimensions = this.embedder.embed("").length;
+        Duration ttl = config.getTtl();
+        this.index = new LshIndex<>(
+                dimensions, HASH_TABLES, BITS_PER_TABLE, config.getMaxEntries(), ttl != null ? ttl.toNanos() : 0L, 42L);
+        this.profile = ModelProfile.from(
+                properties, introspector.introspect(ChatModelDecorator.innermost(delegate)));
+        this.attributes = telemetry.metricAttributes(profile).toBuilder()
+                .put(GenAiAttributes.CACHE_TYPE, "semantic")
+                .build();
+        Meter meter = telemetry.meter();
+        this.hits = meter.counterBuilder(CachingChatLanguageModel.METRIC_CACHE_HITS).setUnit("{request}").build();
+        this.misses = meter.counterBuilder(CachingChatLanguageModel.METRIC_CACHE_MISSES).setUnit("{request}").build();
+    }
+
+    /** Wraps {@code delegate}, embedding prompts with {@code embedder} or the hashing embedder when {@code null}. */
+    public static ChatLanguageModel wrap(
+            ChatLanguageModel delegate,
+            PromptEmbedder embedder,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties properties,
+            LangChain4jModelIntrospector introspector) {
+        if (delegate instanceof SemanticCachingChatLanguageModel) {
+            return delegate;
+        }
+        return new SemanticCachingChatLanguageModel(delegate, embedder, telemetry, properties, introspector);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        int question = lastUserMessage(messages);
+        if (question < 0) {
+            return delegate.generate(messages);
+        }
+        String text = MessageText.of(messages.get(question));
+        float[] vector = text != null ? index.normalize(embedder.embed(text)) : null;
+        if (vector == null) {
+            return delegate.generate(messages);
+        }
+        ModelProfile current = LangChain4jTelemetry.currentProfile();
+        PromptFingerprint scope = PromptFingerprint.hasher((current != null ? current : profile).fingerprintSeed())
+                .putMessages(messages.subList(0, question))
+                .putLong(question)
+                .putMessages(messages.subList(question + 1, messages.size()))
+                .finish();
+        Span span = Span.current();
+        LshIndex.Match<Entry> match = index.nearest(vector, entry -> entry.scope().equals(scope));
+        if (match != null) {
+            span.setAttribute(GenAiAttributes.CACHE_SEMANTIC_SIMILARITY, match.similarity());
+        }
+        if (match != null && match.similarity() >= threshold) {
+            hits.add(1, attributes);
+            span.setAttribute(GenAiAttributes.CACHE_SEMANTIC_HIT, true);
+            span.setAttribute(GenAiAttributes.RESPONSE_CACHED, true);
+            LangChain4jTelemetry.markCached();
+            return match.value().response();
+        }
+        misses.add(1, attributes);
+        span.setAttribute(GenAiAttributes.CACHE_SEMANTIC_HIT, false);
+        Response<AiMessage> response = delegate.generate(messages);
+        if (response != null && response.content() != null && !response.content().hasToolExecutionRequests()) {
+            index.add(vector, new Entry(scope, response));
+        }
+        return response;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return delegate.generate(messages, toolSpecifications);
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return delegate.generate(messages, toolSpecification);
+    }
+
+    @Override
+    public ChatLanguageModel delegate() {
+        return delegate;
+    }
+
+    /** Forgets every remembered prompt. */
+    public void invalidateAll() {
+        index.clear();
+    }
+
+    private static int lastUserMessage(List<ChatMessage> messages) {
+        if (messages == null) {
+            return -1;
+        }
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Cached response and the fingerprint of the messages around the embedded question. */
+    private record Entry(PromptFingerprint scope, Response<AiMessage> response) {
+    }
+}
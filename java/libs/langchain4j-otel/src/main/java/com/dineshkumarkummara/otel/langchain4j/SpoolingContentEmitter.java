@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.trace.Span;
+
+/**
+ * Moves the full text of content events into a {@link ContentSpool} and hands the events on with only the
+ * content reference and length. Text the spool cannot take is passed on truncated, as without a spool.
+ */
+final class SpoolingContentEmitter implements ContentEmitter {
+
+    private final ContentEmitter delegate;
+    private final ContentSpool spool;
+
+    SpoolingContentEmitter(ContentEmitter delegate, ContentSpool spool) {
+        this.delegate = delegate;
+        this.spool = spool;
+    }
+
+    @Override
+    public int maxTextLength() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void emit(Span span, String name, Attributes attributes, long epochNanos) {
+        String prompt = attributes.get(GenAiAttributes.PROMPT_TEXT);
+        String response = attributes.get(GenAiAttributes.RESPONSE_TEXT);
+        if (prompt == null && response == null) {
+            delegate.emit(span, name, attributes, epochNanos);
+            return;
+        }
+        AttributesBuilder builder = attributes.toBuilder();
+        if (prompt != null) {
+            spool(builder, GenAiAttributes.PROMPT_TEXT, prompt,
+                    GenAiAttributes.PROMPT_CONTENT_REF, GenAiAttributes.PROMPT_CONTENT_LENGTH);
+        }
+        if (response != null) {
+            spool(builder, GenAiAttributes.RESPONSE_TEXT, response,
+                    GenAiAttributes.RESPONSE_CONTENT_REF, GenAiAttributes.RESPONSE_CONTENT_LENGTH);
+        }
+        delegate.emit(span, name, builder.build(), epochNanos);
+    }
+
+    private void spool(
+            AttributesBuilder builder,
+            AttributeKey<String> textKey,
+            String text,
+            AttributeKey<String> refKey,
+            AttributeKey<Long> lengthKey) {
+        String reference = spool.append(text);
+        if (reference == null) {
+            builder.put(textKey, ContentEmitter.truncate(text, MAX_TEXT_LENGTH));
+            return;
+        }
+        builder.remove(textKey);
+        builder.put(refKey, reference);
+        builder.put(lengthKey, (long) text.length());
+    }
+}
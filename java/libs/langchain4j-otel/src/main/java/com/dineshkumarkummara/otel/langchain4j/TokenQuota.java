@@ -0,0 +1,118 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.MessageText;
+import com.dineshkumarkummara.otel.langchain4j.internal.SlidingWindowCounter;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.ChatMessage;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableLongGauge;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-minute token and request budget of one quota key and model, shared by every decorator using them.
+ * Calls reserve an estimate of their input tokens up front; the estimate is corrected with the reported
+ * {@code TokenUsage} once the response arrives.
+ */
+final class TokenQuota {
+
+    static final String METRIC_REMAINING_TOKENS = "gen_ai.client.quota.remaining_tokens";
+    static final String METRIC_REMAINING_REQUESTS = "gen_ai.client.quota.remaining_requests";
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int BUCKETS = 60;
+    /** Rough characters per token of English text, as used by the provider tokenizer guides. */
+    private static final int CHARS_PER_TOKEN = 4;
+    /** Per-message framing tokens added by chat formats. */
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    private final SlidingWindowCounter tokens;
+    private final SlidingWindowCounter requests;
+    private final ObservableLongGauge remainingTokens;
+    private final ObservableLongGauge remainingRequests;
+
+    TokenQuota(long tokensPerMinute, long requestsPerMinute, Meter meter, Attributes attributes) {
+        this.tokens = tokensPerMinute > 0 ? new SlidingWindowCounter(tokensPerMinute, WINDOW_NANOS, BUCKETS) : null;
+        this.requests =
+                requestsPerMinute > 0 ? new SlidingWindowCounter(requestsPerMinute, WINDOW_NANOS, BUCKETS) : null;
+        this.remainingTokens = tokens == null ? null : meter.gaugeBuilder(METRIC_REMAINING_TOKENS)
+                .ofLongs()
+                .setUnit("{token}")
+                .buildWithCallback(measurement -> measurement.record(tokens.remaining(System.nanoTime()), attributes));
+        this.remainingRequests = requests == null ? null : meter.gaugeBuilder(METRIC_REMAINING_REQUESTS)
+                .ofLongs()
+                .setUnit("{request}")
+                .buildWithCallback(
+                        measurement -> measurement.record(requests.remaining(System.nanoTime()), attributes));
+    }
+
+    /** Unregisters the remaining-budget gauges. */
+    void close() {
+        if (remainingTokens != null) {
+            remainingTokens.close();
+        }
+        if (remainingRequests != null) {
+            remainingRequests.close();
+        }
+    }
+
+    /**
+     * Reserves one request and {@code estimatedTokens}. Returns {@code 0} on success, otherwise the nanoseconds
+     * until the reservation could fit, or {@code -1} if it never can.
+     */
+    long tryReserve(long estimatedTokens, long nowNanos) {
+        if (requests != null && !requests.tryAcquire(1, nowNanos)) {
+            return requests.nanosUntilAvailable(1, nowNanos);
+        }
+        if (tokens != null && !tokens.tryAcquire(estimatedTokens, nowNanos)) {
+            if (requests != null) {
+                requests.add(-1, nowNanos);
+            }
+            return tokens.nanosUntilAvailable(estimatedTokens, nowNanos);
+        }
+        return 0L;
+    }
+
+    /** Replaces an earlier estimate with the tokens the provider actually reported. */
+    void settle(long estimatedTokens, Integer actualTokens) {
+        if (tokens != null && actualTokens != null) {
+            tokens.add(actualTokens - estimatedTokens, System.nanoTime());
+        }
+    }
+
+    static long estimateInputTokens(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        long chars = 0L;
+        long framing = 0L;
+        if (messages != null) {
+            for (ChatMessage message : messages) {
+                if (message != null) {
+                    String text = MessageText.of(message);
+                    chars += text != null ? text.length() : 0;
+                    framing += TOKENS_PER_MESSAGE;
+                }
+            }
+        }
+        if (toolSpecifications != null) {
+            for (ToolSpecification specification : toolSpecifications) {
+                chars += String.valueOf(specification).length();
+            }
+        }
+        return Math.max(1L, (chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN + framing);
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to observed latency, in the AIMD style of Netflix concurrency-limits. Since
+ * generation time grows with the answer, each call's latency is compared with the latency expected for its
+ * output tokens, from a long-term linear fit of latency against output tokens; the short-term average of that
+ * ratio is the congestion signal. The limit grows by one while the ratio stays within {@code latencyTolerance}
+ * and the limit is actually being used; it shrinks multiplicatively when a call fails or the ratio exceeds the
+ * tolerance. Callers over the limit wait in a bounded FIFO queue for a bounded time.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    /** Weight of a sample in the short-term latency ratio, roughly the last ten calls. */
+    private static final double SHORT_TERM_WEIGHT = 0.2d;
+    /** Weight of a sample in the long-term latency fit once warmed up, roughly the last hundred calls. */
+    private static final double LONG_TERM_WEIGHT = 0.01d;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueueSize;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private double shortTermRatio = 1d;
+    private long samples;
+    // exponentially weighted moments of output tokens (x) and latency in nanoseconds (y)
+    private double meanTokens;
+    private double meanNanos;
+    private double meanTokensSquared;
+    private double meanTokensTimesNanos;
+    private int inFlight;
+    private int waiting;
+
+    public AdaptiveConcurrencyLimiter(
+            int initialLimit, int minLimit, int maxLimit, int maxQueueSize, double latencyTolerance, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.maxQueueSize = Math.max(0, maxQueueSize);
+        this.latencyTolerance = Math.max(1d, latencyTolerance);
+        this.backoffRatio = Math.max(0.1d, Math.min(1d, backoffRatio));
+    }
+
+    /**
+     * Takes a slot, waiting up to {@code maxWaitNanos} behind earlier callers. Returns {@code false} when the
+     * queue is full, the wait times out or the thread is interrupted (its interrupt flag is then restored).
+     */
+    public boolean acquire(long maxWaitNanos) {
+        lock.lock();
+        try {
+            if (waiting == 0 && inFlight < (int) limit) {
+                inFlight++;
+                return true;
+            }
+            if (waiting >= maxQueueSize) {
+                return false;
+            }
+            waiting++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+                inFlight++;
+                return true;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns a slot and feeds the call's latency, and whether it failed, into the limit. */
+    public void release(long latencyNanos, boolean failed) {
+        release(latencyNanos, 0, failed);
+    }
+
+    /**
+     * Returns a slot and feeds the call's latency, its output tokens ({@code <= 0} when unknown) and whether it
+     * failed into the limit. Failed calls only shrink the limit; their latency is ignored.
+     */
+    public void release(long latencyNanos, int outputTokens, boolean failed) {
+        lock.lock();
+        try {
+            int inFlightBefore = inFlight;
+            inFlight--;
+            int previousLimit = (int) limit;
+            if (failed) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else {
+                double tokens = outputTokens > 0 ? outputTokens : meanTokens;
+                double expected = expectedNanos(tokens);
+                if (expected > 0) {
+                    shortTermRatio += (latencyNanos / expected - shortTermRatio) * SHORT_TERM_WEIGHT;
+                }
+                fit(tokens, latencyNanos);
+                if (shortTermRatio > latencyTolerance) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    // one back-off per congestion episode, not one per sample still in the average
+                    shortTermRatio = 1d;
+                } else if (inFlightBefore * 2 >= (int) limit) {
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+            }
+            if ((int) limit > previousLimit) {
+                available.signalAll();
+            } else {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Current long-term average latency. */
+    public long baselineLatency(TimeUnit unit) {
+        lock.lock();
+        try {
+            return unit.convert((long) meanNanos, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Latency the long-term fit expects for {@code tokens}, or zero before the first sample. */
+    private double expectedNanos(double tokens) {
+        if (samples == 0) {
+            return 0;
+        }
+        double variance = meanTokensSquared - meanTokens * meanTokens;
+        double slope = variance > 0 ? Math.max(0, (meanTokensTimesNanos - meanTokens * meanNanos) / variance) : 0;
+        double expected = meanNanos + slope * (tokens - meanTokens);
+        // a steep fit must not predict a near-zero latency for short answers
+        return Math.max(expected, meanNanos * LONG_TERM_WEIGHT);
+    }
+
+    private void fit(double tokens, double nanos) {
+        samples++;
+        // plain averages while warming up, so the first samples are not swamped by the zero start
+        double weight = Math.max(LONG_TERM_WEIGHT, 1d / samples);
+        meanTokens += (tokens - meanTokens) * weight;
+        meanNanos += (nanos - meanNanos) * weight;
+        meanTokensSquared += (tokens * tokens - meanTokensSquared) * weight;
+        meanTokensTimesNanos += (tokens * nanos - meanTokensTimesNanos) * weight;
+    }
+}
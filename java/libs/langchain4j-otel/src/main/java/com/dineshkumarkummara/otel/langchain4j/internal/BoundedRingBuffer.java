@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.List;
+
+/**
+ * Fixed-capacity FIFO that never blocks producers. When full it either evicts its oldest element or rejects
+ * the new one; the displaced element is handed back to the caller so it can be accounted for.
+ */
+public final class BoundedRingBuffer<T> {
+
+    private final Object[] elements;
+    private final boolean dropOldest;
+    private int head;
+    private int size;
+
+    public BoundedRingBuffer(int capacity, boolean dropOldest) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.elements = new Object[capacity];
+        this.dropOldest = dropOldest;
+    }
+
+    /**
+     * Adds {@code element}, returning {@code null} when it fit, the evicted oldest element under drop-oldest,
+     * or {@code element} itself under drop-newest.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T offer(T element) {
+        if (size < elements.length) {
+            elements[(head + size) % elements.length] = element;
+            size++;
+            return null;
+        }
+        if (!dropOldest) {
+            return element;
+        }
+        T evicted = (T) elements[head];
+        elements[head] = element;
+        head = (head + 1) % elements.length;
+        return evicted;
+    }
+
+    /** Moves up to {@code max} elements into {@code sink}, oldest first, and returns how many were moved. */
+    @SuppressWarnings("unchecked")
+    public synchronized int drainTo(List<? super T> sink, int max) {
+        int drained = Math.min(max, size);
+        for (int i = 0; i < drained; i++) {
+            sink.add((T) elements[head]);
+            elements[head] = null;
+            head = (head + 1) % elements.length;
+        }
+        size -= drained;
+        return drained;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admits the first {@code limit} distinct values of an attribute and folds every later value into a
+ * single overflow value, keeping the number of metric series bounded.
+ */
+public final class CardinalityLimiter {
+
+    public static final String OVERFLOW_VALUE = "other";
+
+    private final int limit;
+    private final Set<String> admitted = ConcurrentHashMap.newKeySet();
+
+    public CardinalityLimiter(int limit) {
+        this.limit = Math.max(0, limit);
+    }
+
+    public String limit(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (admitted.contains(value)) {
+            return value;
+        }
+        // size() is approximate under contention; the cap may be exceeded by a few concurrent admissions.
+        if (admitted.size() < limit && admitted.add(value)) {
+            return value;
+        }
+        return admitted.contains(value) ? value : OVERFLOW_VALUE;
+    }
+
+    public int size() {
+        return admitted.size();
+    }
+}
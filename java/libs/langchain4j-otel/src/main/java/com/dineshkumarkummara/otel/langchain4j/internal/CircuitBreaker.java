@@ -0,0 +1,167 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+/**
+ * Count-based circuit breaker. While closed it keeps the outcomes of the last {@code windowSize} calls and
+ * opens once at least {@code minimumCalls} were seen and the failure rate or the slow-call rate reaches its
+ * threshold. After {@code openNanos} it lets {@code halfOpenCalls} probes through and closes again only if
+ * those stay under both thresholds. Probes still unanswered after {@code slowCallNanos} count as slow and send
+ * the breaker back to open, so a hung probe cannot keep it half-open.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /** Called on every state change, while the breaker's lock is held. */
+    @FunctionalInterface
+    public interface Listener {
+        void onTransition(State from, State to);
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final byte[] outcomes;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Listener listener;
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+    private long halfOpenedAt;
+    private int probesIssued;
+
+    public CircuitBreaker(
+            int windowSize,
+            int minimumCalls,
+            double failureRateThreshold,
+            double slowCallRateThreshold,
+            long slowCallNanos,
+            long openNanos,
+            int halfOpenCalls,
+            Listener listener) {
+        this.outcomes = new byte[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(outcomes.length, minimumCalls));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallNanos;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = Math.max(1, Math.min(outcomes.length, halfOpenCalls));
+        this.listener = listener;
+    }
+
+    /** Whether a call may go through now; moves an open breaker to half-open once its wait is over. */
+    public synchronized boolean tryAcquire(long nowNanos) {
+        if (state == State.OPEN) {
+            if (nowNanos - openedAt < openNanos) {
+                return false;
+            }
+            halfOpenedAt = nowNanos;
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesIssued >= halfOpenCalls) {
+                if (nowNanos - halfOpenedAt >= slowCallNanos) {
+                    open(nowNanos);
+                }
+                return false;
+            }
+            probesIssued++;
+        }
+        return true;
+    }
+
+    public synchronized void record(long latencyNanos, boolean failed, long nowNanos) {
+        if (state == State.OPEN) {
+            // a call admitted before the breaker opened
+            return;
+        }
+        byte outcome = (byte) ((failed ? FAILED : 0) | (latencyNanos >= slowCallNanos ? SLOW : 0));
+        if (recorded == outcomes.length) {
+            byte evicted = outcomes[next];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % outcomes.length;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+
+        if (state == State.HALF_OPEN) {
+            if (recorded >= halfOpenCalls) {
+                if (overThreshold()) {
+                    open(nowNanos);
+                } else {
+                    reset();
+                    transition(State.CLOSED);
+                }
+            }
+        } else if (recorded >= minimumCalls && overThreshold()) {
+            open(nowNanos);
+        }
+    }
+
+    /** Returns the permit of a call whose outcome says nothing about the provider, such as a client error. */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && probesIssued > recorded) {
+            probesIssued--;
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private boolean overThreshold() {
+        return failures * 100d / recorded >= failureRateThreshold || slowCalls * 100d / recorded >= slowCallRateThreshold;
+    }
+
+    private void open(long nowNanos) {
+        openedAt = nowNanos;
+        reset();
+        transition(State.OPEN);
+    }
+
+    private void reset() {
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+        probesIssued = 0;
+    }
+
+    private void transition(State to) {
+        State from = state;
+        state = to;
+        if (listener != null) {
+            listener.onTransition(from, to);
+        }
+    }
+}
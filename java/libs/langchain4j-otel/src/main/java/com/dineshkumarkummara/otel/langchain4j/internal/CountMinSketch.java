@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count-min sketch over 64-bit keys: a fixed-size frequency estimator that never under-counts and
+ * over-counts by at most a small fraction of all increments. Counters saturate at {@code maxCount}; with
+ * aging enabled every counter is halved after {@code agingSampleSize} increments so estimates follow recent
+ * popularity, as TinyLFU admission expects. Safe for concurrent use.
+ */
+public final class CountMinSketch {
+
+    private final AtomicIntegerArray counters;
+    private final int depth;
+    private final int mask;
+    private final int maxCount;
+    private final long agingSampleSize;
+    private final AtomicLong additions = new AtomicLong();
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     * @param depth number of rows (independent hash functions)
+     * @param maxCount saturation value of a counter
+     * @param agingSampleSize increments between halvings, or {@code 0} to never age
+     */
+    public CountMinSketch(int width, int depth, int maxCount, long agingSampleSize) {
+        if (width <= 0 || depth <= 0 || maxCount <= 0) {
+            throw new IllegalArgumentException("width, depth and maxCount must be positive");
+        }
+        int rowWidth = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.counters = new AtomicIntegerArray(rowWidth * depth);
+        this.depth = depth;
+        this.mask = rowWidth - 1;
+        this.maxCount = maxCount;
+        this.agingSampleSize = agingSampleSize;
+    }
+
+    /** Increments the key's counters and returns its new estimate. */
+    public int increment(long key) {
+        int estimate = Integer.MAX_VALUE;
+        long hash = spread(key);
+        // Conservative update: only the minimal counters grow, which tightens the over-estimate.
+        int current = estimate(key);
+        for (int row = 0; row < depth; row++) {
+            int index = index(hash, row);
+            int value;
+            while ((value = counters.get(index)) == current && value < maxCount) {
+                if (counters.compareAndSet(index, value, value + 1)) {
+                    value++;
+                    break;
+                }
+            }
+            estimate = Math.min(estimate, value);
+        }
+        if (agingSampleSize > 0 && additions.incrementAndGet() % agingSampleSize == 0) {
+            age();
+        }
+        return estimate;
+    }
+
+    public int estimate(long key) {
+        long hash = spread(key);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(hash, row)));
+        }
+        return estimate;
+    }
+
+    /** Halves every counter. */
+    public void age() {
+        for (int i = 0; i < counters.length(); i++) {
+            int value;
+            do {
+                value = counters.get(i);
+            } while (value != 0 && !counters.compareAndSet(i, value, value >>> 1));
+        }
+    }
+
+    private int index(long hash, int row) {
+        long rowHash = hash + row * Long.rotateLeft(hash, 32 - row);
+        rowHash ^= rowHash >>> 29;
+        return row * (mask + 1) + ((int) rowHash & mask);
+    }
+
+    private static long spread(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 32);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DDSketch-style quantile sketch with relative-error guarantees: values are counted in logarithmic buckets
+ * whose width is a fixed fraction of their value, so every quantile is within {@code relativeAccuracy} of an
+ * actual value. Buckets cover {@code [minValue, maxValue]}; smaller values share a zero bucket and larger
+ * ones are clamped into the last bucket. Sketches with the same parameters merge by adding their counts.
+ * Additions are lock-free; {@link #clear} races with concurrent additions, which may land before or after it.
+ */
+public final class DDSketch {
+
+    private final double relativeAccuracy;
+    private final double minValue;
+    private final double maxValue;
+    private final double gamma;
+    private final double logGamma;
+    private final int offset;
+    private final AtomicLongArray counts;
+    private final AtomicLong zeroCount = new AtomicLong();
+    private final AtomicLong count = new AtomicLong();
+
+    public DDSketch(double relativeAccuracy, double minValue, double maxValue) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1) || !(minValue > 0) || !(maxValue > minValue)) {
+            throw new IllegalArgumentException("relativeAccuracy must be in (0, 1) and 0 < minValue < maxValue");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.offset = key(minValue);
+        this.counts = new AtomicLongArray(key(maxValue) - offset + 1);
+    }
+
+    public void add(double value) {
+        if (value < minValue) {
+            zeroCount.incrementAndGet();
+        } else {
+            counts.incrementAndGet(Math.min(counts.length() - 1, key(value) - offset));
+        }
+        count.incrementAndGet();
+    }
+
+    /** Adds the counts of {@code other}, which must have been created with the same parameters. */
+    public void merge(DDSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy || other.minValue != minValue || other.maxValue != maxValue) {
+            throw new IllegalArgumentException("sketches with different parameters cannot be merged");
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            long value = other.counts.get(i);
+            if (value != 0) {
+                counts.addAndGet(i, value);
+            }
+        }
+        zeroCount.addAndGet(other.zeroCount.get());
+        count.addAndGet(other.count.get());
+    }
+
+    /** Estimated value at quantile {@code q} in {@code [0, 1]}, {@code 0} for the zero bucket, or NaN if empty. */
+    public double quantile(double q) {
+        long total = count.get();
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double rank = Math.max(0d, Math.min(1d, q)) * (total - 1);
+        long seen = zeroCount.get();
+        if (seen > rank) {
+            return 0d;
+        }
+        int last = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long bucket = counts.get(i);
+            if (bucket == 0) {
+                continue;
+            }
+            last = i;
+            seen += bucket;
+            if (seen > rank) {
+                return value(i);
+            }
+        }
+        // Concurrent additions moved the total past the buckets read so far.
+        return value(last);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0L);
+        }
+        zeroCount.set(0L);
+        count.set(0L);
+    }
+
+    /** Empty sketch with the same parameters, to merge into. */
+    public DDSketch emptyCopy() {
+        return new DDSketch(relativeAccuracy, minValue, maxValue);
+    }
+
+    private int key(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double value(int index) {
+        // Midpoint, in relative terms, of the bucket (gamma^(k-1), gamma^k].
+        return 2 * Math.pow(gamma, index + offset) / (gamma + 1);
+    }
+}
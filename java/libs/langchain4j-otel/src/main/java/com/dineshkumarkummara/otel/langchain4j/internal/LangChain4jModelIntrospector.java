@@ -15,93 +15,103 @@
  */
 package com.dineshkumarkummara.otel.langchain4j.internal;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Reflectively extracts metadata from LangChain4j model implementations.
+ *
+ * <p>Accessors are resolved once per model class into {@link MethodHandle}s and cached; accessor names
+ * that do not exist on a class are remembered as absent, so repeated introspection never performs a
+ * reflective lookup or throws for control flow.
  */
 public final class LangChain4jModelIntrospector {
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final String[] MODEL_NAME = {"modelName", "getModelName", "model", "getModel"};
+    private static final String[] TEMPERATURE = {"temperature", "getTemperature"};
+    private static final String[] TOP_P = {"topP", "getTopP"};
+    private static final String[] MAX_TOKENS = {"maxTokens", "getMaxTokens"};
+    private static final String[] STOP_SEQUENCES = {"stop", "getStop", "stopSequences", "getStopSequences"};
+    private static final String[] CACHED = {"cache", "isCache", "cached", "isCached"};
+    private static final String[] TIMEOUT = {"timeout", "getTimeout", "requestTimeout", "getRequestTimeout"};
+    private static final Set<String> CANDIDATE_NAMES =
+            candidateNames(MODEL_NAME, TEMPERATURE, TOP_P, MAX_TOKENS, STOP_SEQUENCES, CACHED, TIMEOUT);
+
+    private static final ClassValue<Accessors> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Accessors computeValue(Class<?> type) {
+            return Accessors.resolve(type);
+        }
+    };
+
     public ModelMetadata introspect(Object model) {
         if (model == null) {
             return ModelMetadata.empty();
         }
-        Class<?> type = model.getClass();
-        String system = guessSystem(type);
-        String modelName = stringResult(model, "modelName", "getModelName", "model", "getModel")
-                .orElse(null);
-        Double temperature = doubleResult(model, "temperature", "getTemperature").orElse(null);
-        Double topP = doubleResult(model, "topP", "getTopP").orElse(null);
-        Integer maxTokens = intResult(model, "maxTokens", "getMaxTokens").orElse(null);
-        @SuppressWarnings("unchecked")
-        List<String> stopSequences = (List<String>) objectResult(model, "stop", "getStop", "stopSequences", "getStopSequences")
-                .filter(List.class::isInstance)
-                .orElse(null);
-        Boolean cached = booleanResult(model, "cache", "isCache", "cached", "isCached").orElse(false);
-        Duration timeout = durationResult(model, "timeout", "getTimeout", "requestTimeout", "getRequestTimeout").orElse(null);
-
-        return new ModelMetadata(system, modelName, temperature, topP, maxTokens, stopSequences, cached, timeout);
-    }
-
-    private Optional<String> stringResult(Object target, String... methods) {
-        return objectResult(target, methods).map(Object::toString);
-    }
+        Accessors accessors = ACCESSORS.get(model.getClass());
+        Object modelName = accessors.modelName.read(model);
+        Object temperature = accessors.temperature.read(model);
+        Object topP = accessors.topP.read(model);
+        Object maxTokens = accessors.maxTokens.read(model);
+        Object stopSequences = accessors.stopSequences.read(model);
+        Object cached = accessors.cached.read(model);
+        Object timeout = accessors.timeout.read(model);
 
-    private Optional<Double> doubleResult(Object target, String... methods) {
-        return objectResult(target, methods)
-                .map(obj -> obj instanceof Number ? ((Number) obj).doubleValue() : null);
-    }
-
-    private Optional<Integer> intResult(Object target, String... methods) {
-        return objectResult(target, methods)
-                .map(obj -> obj instanceof Number ? ((Number) obj).intValue() : null);
+        @SuppressWarnings("unchecked")
+        List<String> stop = stopSequences instanceof List ? (List<String>) stopSequences : null;
+        return new ModelMetadata(
+                accessors.system,
+                modelName != null ? modelName.toString() : null,
+                temperature instanceof Number number ? number.doubleValue() : null,
+                topP instanceof Number number ? number.doubleValue() : null,
+                maxTokens instanceof Number number ? number.intValue() : null,
+                stop,
+                cached instanceof Boolean flag ? flag : Boolean.FALSE,
+                toDuration(timeout));
     }
 
-    private Optional<Boolean> booleanResult(Object target, String... methods) {
-        return objectResult(target, methods)
-                .map(obj -> obj instanceof Boolean ? (Boolean) obj : null);
+    /** Drops the cached accessors for the given class so they are resolved again on next use. */
+    public void invalidate(Class<?> type) {
+        if (type != null) {
+            ACCESSORS.remove(type);
+        }
     }
 
-    private Optional<Duration> durationResult(Object target, String... methods) {
-        return objectResult(target, methods)
-                .map(value -> {
-                    if (value instanceof Duration duration) {
-                        return duration;
-                    }
-                    if (value instanceof Number number) {
-                        return Duration.ofMillis(number.longValue());
-                    }
-                    return null;
-                });
+    private static Set<String> candidateNames(String[]... groups) {
+        Set<String> names = new HashSet<>();
+        for (String[] group : groups) {
+            names.addAll(Arrays.asList(group));
+        }
+        return Set.copyOf(names);
     }
 
-    private Optional<Object> objectResult(Object target, String... methods) {
-        for (String method : methods) {
-            if (method == null || method.isEmpty()) {
-                continue;
-            }
-            try {
-                Method m = target.getClass().getMethod(method);
-                if (!m.canAccess(target)) {
-                    m.setAccessible(true);
-                }
-                Object result = m.invoke(target);
-                if (result != null) {
-                    return Optional.of(result);
-                }
-            } catch (ReflectiveOperationException ignored) {
-                // ignore and continue
-            }
+    private static Duration toDuration(Object value) {
+        if (value instanceof Duration duration) {
+            return duration;
+        }
+        if (value instanceof Number number) {
+            return Duration.ofMillis(number.longValue());
         }
-        return Optional.empty();
+        return null;
     }
 
-    private String guessSystem(Class<?> type) {
+    private static String guessSystem(Class<?> type) {
         String name = type.getName().toLowerCase(Locale.ROOT);
         if (name.contains("openai")) {
             return "openai";
@@ -121,6 +131,102 @@ public final class LangChain4jModelIntrospector {
         return null;
     }
 
+    /** Resolved accessors for a single model class. */
+    private static final class Accessors {
+
+        private final Map<String, MethodHandle> getters;
+        private final String system;
+        private final Candidates modelName;
+        private final Candidates temperature;
+        private final Candidates topP;
+        private final Candidates maxTokens;
+        private final Candidates stopSequences;
+        private final Candidates cached;
+        private final Candidates timeout;
+
+        private Accessors(Class<?> type, Map<String, MethodHandle> getters) {
+            this.getters = getters;
+            this.system = guessSystem(type);
+            this.modelName = candidates(MODEL_NAME);
+            this.temperature = candidates(TEMPERATURE);
+            this.topP = candidates(TOP_P);
+            this.maxTokens = candidates(MAX_TOKENS);
+            this.stopSequences = candidates(STOP_SEQUENCES);
+            this.cached = candidates(CACHED);
+            this.timeout = candidates(TIMEOUT);
+        }
+
+        /** Unreflects the public zero-arg accessors of {@code type} whose name is one of the candidates. */
+        static Accessors resolve(Class<?> type) {
+            Map<String, MethodHandle> getters = new HashMap<>();
+            for (Method method : type.getMethods()) {
+                if (!CANDIDATE_NAMES.contains(method.getName())
+                        || method.getParameterCount() != 0
+                        || Modifier.isStatic(method.getModifiers())
+                        || method.getReturnType() == void.class
+                        || getters.containsKey(method.getName())) {
+                    continue;
+                }
+                MethodHandle handle = unreflect(method);
+                if (handle != null) {
+                    getters.put(method.getName(), handle);
+                }
+            }
+            return new Accessors(type, getters);
+        }
+
+        private Candidates candidates(String... names) {
+            List<MethodHandle> handles = new ArrayList<>(names.length);
+            for (String name : names) {
+                MethodHandle handle = getters.get(name);
+                if (handle != null) {
+                    handles.add(handle);
+                }
+            }
+            return handles.isEmpty() ? Candidates.NONE : new Candidates(handles.toArray(new MethodHandle[0]));
+        }
+
+        private static MethodHandle unreflect(Method method) {
+            try {
+                if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                    method.trySetAccessible();
+                }
+                return LOOKUP.unreflect(method).asType(GETTER_TYPE);
+            } catch (IllegalAccessException | RuntimeException ignored) {
+                // inaccessible accessor, treat as absent
+                return null;
+            }
+        }
+    }
+
+    /** Ordered accessor candidates; the first non-null result wins. */
+    private static final class Candidates {
+
+        static final Candidates NONE = new Candidates(new MethodHandle[0]);
+
+        private final MethodHandle[] handles;
+
+        Candidates(MethodHandle[] handles) {
+            this.handles = handles;
+        }
+
+        Object read(Object target) {
+            for (MethodHandle handle : handles) {
+                try {
+                    Object result = (Object) handle.invokeExact(target);
+                    if (result != null) {
+                        return result;
+                    }
+                } catch (Error error) {
+                    throw error;
+                } catch (Throwable ignored) {
+                    // accessor threw, fall through to the next candidate
+                }
+            }
+            return null;
+        }
+    }
+
     /** Immutable snapshot of model metadata. */
     public record ModelMetadata(
             String system,
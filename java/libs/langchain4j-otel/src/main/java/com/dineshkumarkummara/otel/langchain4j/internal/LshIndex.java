@@ -0,0 +1,222 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory approximate nearest-neighbour index for cosine similarity, using random-hyperplane locality
+ * sensitive hashing. Each vector is bucketed in several tables by the signs of its projections onto random
+ * hyperplanes; a query scores only the vectors sharing a bucket with it in some table. Holds at most
+ * {@code maxEntries} vectors (oldest first out) and ignores entries older than the TTL.
+ */
+public final class LshIndex<V> {
+
+    /** Closest stored value and its cosine similarity to the query. */
+    public record Match<V>(V value, double similarity) {
+    }
+
+    private final int dimensions;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final float[][][] hyperplanes;
+    private final List<Map<Integer, List<Entry<V>>>> tables;
+    private final ArrayDeque<Entry<V>> insertionOrder = new ArrayDeque<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param tables number of hash tables; more tables raise recall at the cost of memory
+     * @param bitsPerTable hyperplanes per table; more bits make buckets smaller and lookups cheaper
+     */
+    public LshIndex(int dimensions, int tables, int bitsPerTable, int maxEntries, long ttlNanos, long seed) {
+        if (dimensions <= 0 || tables <= 0 || bitsPerTable <= 0 || bitsPerTable > 30 || maxEntries <= 0) {
+            throw new IllegalArgumentException("invalid index shape");
+        }
+        this.dimensions = dimensions;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.hyperplanes = new float[tables][bitsPerTable][dimensions];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (float[][] table : hyperplanes) {
+            for (float[] plane : table) {
+                for (int d = 0; d < dimensions; d++) {
+                    plane[d] = (float) (random.nextDouble() * 2 - 1);
+                }
+            }
+        }
+        this.tables = new ArrayList<>(tables);
+        for (int t = 0; t < tables; t++) {
+            this.tables.add(new HashMap<>());
+        }
+    }
+
+    /** Returns a copy of {@code vector} scaled to unit length, or {@code null} for a zero vector. */
+    public float[] normalize(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return null;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    /** Finds the most similar live entry to a unit-length {@code query}, or {@code null} if none shares a bucket. */
+    public Match<V> nearest(float[] query) {
+        return nearest(query, value -> true);
+    }
+
+    /** Like {@link #nearest(float[])} but only considers entries whose value satisfies {@code filter}. */
+    public Match<V> nearest(float[] query, Predicate<? super V> filter) {
+        long now = System.nanoTime();
+        Entry<V> best = null;
+        double bestSimilarity = -1;
+        Set<Entry<V>> seen = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            for (int t = 0; t < tables.size(); t++) {
+                List<Entry<V>> bucket = tables.get(t).get(signature(t, query));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry<V> entry : bucket) {
+                    if (!seen.add(entry) || isExpired(entry, now) || !filter.test(entry.value)) {
+                        continue;
+                    }
+                    double similarity = dot(query, entry.vector);
+                    if (similarity > bestSimilarity) {
+                        bestSimilarity = similarity;
+                        best = entry;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return best != null ? new Match<>(best.value, bestSimilarity) : null;
+    }
+
+    /** Adds a unit-length vector, evicting the oldest entries beyond capacity or past their TTL. */
+    public void add(float[] vector, V value) {
+        Entry<V> entry = new Entry<>(vector, value, System.nanoTime(), new int[tables.size()]);
+        for (int t = 0; t < tables.size(); t++) {
+            entry.signatures[t] = signature(t, vector);
+        }
+        lock.writeLock().lock();
+        try {
+            long now = entry.insertedAtNanos;
+            while (!insertionOrder.isEmpty()
+                    && (insertionOrder.size() >= maxEntries || isExpired(insertionOrder.peekFirst(), now))) {
+                remove(insertionOrder.pollFirst());
+            }
+            insertionOrder.addLast(entry);
+            for (int t = 0; t < tables.size(); t++) {
+                tables.get(t).computeIfAbsent(entry.signatures[t], key -> new ArrayList<>(2)).add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return insertionOrder.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            insertionOrder.clear();
+            tables.forEach(Map::clear);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Entry<V> entry) {
+        for (int t = 0; t < tables.size(); t++) {
+            Map<Integer, List<Entry<V>>> table = tables.get(t);
+            List<Entry<V>> bucket = table.get(entry.signatures[t]);
+            if (bucket != null) {
+                bucket.remove(entry);
+                if (bucket.isEmpty()) {
+                    table.remove(entry.signatures[t]);
+                }
+            }
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return ttlNanos > 0 && now - entry.insertedAtNanos > ttlNanos;
+    }
+
+    private int signature(int table, float[] vector) {
+        int signature = 0;
+        float[][] planes = hyperplanes[table];
+        for (int bit = 0; bit < planes.length; bit++) {
+            if (dot(planes[bit], vector) >= 0) {
+                signature |= 1 << bit;
+            }
+        }
+        return signature;
+    }
+
+    private static double dot(float[] left, float[] right) {
+        double sum = 0;
+        for (int i = 0; i < left.length; i++) {
+            sum += left[i] * right[i];
+        }
+        return sum;
+    }
+
+    private static final class Entry<V> {
+
+        private final float[] vector;
+        private final V value;
+        private final long insertedAtNanos;
+        private final int[] signatures;
+
+        private Entry(float[] vector, V value, long insertedAtNanos, int[] signatures) {
+            this.vector = vector;
+            this.value = value;
+            this.insertedAtNanos = insertedAtNanos;
+            this.signatures = signatures;
+        }
+    }
+}
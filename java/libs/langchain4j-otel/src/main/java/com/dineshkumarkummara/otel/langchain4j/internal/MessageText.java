@@ -0,0 +1,69 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+/**
+ * Text of a chat message without the deprecated {@code ChatMessage.text()}, which throws for user messages
+ * carrying images or other non-text contents. The text parts of such messages are joined by newlines.
+ */
+public final class MessageText {
+
+    private MessageText() {
+    }
+
+    /** The message's text, or {@code null} when it has none. */
+    public static String of(ChatMessage message) {
+        if (message instanceof UserMessage user) {
+            return of(user);
+        }
+        if (message instanceof SystemMessage system) {
+            return system.text();
+        }
+        if (message instanceof AiMessage ai) {
+            return ai.text();
+        }
+        if (message instanceof ToolExecutionResultMessage result) {
+            return result.text();
+        }
+        return null;
+    }
+
+    public static String of(UserMessage message) {
+        if (message.hasSingleText()) {
+            return message.singleText();
+        }
+        StringBuilder text = null;
+        for (Content content : message.contents()) {
+            if (content instanceof TextContent textContent) {
+                if (text == null) {
+                    text = new StringBuilder();
+                } else {
+                    text.append('\n');
+                }
+                text.append(textContent.text());
+            }
+        }
+        return text != null ? text.toString() : null;
+    }
+}
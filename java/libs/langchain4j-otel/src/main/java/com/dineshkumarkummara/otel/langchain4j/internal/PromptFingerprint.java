@@ -0,0 +1,185 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import dev.langchain4j.data.image.Image;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.UserMessage;
+import java.util.List;
+
+/**
+ * 128-bit non-cryptographic fingerprint of a prompt. Message text is normalized (whitespace runs collapse to
+ * one space, leading and trailing whitespace is ignored) so prompts differing only in formatting share a
+ * fingerprint; message types are part of the hash so a system and a user message never collide. Images in
+ * multimodal user messages are hashed by their URL or inline data.
+ */
+public final class PromptFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX_SEED = 0x9e3779b97f4a7c15L;
+    private static final long MIX_PRIME = 0xc2b2ae3d27d4eb4fL;
+
+    private final long high;
+    private final long low;
+
+    private PromptFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static PromptFingerprint of(long seed, List<ChatMessage> messages) {
+        return hasher(seed).putMessages(messages).finish();
+    }
+
+    public static Hasher hasher(long seed) {
+        return new Hasher(seed);
+    }
+
+    public long high() {
+        return high;
+    }
+
+    public long low() {
+        return low;
+    }
+
+    public String toHex() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PromptFingerprint that && high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high * 31 + low);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    /** Incremental builder of a fingerprint; not thread-safe. */
+    public static final class Hasher {
+
+        private long fnv;
+        private long mix;
+
+        private Hasher(long seed) {
+            this.fnv = FNV_OFFSET ^ seed;
+            this.mix = MIX_SEED + seed;
+        }
+
+        public Hasher putMessages(List<ChatMessage> messages) {
+            if (messages == null) {
+                return this;
+            }
+            for (ChatMessage message : messages) {
+                if (message == null) {
+                    continue;
+                }
+                putLong(message.type().ordinal() + 1L);
+                if (message instanceof UserMessage user && !user.hasSingleText()) {
+                    putContents(user);
+                } else {
+                    putNormalized(MessageText.of(message));
+                }
+            }
+            return this;
+        }
+
+        private void putContents(UserMessage message) {
+            for (Content content : message.contents()) {
+                putLong(content.type().ordinal() + 1L);
+                if (content instanceof TextContent text) {
+                    putNormalized(text.text());
+                } else if (content instanceof ImageContent imageContent && imageContent.image() != null) {
+                    Image image = imageContent.image();
+                    putString(image.url() != null ? image.url().toString() : null);
+                    putString(image.base64Data());
+                } else {
+                    putString(String.valueOf(content));
+                }
+            }
+        }
+
+        /** Hashes {@code text} after collapsing whitespace runs; {@code null} and blank text hash alike. */
+        public Hasher putNormalized(String text) {
+            if (text != null) {
+                boolean pendingSpace = false;
+                boolean started = false;
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (Character.isWhitespace(c)) {
+                        pendingSpace = started;
+                        continue;
+                    }
+                    if (pendingSpace) {
+                        putChar(' ');
+                        pendingSpace = false;
+                    }
+                    putChar(c);
+                    started = true;
+                }
+            }
+            // Terminator keeps ("ab", "c") and ("a", "bc") apart.
+            putLong(0xffL);
+            return this;
+        }
+
+        public Hasher putString(String text) {
+            if (text != null) {
+                for (int i = 0; i < text.length(); i++) {
+                    putChar(text.charAt(i));
+                }
+            }
+            putLong(0xffL);
+            return this;
+        }
+
+        public Hasher putLong(long value) {
+            fnv = (fnv ^ value) * FNV_PRIME;
+            mix = Long.rotateLeft(mix ^ (value * MIX_PRIME), 31) * MIX_SEED;
+            return this;
+        }
+
+        public PromptFingerprint finish() {
+            return new PromptFingerprint(fmix64(fnv ^ Long.rotateLeft(mix, 17)), fmix64(mix + fnv));
+        }
+
+        private void putChar(char c) {
+            fnv = (fnv ^ c) * FNV_PRIME;
+            mix = Long.rotateLeft(mix ^ (c * MIX_PRIME), 27) * MIX_SEED;
+        }
+
+        private static long fmix64(long value) {
+            long h = value;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies of the most recent calls in a lock-free ring, with a quantile that is recomputed every
+ * {@code capacity / 8} samples rather than on every read.
+ */
+public final class RecentLatencies {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong count = new AtomicLong();
+    private final int refreshInterval;
+    private final double quantile;
+    private volatile long cachedQuantile = -1L;
+    private volatile long cachedAt;
+
+    public RecentLatencies(int capacity, double quantile) {
+        this.samples = new AtomicLongArray(Math.max(8, capacity));
+        this.refreshInterval = Math.max(1, samples.length() / 8);
+        this.quantile = Math.max(0d, Math.min(1d, quantile));
+    }
+
+    public void record(long latencyNanos) {
+        long index = count.getAndIncrement();
+        samples.set((int) (index % samples.length()), latencyNanos);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    /** The configured quantile over the retained samples, or {@code -1} before {@code minSamples} were recorded. */
+    public long quantile(int minSamples) {
+        long recorded = count.get();
+        if (recorded < minSamples || recorded == 0) {
+            return -1L;
+        }
+        long cached = cachedQuantile;
+        if (cached >= 0 && recorded - cachedAt < refreshInterval) {
+            return cached;
+        }
+        int size = (int) Math.min(recorded, samples.length());
+        long[] copy = new long[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = samples.get(i);
+        }
+        Arrays.sort(copy);
+        int rank = Math.max(1, (int) Math.ceil(quantile * size));
+        long value = copy[rank - 1];
+        cachedQuantile = value;
+        cachedAt = recorded;
+        return value;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry budget as a share of traffic: every call deposits {@code ratio} of a retry and every retry withdraws a
+ * whole one, so retries stay below {@code ratio} of calls over time. The balance is capped at {@code burst}
+ * retries and starts full, which lets sparse traffic retry at all.
+ */
+public final class RetryBudget {
+
+    private static final long UNIT = 1_000L;
+
+    private final long depositPerCall;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public RetryBudget(double ratio, int burst) {
+        this.depositPerCall = Math.round(Math.max(0d, ratio) * UNIT);
+        this.maxBalance = Math.max(1, burst) * UNIT;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + depositPerCall)));
+    }
+
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - UNIT));
+        return true;
+    }
+
+    /** Whole retries currently available. */
+    public long available() {
+        return balance.get() / UNIT;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free sliding-window budget: amounts are added to time buckets in a ring and the window total is the
+ * sum of the buckets that are still inside the window. Reservations are optimistic (add, then back out if the
+ * window went over the limit), so concurrent callers never overshoot the limit but may occasionally be
+ * turned away spuriously. Counts landing exactly on a bucket rollover may be lost, which only errs towards
+ * admitting slightly more.
+ */
+public final class SlidingWindowCounter {
+
+    private final long limit;
+    private final int buckets;
+    private final long bucketNanos;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray epochs;
+
+    public SlidingWindowCounter(long limit, long windowNanos, int buckets) {
+        this.limit = limit;
+        this.buckets = Math.max(1, buckets);
+        this.bucketNanos = Math.max(1L, windowNanos / this.buckets);
+        this.counts = new AtomicLongArray(this.buckets);
+        this.epochs = new AtomicLongArray(this.buckets);
+        for (int i = 0; i < this.buckets; i++) {
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public long limit() {
+        return limit;
+    }
+
+    /** Reserves {@code amount} if it fits in the window at {@code nowNanos}. */
+    public boolean tryAcquire(long amount, long nowNanos) {
+        add(amount, nowNanos);
+        if (used(nowNanos) <= limit) {
+            return true;
+        }
+        add(-amount, nowNanos);
+        return false;
+    }
+
+    /** Adds {@code amount} (possibly negative, to correct an earlier estimate) to the current bucket. */
+    public void add(long amount, long nowNanos) {
+        long epoch = Math.floorDiv(nowNanos, bucketNanos);
+        int index = (int) Math.floorMod(epoch, (long) buckets);
+        while (true) {
+            long current = epochs.get(index);
+            if (current == epoch) {
+                counts.addAndGet(index, amount);
+                return;
+            }
+            if (current > epoch) {
+                // the slot has already moved on; the amount belongs to a bucket that has left the window
+                return;
+            }
+            if (epochs.compareAndSet(index, current, epoch)) {
+                counts.set(index, 0L);
+            }
+        }
+    }
+
+    /** Total of the buckets inside the window at {@code nowNanos}, never negative. */
+    public long used(long nowNanos) {
+        long epoch = Math.floorDiv(nowNanos, bucketNanos);
+        long total = 0L;
+        for (int i = 0; i < buckets; i++) {
+            long bucketEpoch = epochs.get(i);
+            if (bucketEpoch > epoch - buckets && bucketEpoch <= epoch) {
+                total += counts.get(i);
+            }
+        }
+        return Math.max(0L, total);
+    }
+
+    public long remaining(long nowNanos) {
+        return Math.max(0L, limit - used(nowNanos));
+    }
+
+    /**
+     * Nanoseconds until enough of the window has expired for {@code amount} to fit, {@code 0} if it fits now,
+     * or {@code -1} if it can never fit.
+     */
+    public long nanosUntilAvailable(long amount, long nowNanos) {
+        if (amount > limit) {
+            return -1L;
+        }
+        long excess = used(nowNanos) + amount - limit;
+        if (excess <= 0) {
+            return 0L;
+        }
+        long epoch = Math.floorDiv(nowNanos, bucketNanos);
+        long freed = 0L;
+        for (long e = epoch - buckets + 1; e <= epoch; e++) {
+            int index = (int) Math.floorMod(e, (long) buckets);
+            if (epochs.get(index) == e) {
+                freed += counts.get(index);
+            }
+            if (freed >= excess) {
+                return (e + buckets) * bucketNanos - nowNanos;
+            }
+        }
+        return buckets * bucketNanos;
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache with W-TinyLFU-style admission. New entries land in a small LRU window; when the window
+ * overflows, its oldest entry only displaces the main region's LRU victim if a count-min sketch says it is
+ * requested more often, so one-off keys cannot flush popular ones. Entries expire after a fixed TTL and an
+ * optional byte budget bounds the summed entry weights.
+ *
+ * <p>Lookups go to a concurrent map and never block: the access is counted in the (thread-safe) sketch and
+ * the recency update is queued in a per-thread-stripe read buffer, as in Caffeine. Buffers are replayed into
+ * the LRU order under the cache lock by whichever reader fills one, or by the next write. A full buffer drops
+ * accesses, so recency is approximate under heavy contention. Writes and evictions take the lock; they never
+ * call back into user code except the weigher and the eviction listener.
+ */
+public final class TinyLfuCache<K, V> {
+
+    private static final int MAX_READ_BUFFERS = 16;
+
+    /** Why an entry left the cache. */
+    public enum RemovalCause {
+        SIZE,
+        EXPIRED,
+        BYTES
+    }
+
+    /** Notified, under the cache lock, when an entry is evicted. */
+    @FunctionalInterface
+    public interface EvictionListener<K> {
+        void onEviction(K key, RemovalCause cause);
+    }
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final long ttlNanos;
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final EvictionListener<K> listener;
+    private final CountMinSketch sketch;
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReadBuffer<K, V>[] readBuffers;
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final LinkedHashMap<K, Node<K, V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K, V>> main = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    /**
+     * @param maxEntries upper bound on cached entries
+     * @param ttlNanos time to live after insertion, or {@code 0} for no expiry
+     * @param maxBytes budget for the summed entry weights, or {@code 0} for no budget
+     * @param weigher estimated size of a value in bytes
+     */
+    @SuppressWarnings("unchecked")
+    public TinyLfuCache(
+            int maxEntries, long ttlNanos, long maxBytes, ToLongFunction<V> weigher, EvictionListener<K> listener) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.windowCapacity = Math.max(1, maxEntries / 100);
+        this.mainCapacity = Math.max(1, maxEntries - windowCapacity);
+        this.ttlNanos = ttlNanos;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.listener = listener;
+        // Several counters per entry keep collisions with one-off keys from inflating popular estimates.
+        int sketchWidth = Math.max(64, 4 * maxEntries);
+        this.sketch = new CountMinSketch(sketchWidth, 4, 15, 10L * sketchWidth);
+        int processors = Math.min(MAX_READ_BUFFERS, Runtime.getRuntime().availableProcessors());
+        this.readBuffers = newReadBuffers(Integer.highestOneBit(Math.max(2, processors) - 1) << 1);
+    }
+
+    /** Returns the live value for {@code key} or {@code null}; records the access for admission. */
+    public V get(K key) {
+        sketch.increment(key.hashCode());
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (isExpired(node, System.nanoTime())) {
+            lock.lock();
+            try {
+                if (data.remove(key, node)) {
+                    region(node).remove(key);
+                    bytes -= node.weight;
+                    listener.onEviction(key, RemovalCause.EXPIRED);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return null;
+        }
+        if (readBuffer().offer(node) && lock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        long weight = Math.max(0L, weigher.applyAsLong(value));
+        lock.lock();
+        try {
+            drainReadBuffers();
+            if (maxBytes > 0 && weight > maxBytes) {
+                listener.onEviction(key, RemovalCause.BYTES);
+                return;
+            }
+            long expiresAt = System.nanoTime() + ttlNanos;
+            Node<K, V> previous = data.get(key);
+            Node<K, V> node = new Node<>(key, value, weight, expiresAt, previous != null && previous.inMain);
+            data.put(key, node);
+            region(node).put(key, node);
+            bytes += weight - (previous != null ? previous.weight : 0L);
+            if (window.size() > windowCapacity) {
+                promoteFromWindow();
+            }
+            while (maxBytes > 0 && bytes > maxBytes && evictLru(main.isEmpty() ? window : main, RemovalCause.BYTES)) {
+                // keep evicting least recently used entries until the budget holds
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            drainReadBuffers();
+            data.clear();
+            window.clear();
+            main.clear();
+            bytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> ReadBuffer<K, V>[] newReadBuffers(int count) {
+        ReadBuffer<K, V>[] buffers = (ReadBuffer<K, V>[]) new ReadBuffer<?, ?>[count];
+        for (int i = 0; i < count; i++) {
+            buffers[i] = new ReadBuffer<>();
+        }
+        return buffers;
+    }
+
+    private ReadBuffer<K, V> readBuffer() {
+        long probe = Thread.currentThread().getId() * 0x9e3779b97f4a7c15L;
+        return readBuffers[(int) (probe >>> 32) & (readBuffers.length - 1)];
+    }
+
+    /** Replays buffered reads into the LRU order of their region. Caller holds the lock. */
+    private void drainReadBuffers() {
+        for (ReadBuffer<K, V> buffer : readBuffers) {
+            buffer.drain(this);
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (data.get(node.key) == node) {
+            // access-ordered map: the lookup moves the entry to the most recently used end
+            region(node).get(node.key);
+        }
+    }
+
+    private LinkedHashMap<K, Node<K, V>> region(Node<K, V> node) {
+        return node.inMain ? main : window;
+    }
+
+    private void promoteFromWindow() {
+        Iterator<Map.Entry<K, Node<K, V>>> candidates = window.entrySet().iterator();
+        Node<K, V> candidate = candidates.next().getValue();
+        candidates.remove();
+        if (main.size() < mainCapacity) {
+            candidate.inMain = true;
+            main.put(candidate.key, candidate);
+            return;
+        }
+        Node<K, V> victim = main.values().iterator().next();
+        if (isExpired(victim, System.nanoTime())
+                || sketch.estimate(candidate.key.hashCode()) > sketch.estimate(victim.key.hashCode())) {
+            main.remove(victim.key);
+            data.remove(victim.key, victim);
+            bytes -= victim.weight;
+            listener.onEviction(victim.key, RemovalCause.SIZE);
+            candidate.inMain = true;
+            main.put(candidate.key, candidate);
+        } else {
+            data.remove(candidate.key, candidate);
+            bytes -= candidate.weight;
+            listener.onEviction(candidate.key, RemovalCause.SIZE);
+        }
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return ttlNanos > 0 && now - node.expiresAtNanos > 0;
+    }
+
+    private boolean evictLru(LinkedHashMap<K, Node<K, V>> region, RemovalCause cause) {
+        Iterator<Node<K, V>> iterator = region.values().iterator();
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        Node<K, V> eldest = iterator.next();
+        iterator.remove();
+        data.remove(eldest.key, eldest);
+        bytes -= eldest.weight;
+        listener.onEviction(eldest.key, cause);
+        return true;
+    }
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private final long weight;
+        private final long expiresAtNanos;
+        // guarded by the cache lock
+        private boolean inMain;
+
+        private Node(K key, V value, long weight, long expiresAtNanos, boolean inMain) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAtNanos = expiresAtNanos;
+            this.inMain = inMain;
+        }
+    }
+
+    /**
+     * Lossy ring of recently read nodes, written by any reader without locking and drained under the cache
+     * lock. A reader that finds it full or loses a race drops its access.
+     */
+    private static final class ReadBuffer<K, V> {
+
+        private static final int SIZE = 16;
+        private static final int MASK = SIZE - 1;
+
+        private final AtomicReferenceArray<Node<K, V>> slots = new AtomicReferenceArray<>(SIZE);
+        private final AtomicLong writes = new AtomicLong();
+        // advanced only under the cache lock
+        private volatile long reads;
+
+        /** Records {@code node}; returns {@code true} when the buffer is full and should be drained. */
+        boolean offer(Node<K, V> node) {
+            long head = reads;
+            long tail = writes.get();
+            if (tail - head >= SIZE) {
+                return true;
+            }
+            if (writes.compareAndSet(tail, tail + 1)) {
+                slots.lazySet((int) tail & MASK, node);
+                return tail + 1 - head >= SIZE;
+            }
+            return false;
+        }
+
+        void drain(TinyLfuCache<K, V> cache) {
+            long head = reads;
+            long tail = writes.get();
+            for (; head != tail; head++) {
+                int index = (int) head & MASK;
+                Node<K, V> node = slots.get(index);
+                if (node == null) {
+                    // claimed but not yet written; picked up by the next drain
+                    break;
+                }
+                slots.lazySet(index, null);
+                cache.onAccess(node);
+            }
+            reads = head;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ContentSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storesIdenticalContentOnceAndReadsItBackAfterReopening() {
+        String reference;
+        try (ContentSpool spool = new ContentSpool(directory, 4096, 0)) {
+            reference = spool.append("what is a span?");
+            assertThat(spool.append("what is a span?")).isEqualTo(reference);
+            assertThat(spool.append("what is a trace?")).isNotEqualTo(reference);
+            assertThat(spool.read(reference)).isEqualTo("what is a span?");
+            assertThat(spool.read("unknown")).isNull();
+        }
+
+        try (ContentSpool reopened = new ContentSpool(directory, 4096, 0)) {
+            assertThat(reopened.read(reference)).isEqualTo("what is a span?");
+            assertThat(reopened.append("after restart")).isNotNull();
+        }
+    }
+
+    @Test
+    void rotatesSegmentsAndDeletesTheOldestBeyondBudget() throws Exception {
+        try (ContentSpool spool = new ContentSpool(directory, 1024, 2048)) {
+            String first = spool.append("a".repeat(900));
+            String second = spool.append("b".repeat(900));
+            String third = spool.append("c".repeat(900));
+            String large = spool.append("d".repeat(3000));
+
+            assertThat(spool.read(first)).isNull();
+            assertThat(spool.read(second)).isNull();
+            assertThat(spool.read(third)).isNull();
+            assertThat(spool.read(large)).hasSize(3000);
+            assertThat(spool.sizeInBytes()).isEqualTo(3000 + 20);
+            try (Stream<Path> files = Files.list(directory)) {
+                assertThat(files).hasSize(1);
+            }
+        }
+    }
+
+    @Test
+    void createsDirectoryAndSegmentsReadableByOwnerOnly() throws Exception {
+        assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path nested = directory.resolve("spool");
+        try (ContentSpool spool = new ContentSpool(nested, 4096, 0)) {
+            spool.append("what is a span?");
+        }
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(nested))).isEqualTo("rwx------");
+        try (Stream<Path> files = Files.list(nested)) {
+            assertThat(files).singleElement().satisfies(file ->
+                    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))).isEqualTo("rw-------"));
+        }
+        Path temporary = ContentSpool.createTempDirectory();
+        try {
+            assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(temporary))).isEqualTo("rwx------");
+        } finally {
+            Files.delete(temporary);
+        }
+    }
+
+    @Test
+    void temporarySpoolDeletesItsDirectoryOnClose() {
+        ContentSpool spool = ContentSpool.temporary(1024, 0);
+        Path temporary = spool.directory();
+        assertThat(spool.append("what is a span?")).isNotNull();
+        assertThat(temporary).isDirectoryContaining(path -> path.getFileName().toString().endsWith(".spool"));
+
+        spool.close();
+
+        assertThat(temporary).doesNotExist();
+    }
+}
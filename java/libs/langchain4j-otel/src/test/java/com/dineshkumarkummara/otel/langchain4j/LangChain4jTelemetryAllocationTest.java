@@ -0,0 +1,190 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Guards the per-call allocation budget of calls whose span was dropped by the sampler.
+ */
+class LangChain4jTelemetryAllocationTest {
+
+    /** Span builder, non-recording span, context scope and the decorator's lambda; no per-message cost. */
+    private static final long NON_RECORDING_BUDGET_BYTES = 1_024;
+    private static final int WARMUP_CALLS = 20_000;
+    private static final int MEASURED_CALLS = 10_000;
+
+    private final InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+    private final InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+    private SdkTracerProvider tracerProvider;
+    private SdkMeterProvider meterProvider;
+
+    @BeforeEach
+    void setUp() {
+        Assumptions.assumeTrue(allocationCounter() != null, "Thread allocation counting is not supported");
+        tracerProvider = SdkTracerProvider.builder()
+                .setSampler(Sampler.alwaysOff())
+                .addSpanProcessor(SimpleSpanProcessor.create(spanExporter))
+                .build();
+        meterProvider = SdkMeterProvider.builder().registerMetricReader(metricReader).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (tracerProvider != null) {
+            tracerProvider.close();
+        }
+        if (meterProvider != null) {
+            meterProvider.close();
+        }
+    }
+
+    @Test
+    void nonRecordingCallStaysWithinAllocationBudget() {
+        LangChain4jTelemetryProperties properties = properties(true);
+        try (LangChain4jTelemetry telemetry = telemetry(properties)) {
+            ChatLanguageModel model = instrumented(telemetry, properties);
+            List<ChatMessage> conversation = conversation(100);
+
+            long perCall = allocatedBytesPerCall(model, conversation);
+
+            assertThat(perCall).isLessThan(NON_RECORDING_BUDGET_BYTES);
+            assertThat(spanExporter.getFinishedSpanItems()).isEmpty();
+            assertThat(metricReader.collectAllMetrics())
+                    .extracting(metric -> metric.getName())
+                    .contains(
+                            "gen_ai.client.operation.duration",
+                            "gen_ai.client.token.usage",
+                            "gen_ai.client.tool.calls");
+        }
+    }
+
+    @Test
+    void nonRecordingCostDoesNotGrowWithConversationLength() {
+        LangChain4jTelemetryProperties properties = properties(true);
+        try (LangChain4jTelemetry telemetry = telemetry(properties)) {
+            ChatLanguageModel model = instrumented(telemetry, properties);
+
+            long shortConversation = allocatedBytesPerCall(model, conversation(1));
+            long longConversation = allocatedBytesPerCall(model, conversation(100));
+
+            assertThat(longConversation).isLessThan(shortConversation + 128);
+        }
+    }
+
+    @Test
+    void disablingFastPathPaysForEventConstruction() {
+        LangChain4jTelemetryProperties fastProperties = properties(true);
+        LangChain4jTelemetryProperties slowProperties = properties(false);
+        try (LangChain4jTelemetry fastTelemetry = telemetry(fastProperties);
+                LangChain4jTelemetry slowTelemetry = telemetry(slowProperties)) {
+            ChatLanguageModel fastPath = instrumented(fastTelemetry, fastProperties);
+            ChatLanguageModel slowPath = instrumented(slowTelemetry, slowProperties);
+            List<ChatMessage> conversation = conversation(100);
+
+            long fast = allocatedBytesPerCall(fastPath, conversation);
+            long slow = allocatedBytesPerCall(slowPath, conversation);
+
+            assertThat(slow).isGreaterThan(fast * 4);
+        }
+    }
+
+    private static LangChain4jTelemetryProperties properties(boolean fastPath) {
+        LangChain4jTelemetryProperties properties = new LangChain4jTelemetryProperties();
+        properties.setCapturePrompts(true);
+        properties.setCaptureCompletions(true);
+        properties.setNonRecordingFastPath(fastPath);
+        properties.getCost().setEnabled(true);
+        properties.getCost().setInputPerThousand(0.001);
+        properties.getCost().setOutputPerThousand(0.002);
+        return properties;
+    }
+
+    private LangChain4jTelemetry telemetry(LangChain4jTelemetryProperties properties) {
+        OpenTelemetrySdk sdk = OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setMeterProvider(meterProvider)
+                .build();
+        return new LangChain4jTelemetry(sdk, properties);
+    }
+
+    private static ChatLanguageModel instrumented(
+            LangChain4jTelemetry telemetry, LangChain4jTelemetryProperties properties) {
+        Response<AiMessage> response = Response.from(
+                new AiMessage("done", List.of(ToolExecutionRequest.builder().id("1").name("search").arguments("{}").build())),
+                new TokenUsage(32, 12, 44),
+                FinishReason.STOP);
+        ChatLanguageModel stub = messages -> response;
+        return OtelChatLanguageModel.wrap(stub, telemetry, properties, new LangChain4jModelIntrospector());
+    }
+
+    private static List<ChatMessage> conversation(int size) {
+        List<ChatMessage> messages = new ArrayList<>(size);
+        messages.add(SystemMessage.from("You are a helpful assistant."));
+        for (int i = 1; i < size; i++) {
+            messages.add(UserMessage.from("question number " + i + " ".repeat(64)));
+        }
+        return messages;
+    }
+
+    private static long allocatedBytesPerCall(ChatLanguageModel model, List<ChatMessage> messages) {
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            model.generate(messages);
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            model.generate(messages);
+        }
+        long after = threads.getThreadAllocatedBytes(threadId);
+        return (after - before) / MEASURED_CALLS;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,1891 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.CircuitBreaker;
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageType;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.logs.SdkLoggerProvider;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.SimpleLogRecordProcessor;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.MetricDataType;
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.testing.exporter.InMemoryLogRecordExporter;
+import io.opentelemetry.sdk.testing.exporter.InMemoryMetricReader;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class LangChain4jTelemetryTest {
+
+    private final InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+    private final InMemoryMetricReader metricReader = InMemoryMetricReader.create();
+    private SdkTracerProvider tracerProvider;
+    private SdkMeterProvider meterProvider;
+    private OpenTelemetrySdk sdk;
+    private LangChain4jTelemetryProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(spanExporter))
+                .build();
+        meterProvider = SdkMeterProvider.builder().registerMetricReader(metricReader).build();
+        sdk = OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setMeterProvider(meterProvider)
+                .build();
+        properties = new LangChain4jTelemetryProperties();
+        properties.setDefaultModel("gpt-4o");
+        properties.getTuning().setTemperature(0.3d);
+        properties.getTuning().setStopSequences(List.of("###"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+        meterProvider.close();
+    }
+
+    @Test
+    void metricsCarryOnlyProjectedAttributes() {
+        ChatLanguageModel model = instrument(stub(List.of()));
+
+        model.generate(List.of(UserMessage.from("ping")));
+
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getAttributes().get(AttributeKey.doubleKey("gen_ai.request.temperature"))).isEqualTo(0.3d);
+        assertThat(pointAttributes("gen_ai.client.operation.duration"))
+                .allSatisfy(attributes -> assertThat(attributes.asMap().keySet())
+                        .extracting(AttributeKey::getKey)
+                        .containsExactlyInAnyOrder("gen_ai.system", "gen_ai.operation.name", "gen_ai.request.model"));
+    }
+
+    @Test
+    void foldsToolNamesBeyondCardinalityLimit() {
+        properties.getMetrics().setCardinalityLimit(2);
+        List<ToolExecutionRequest> tools = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tools.add(ToolExecutionRequest.builder().id("call-" + i).name("tool-" + i).arguments("{}").build());
+        }
+        ChatLanguageModel model = instrument(stub(tools));
+
+        model.generate(List.of(UserMessage.from("ping")));
+
+        Set<String> toolNames = pointAttributes("gen_ai.client.tool.calls").stream()
+                .map(attributes -> attributes.get(AttributeKey.stringKey("tool.name")))
+                .collect(Collectors.toSet());
+        assertThat(toolNames).containsExactlyInAnyOrder("tool-0", "tool-1", "other");
+    }
+
+    @Test
+    void durationHistogramUsesGenAiBucketAdvice() {
+        ChatLanguageModel model = instrument(stub(List.of()));
+
+        model.generate(List.of(UserMessage.from("ping")));
+
+        MetricData duration = metric("gen_ai.client.operation.duration");
+        assertThat(duration.getType()).isEqualTo(MetricDataType.HISTOGRAM);
+        assertThat(duration.getHistogramData().getPoints())
+                .allSatisfy(point -> assertThat(point.getBoundaries())
+                        .isEqualTo(properties.getMetrics().getDurationBuckets()));
+    }
+
+    @Test
+    void viewsSwitchHistogramsToBase2Exponential() {
+        properties.getMetrics().setHistogramAggregation(LangChain4jTelemetryProperties.HistogramAggregation.BASE2_EXPONENTIAL);
+        InMemoryMetricReader exponentialReader = InMemoryMetricReader.create();
+        meterProvider.close();
+        meterProvider = GenAiMetricViews.register(SdkMeterProvider.builder(), properties)
+                .registerMetricReader(exponentialReader)
+                .build();
+        sdk = OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setMeterProvider(meterProvider)
+                .build();
+        ChatLanguageModel model = instrument(stub(List.of()));
+
+        model.generate(List.of(UserMessage.from("ping")));
+
+        assertThat(exponentialReader.collectAllMetrics())
+                .filteredOn(metric -> metric.getName().equals("gen_ai.client.operation.duration")
+                        || metric.getName().equals("gen_ai.client.token.usage"))
+                .hasSize(2)
+                .allSatisfy(metric -> assertThat(metric.getType()).isEqualTo(MetricDataType.EXPONENTIAL_HISTOGRAM));
+    }
+
+    @Test
+    void streamingSpanEndsOnCompletionAndRecordsTokenLatencies() {
+        StreamingChatLanguageModel delegate = (messages, handler) -> {
+            handler.onNext("po");
+            handler.onNext("ng");
+            handler.onComplete(Response.from(AiMessage.from("pong"), new TokenUsage(8, 2, 10), FinishReason.STOP));
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        StreamingChatLanguageModel model = OtelStreamingChatLanguageModel.wrap(
+                delegate, telemetry, properties, new LangChain4jModelIntrospector());
+        List<String> received = new ArrayList<>();
+
+        model.generate(List.of(UserMessage.from("ping")), new StreamingResponseHandler<AiMessage>() {
+            @Override
+            public void onNext(String token) {
+                received.add(token);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        });
+
+        assertThat(received).containsExactly("po", "ng");
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getAttributes().get(AttributeKey.booleanKey("gen_ai.request.streaming"))).isTrue();
+        assertThat(span.getEvents()).extracting(event -> event.getName()).contains("gen_ai.first_token");
+        assertThat(metric("gen_ai.client.time_to_first_token").getHistogramData().getPoints()).hasSize(1);
+        assertThat(metric("gen_ai.client.time_per_output_token").getHistogramData().getPoints()).hasSize(1);
+    }
+
+    @Test
+    void streamingHandlerRunsInsideLiveSpanAndSurvivesTelemetryFailures() {
+        StreamingChatLanguageModel delegate = (messages, handler) -> {
+            handler.onNext("pong");
+            handler.onComplete(Response.from(AiMessage.from("pong"), new TokenUsage(8, 1, 9), FinishReason.STOP));
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        StreamingChatLanguageModel model = OtelStreamingChatLanguageModel.wrap(
+                delegate, telemetry, properties, new LangChain4jModelIntrospector());
+        List<Boolean> recordingOnComplete = new ArrayList<>();
+
+        model.generate(List.of(UserMessage.from("ping")), new StreamingResponseHandler<AiMessage>() {
+            @Override
+            public void onNext(String token) {
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                recordingOnComplete.add(Span.current().isRecording());
+                sdk.getTracer("test").spanBuilder("handle").startSpan().end();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        });
+
+        assertThat(recordingOnComplete).containsExactly(true);
+        SpanData handle = spanExporter.getFinishedSpanItems().get(0);
+        SpanData stream = spanExporter.getFinishedSpanItems().get(1);
+        assertThat(handle.getParentSpanId()).isEqualTo(stream.getSpanId());
+        assertThat(stream.getEndEpochNanos()).isGreaterThanOrEqualTo(handle.getEndEpochNanos());
+
+        SdkTracerProvider failingProvider =
+                SdkTracerProvider.builder().addSpanProcessor(failingOnEnd()).build();
+        LangChain4jTelemetry failing = new LangChain4jTelemetry(
+                OpenTelemetrySdk.builder().setTracerProvider(failingProvider).build(), properties);
+        StreamingChatLanguageModel failingModel = OtelStreamingChatLanguageModel.wrap(
+                delegate, failing, properties, new LangChain4jModelIntrospector());
+        List<String> received = new ArrayList<>();
+
+        failingModel.generate(List.of(UserMessage.from("ping")), new StreamingResponseHandler<AiMessage>() {
+            @Override
+            public void onNext(String token) {
+                received.add(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                received.add("complete");
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                received.add("error");
+            }
+        });
+
+        assertThat(received).containsExactly("pong", "complete");
+        failingProvider.close();
+    }
+
+    @Test
+    void streamingSpanEndsWhenPromptCaptureFails() {
+        properties.setCapturePrompts(true);
+        properties.getLiveStats().setEnabled(true);
+        StreamingChatLanguageModel delegate = (messages, handler) ->
+                handler.onComplete(Response.from(AiMessage.from("pong")));
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        StreamingChatLanguageModel model = OtelStreamingChatLanguageModel.wrap(
+                delegate, telemetry, properties, new LangChain4jModelIntrospector());
+        ChatMessage broken = new ChatMessage() {
+            @Override
+            public ChatMessageType type() {
+                throw new IllegalStateException("unreadable message");
+            }
+
+            @Override
+            public String text() {
+                return "ping";
+            }
+        };
+
+        assertThatThrownBy(() -> model.generate(List.of(broken), new StreamingResponseHandler<AiMessage>() {
+            @Override
+            public void onNext(String token) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(spanExporter.getFinishedSpanItems()).singleElement().satisfies(span -> {
+            assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+            assertThat(span.getAttributes().get(AttributeKey.stringKey("error.type")))
+                    .isEqualTo(IllegalStateException.class.getName());
+        });
+        assertThat(telemetry.liveStats().snapshots())
+                .singleElement()
+                .satisfies(snapshot -> assertThat(snapshot.inFlight()).isZero());
+    }
+
+    @Test
+    void asyncCallIsParentedToCallerContextAndEndsOnCompletion() throws Exception {
+        OtelChatLanguageModel model = (OtelChatLanguageModel) instrument(stub(List.of()));
+        Span parent = sdk.getTracer("test").spanBuilder("request").startSpan();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (Scope ignored = parent.makeCurrent()) {
+            model.generateAsync(List.of(UserMessage.from("ping")), executor).get(5, TimeUnit.SECONDS);
+        } finally {
+            parent.end();
+            executor.shutdownNow();
+        }
+
+        SpanData span = spanExporter.getFinishedSpanItems().stream()
+                .filter(data -> !data.getName().equals("request"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(span.getParentSpanId()).isEqualTo(parent.getSpanContext().getSpanId());
+        assertThat(span.getAttributes().get(AttributeKey.longKey("gen_ai.usage.output_tokens"))).isEqualTo(4L);
+    }
+
+    @Test
+    void asyncToolCallsAreInstrumented() throws Exception {
+        ChatLanguageModel tools = new ChatLanguageModel() {
+            @Override
+            public Response<AiMessage> generate(List<ChatMessage> messages) {
+                throw new AssertionError("tool specification dropped");
+            }
+
+            @Override
+            public Response<AiMessage> generate(
+                    List<ChatMessage> messages, ToolSpecification toolSpecification) {
+                return Response.from(AiMessage.from(ToolExecutionRequest.builder()
+                        .id("1")
+                        .name(toolSpecification.name())
+                        .arguments("{}")
+                        .build()));
+            }
+        };
+        OtelChatLanguageModel model = (OtelChatLanguageModel) instrument(tools);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Response<AiMessage> response = model.generateAsync(
+                            List.of(UserMessage.from("ping")),
+                            ToolSpecification.builder().name("search").build(),
+                            executor)
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(response.content().toolExecutionRequests()).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(pointAttributes("gen_ai.client.tool.calls"))
+                .extracting(attributes -> attributes.get(AttributeKey.stringKey("tool.name")))
+                .containsExactly("search");
+    }
+
+    @Test
+    void asyncResultCompletesWhenRecordingFailsOrStageIsNull() throws Exception {
+        SdkTracerProvider failingProvider = SdkTracerProvider.builder().addSpanProcessor(failingOnEnd()).build();
+        LangChain4jTelemetry failing = new LangChain4jTelemetry(
+                OpenTelemetrySdk.builder().setTracerProvider(failingProvider).build(), properties);
+        LangChain4jTelemetry.ChatInvocationContext context = new LangChain4jTelemetry.ChatInvocationContext(
+                ModelProfile.create(properties, null, null, null, null, null, null, null, false, null),
+                List.of(UserMessage.from("ping")));
+        CompletableFuture<Response<AiMessage>> pending = new CompletableFuture<>();
+
+        CompletableFuture<Response<AiMessage>> result = failing.instrumentChatAsync(context, () -> pending);
+        pending.complete(Response.from(AiMessage.from("pong")));
+
+        assertThat(result.get(5, TimeUnit.SECONDS).content().text()).isEqualTo("pong");
+        failingProvider.close();
+
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        assertThatThrownBy(() -> telemetry.instrumentChatAsync(context, () -> null))
+                .isInstanceOf(NullPointerException.class);
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+        assertThat(span.getAttributes().get(AttributeKey.stringKey("error.type")))
+                .isEqualTo(NullPointerException.class.getName());
+    }
+
+    @Test
+    void asyncCallFailsItsFutureWhenTheExecutorRejectsIt() {
+        OtelChatLanguageModel model = (OtelChatLanguageModel) instrument(stub(List.of()));
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("executor saturated");
+        };
+
+        CompletableFuture<Response<AiMessage>> result = model.generateAsync(List.of(UserMessage.from("ping")), rejecting);
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getAttributes().get(AttributeKey.stringKey("error.type")))
+                .isEqualTo(RejectedExecutionException.class.getName());
+    }
+
+    @Test
+    void cancellationIsRecordedSeparatelyFromErrors() {
+        properties.setCapturePrompts(true);
+        properties.getCapture().setConditional(true);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        CompletableFuture<Response<AiMessage>> pending = new CompletableFuture<>();
+        CompletableFuture<Response<AiMessage>> result = telemetry.instrumentChatAsync(
+                new LangChain4jTelemetry.ChatInvocationContext(
+                        ModelProfile.create(properties, null, null, null, null, null, null, null, false, null),
+                        List.of(UserMessage.from("ping"))),
+                () -> pending);
+
+        result.cancel(true);
+
+        assertThat(pending).isCancelled();
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getAttributes().get(AttributeKey.stringKey("error.type"))).isEqualTo("cancelled");
+        assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.UNSET);
+        // a cancelled call is not kept as an error capture
+        assertThat(span.getAttributes().get(AttributeKey.stringKey("gen_ai.capture.reason"))).isNull();
+        assertThat(span.getEvents()).extracting(event -> event.getName()).doesNotContain("gen_ai.user.message");
+        assertThat(pointAttributes("gen_ai.client.operation.errors")).isEmpty();
+        assertThat(pointAttributes("gen_ai.client.operation.duration"))
+                .extracting(attributes -> attributes.get(AttributeKey.stringKey("error.type")))
+                .containsExactly("cancelled");
+    }
+
+    @Test
+    void asynchronousCaptureAddsContentEventsOffThread() {
+        properties.setCapturePrompts(true);
+        properties.setCaptureCompletions(true);
+        properties.getCapture().setMode(LangChain4jTelemetryProperties.CaptureMode.ASYNCHRONOUS);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                stub(List.of()), telemetry, properties, new LangChain4jModelIntrospector());
+
+        model.generate(List.of(UserMessage.from("ping")));
+        telemetry.close();
+
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getEvents())
+                .extracting(event -> event.getName())
+                .containsExactly("gen_ai.user.message", "gen_ai.assistant.message");
+        assertThat(span.getEvents().get(1).getEpochNanos()).isLessThanOrEqualTo(span.getEndEpochNanos());
+        assertThat(span.getStartEpochNanos()).isLessThan(span.getEndEpochNanos());
+    }
+
+    @Test
+    void asynchronousCaptureSnapshotsMessagesAndEndsLateSpans() {
+        properties.setCapturePrompts(true);
+        properties.getCapture().setMode(LangChain4jTelemetryProperties.CaptureMode.ASYNCHRONOUS);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                stub(List.of()), telemetry, properties, new LangChain4jModelIntrospector());
+
+        List<ChatMessage> history = new ArrayList<>(List.of(UserMessage.from("ping")));
+        history.add(model.generate(history).content());
+        history.add(UserMessage.from("again"));
+        telemetry.close();
+        model.generate(history);
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans).hasSize(2);
+        // the reply the caller appended afterwards is not part of the first call's prompt
+        assertThat(spans.get(0).getEvents())
+                .extracting(event -> event.getName())
+                .containsExactly("gen_ai.user.message");
+        assertThat(spans.get(1).getEvents()).isEmpty();
+        assertThat(metric(ContentCapture.METRIC_DROPPED).getLongSumData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isEqualTo(1L));
+    }
+
+    @Test
+    void conditionalCaptureKeepsContentOnlyForMatchingCalls() {
+        properties.setCapturePrompts(true);
+        properties.setCaptureCompletions(true);
+        properties.getCapture().setConditional(true);
+        properties.getCapture().setTokenThreshold(100);
+        ChatLanguageModel ordinary = instrument(stub(List.of()));
+        ChatLanguageModel failing = instrument(messages -> {
+            throw new IllegalStateException("boom");
+        });
+
+        ordinary.generate(List.of(UserMessage.from("ping")));
+        try {
+            failing.generate(List.of(UserMessage.from("ping")));
+        } catch (IllegalStateException expected) {
+            // recorded on the span
+        }
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans.get(0).getEvents()).isEmpty();
+        assertThat(spans.get(0).getAttributes().get(AttributeKey.stringKey("gen_ai.capture.reason"))).isNull();
+        assertThat(spans.get(1).getAttributes().get(AttributeKey.stringKey("gen_ai.capture.reason"))).isEqualTo("error");
+        assertThat(spans.get(1).getEvents()).extracting(event -> event.getName()).contains("gen_ai.user.message");
+    }
+
+    @Test
+    void contentGoesToCorrelatedLogRecordsWhenRoutedToLogs() {
+        properties.setCapturePrompts(true);
+        properties.setCaptureCompletions(true);
+        properties.getCapture().setDestination(LangChain4jTelemetryProperties.ContentDestination.LOGS);
+        InMemoryLogRecordExporter logExporter = InMemoryLogRecordExporter.create();
+        InMemoryLogRecordExporter applicationExporter = InMemoryLogRecordExporter.create();
+        SdkLoggerProvider applicationLogs = SdkLoggerProvider.builder()
+                .addLogRecordProcessor(SimpleLogRecordProcessor.create(applicationExporter))
+                .build();
+        sdk = OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setMeterProvider(meterProvider)
+                .setLoggerProvider(applicationLogs)
+                .build();
+        GenAiContentLogs contentLogs = GenAiContentLogs.create(logExporter, properties);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, contentLogs, properties);
+        ChatLanguageModel model =
+                OtelChatLanguageModel.wrap(stub(List.of()), telemetry, properties, new LangChain4jModelIntrospector());
+
+        model.generate(List.of(UserMessage.from("ping")));
+        sdk.getLogsBridge().get("application").logRecordBuilder().setBody("unrelated").emit();
+        contentLogs.forceFlush().join(5, TimeUnit.SECONDS);
+
+        assertThat(applicationExporter.getFinishedLogRecordItems())
+                .extracting(record -> record.getBodyValue().asString())
+                .containsExactly("unrelated");
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getEvents()).isEmpty();
+        List<LogRecordData> records = logExporter.getFinishedLogRecordItems();
+        assertThat(records)
+                .extracting(record -> record.getAttributes().get(AttributeKey.stringKey("event.name")))
+                .containsExactly("gen_ai.user.message", "gen_ai.assistant.message");
+        assertThat(records).extracting(record -> record.getBodyValue().asString()).containsExactly("ping", "pong");
+        assertThat(records).allSatisfy(record -> {
+            assertThat(record.getSpanContext().getTraceId()).isEqualTo(span.getTraceId());
+            assertThat(record.getSpanContext().getSpanId()).isEqualTo(span.getSpanId());
+            assertThat(record.getAttributes().get(AttributeKey.stringKey("gen_ai.prompt.content"))).isNull();
+        });
+        contentLogs.close();
+        applicationLogs.close();
+    }
+
+    @Test
+    void spooledContentIsReferencedFromEventsAndReadableInFull(@TempDir Path directory) {
+        properties.setCapturePrompts(true);
+        properties.setCaptureCompletions(true);
+        properties.getCapture().getSpool().setEnabled(true);
+        properties.getCapture().getSpool().setDirectory(directory);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                stub(List.of()), telemetry, properties, new LangChain4jModelIntrospector());
+        String prompt = "context ".repeat(1000);
+
+        model.generate(List.of(UserMessage.from(prompt)));
+
+        Attributes event = spanExporter.getFinishedSpanItems().get(0).getEvents().get(0).getAttributes();
+        assertThat(event.get(AttributeKey.stringKey("gen_ai.prompt.content"))).isNull();
+        assertThat(event.get(AttributeKey.longKey("gen_ai.prompt.content.length"))).isEqualTo(prompt.length());
+        String reference = event.get(AttributeKey.stringKey("gen_ai.prompt.content.ref"));
+        assertThat(telemetry.contentSpool().read(reference)).isEqualTo(prompt);
+        telemetry.close();
+    }
+
+    @Test
+    void incrementalCaptureEmitsOnlyNewMessagesAndLinksPreviousTurn() {
+        properties.setCapturePrompts(true);
+        properties.setCaptureCompletions(true);
+        properties.getCapture().setIncremental(true);
+        ChatLanguageModel model = instrument(stub(List.of()));
+        SystemMessage system = SystemMessage.from("be brief");
+
+        model.generate(List.of(system, UserMessage.from("hi")));
+        model.generate(List.of(system, UserMessage.from("hi"), AiMessage.from("pong"), UserMessage.from("more")));
+        model.generate(List.of(system, UserMessage.from("hi"), AiMessage.from("edited"), UserMessage.from("more")));
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans.get(0).getEvents()).hasSize(3);
+        SpanData second = spans.get(1);
+        assertThat(second.getEvents())
+                .extracting(event -> event.getName())
+                .containsExactly("gen_ai.user.message", "gen_ai.assistant.message");
+        assertThat(second.getEvents().get(0).getAttributes().get(AttributeKey.stringKey("gen_ai.prompt.content")))
+                .isEqualTo("more");
+        assertThat(second.getAttributes().get(AttributeKey.longKey("gen_ai.conversation.captured_messages")))
+                .isEqualTo(3L);
+        assertThat(second.getLinks()).singleElement()
+                .satisfies(link -> assertThat(link.getSpanContext()).isEqualTo(spans.get(0).getSpanContext()));
+        assertThat(spans.get(2).getEvents()).hasSize(4);
+        assertThat(spans.get(2).getLinks()).isEmpty();
+    }
+
+    @Test
+    void incrementalCaptureDoesNotCountUncapturedRepliesAsCaptured() {
+        properties.setCapturePrompts(true);
+        properties.getCapture().setIncremental(true);
+        ChatLanguageModel model = instrument(stub(List.of()));
+
+        model.generate(List.of(UserMessage.from("hi")));
+        model.generate(List.of(UserMessage.from("hi"), AiMessage.from("pong"), UserMessage.from("more")));
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        SpanData second = spans.get(1);
+        assertThat(second.getEvents()).singleElement()
+                .satisfies(event -> assertThat(event.getAttributes().get(AttributeKey.stringKey("gen_ai.prompt.content")))
+                        .isEqualTo("more"));
+        assertThat(second.getAttributes().get(AttributeKey.longKey("gen_ai.conversation.captured_messages")))
+                .isEqualTo(1L);
+        assertThat(second.getLinks()).singleElement()
+                .satisfies(link -> assertThat(link.getSpanContext()).isEqualTo(spans.get(0).getSpanContext()));
+    }
+
+    @Test
+    void promptFingerprintsFeedDuplicateAndHotPromptMetrics() {
+        properties.getPromptAnalytics().setEnabled(true);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        ChatLanguageModel model =
+                OtelChatLanguageModel.wrap(stub(List.of()), telemetry, properties, new LangChain4jModelIntrospector());
+
+        model.generate(List.of(UserMessage.from("ping")));
+        model.generate(List.of(UserMessage.from("  ping ")));
+        model.generate(List.of(UserMessage.from("other")));
+
+        AttributeKey<String> fingerprintKey = AttributeKey.stringKey("gen_ai.prompt.fingerprint");
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        String ping = spans.get(0).getAttributes().get(fingerprintKey);
+        assertThat(spans.get(1).getAttributes().get(fingerprintKey)).isEqualTo(ping);
+        assertThat(spans.get(2).getAttributes().get(fingerprintKey)).isNotEqualTo(ping);
+        assertThat(metric("gen_ai.client.prompt.duplicates").getLongSumData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isEqualTo(1L));
+        assertThat(metric("gen_ai.client.prompt.distinct").getLongGaugeData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isEqualTo(2L));
+        assertThat(metric("gen_ai.client.prompt.duplicate_ratio").getDoubleGaugeData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isCloseTo(1d / 3, within(1e-9)));
+        assertThat(metric("gen_ai.client.prompt.hot").getLongGaugeData().getPoints())
+                .singleElement()
+                .satisfies(point -> {
+                    assertThat(point.getAttributes().isEmpty()).isTrue();
+                    assertThat(point.getValue()).isEqualTo(2L);
+                });
+        assertThat(telemetry.hotPrompts())
+                .first()
+                .isEqualTo(new LangChain4jTelemetry.HotPrompt(ping, 2L));
+        assertThat(GenAiEndpoint.create(telemetry).stats())
+                .containsEntry("hotPrompts", telemetry.hotPrompts());
+    }
+
+    @Test
+    void liveStatsTrackLatencyErrorsAndTokensPerModel() {
+        properties.getLiveStats().setEnabled(true);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(stub(List.of()), telemetry, properties, introspector);
+        ChatLanguageModel failing = OtelChatLanguageModel.wrap(messages -> {
+            throw new IllegalStateException("boom");
+        }, telemetry, properties, introspector);
+
+        for (int i = 0; i < 3; i++) {
+            model.generate(List.of(UserMessage.from("ping")));
+        }
+        try {
+            failing.generate(List.of(UserMessage.from("ping")));
+        } catch (IllegalStateException expected) {
+            // counted as an error
+        }
+
+        List<GenAiLiveStats.Snapshot> snapshots = telemetry.liveStats().snapshots();
+        assertThat(snapshots).singleElement().satisfies(snapshot -> {
+            assertThat(snapshot.calls()).isEqualTo(4L);
+            assertThat(snapshot.errorRate()).isEqualTo(0.25);
+            assertThat(snapshot.inFlight()).isZero();
+            assertThat(snapshot.latencyP50()).isPositive();
+            assertThat(snapshot.latencyP99()).isGreaterThanOrEqualTo(snapshot.latencyP50());
+            assertThat(snapshot.outputTokensPerSecond()).isPositive();
+        });
+        GenAiLiveStats.Snapshot first = snapshots.get(0);
+        assertThat(telemetry.liveStats().snapshot(first.model(), first.operation())).isNotNull();
+        assertThat(new GenAiEndpoint(telemetry.liveStats()).stats())
+                .containsEntry("window", "PT1M")
+                .containsKey("models");
+    }
+
+    @Test
+    void liveStatsKeepOneSeriesPerModelAcrossPerCallContexts() {
+        properties.getLiveStats().setEnabled(true);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+
+        for (int i = 0; i < 3; i++) {
+            LangChain4jTelemetry.ChatInvocationContext context = new LangChain4jTelemetry.ChatInvocationContext(
+                    properties, List.of(UserMessage.from("ping")), "gpt-4o", "openai", "chat",
+                    null, null, null, null, false, null);
+            telemetry.instrumentChat(context, () -> Response.from(AiMessage.from("pong")));
+        }
+
+        assertThat(telemetry.liveStats().snapshots()).singleElement().satisfies(snapshot -> {
+            assertThat(snapshot.model()).isEqualTo("gpt-4o");
+            assertThat(snapshot.calls()).isEqualTo(3L);
+        });
+        assertThat(new GenAiEndpoint(null).stats())
+                .containsEntry("enabled", false)
+                .containsEntry("models", List.of());
+    }
+
+    @Test
+    void cacheHitIsServedWithoutDelegateAndMarkedOnSpan() {
+        properties.getCache().setEnabled(true);
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            calls.incrementAndGet();
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                CachingChatLanguageModel.wrap(delegate, telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+
+        model.generate(List.of(UserMessage.from("What is   OTel?")));
+        model.generate(List.of(UserMessage.from(" What is OTel? ")));
+
+        assertThat(calls).hasValue(1);
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans).extracting(span -> span.getAttributes().get(AttributeKey.booleanKey("gen_ai.response.cached")))
+                .containsExactly(false, true);
+        assertThat(metric("gen_ai.client.cache.hits").getLongSumData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isEqualTo(1L));
+    }
+
+    @Test
+    void refreshedMetadataReachesTheSpanAttributes() {
+        TunableModel delegate = new TunableModel("gpt-4o", 0.2d);
+        OtelChatLanguageModel model = (OtelChatLanguageModel) instrument(delegate);
+        AttributeKey<Double> temperature = AttributeKey.doubleKey("gen_ai.request.temperature");
+
+        model.generate(List.of(UserMessage.from("ping")));
+        delegate.setTemperature(0.9d);
+        model.generate(List.of(UserMessage.from("ping")));
+        model.refreshMetadata();
+        model.generate(List.of(UserMessage.from("ping")));
+
+        // the wrap-time snapshot holds until the refresh
+        assertThat(spanExporter.getFinishedSpanItems())
+                .extracting(span -> span.getAttributes().get(temperature))
+                .containsExactly(0.2d, 0.2d, 0.9d);
+    }
+
+    @Test
+    void cachesKeyOnRefreshedModelParameters() {
+        properties.getCache().setEnabled(true);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        TunableModel exact = new TunableModel("gpt-4o", 0.2d);
+        OtelChatLanguageModel cached = (OtelChatLanguageModel) OtelChatLanguageModel.wrap(
+                CachingChatLanguageModel.wrap(exact, telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+        TunableModel similar = new TunableModel("gpt-4o", 0.2d);
+        OtelChatLanguageModel semantic = (OtelChatLanguageModel) OtelChatLanguageModel.wrap(
+                SemanticCachingChatLanguageModel.wrap(similar, null, telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+
+        for (OtelChatLanguageModel model : List.of(cached, semantic)) {
+            model.generate(List.of(UserMessage.from("ping")));
+            model.generate(List.of(UserMessage.from("ping")));
+        }
+        exact.setTemperature(0.9d);
+        cached.refreshMetadata();
+        similar.setTemperature(0.9d);
+        semantic.refreshMetadata();
+        for (OtelChatLanguageModel model : List.of(cached, semantic)) {
+            model.generate(List.of(UserMessage.from("ping")));
+            model.generate(List.of(UserMessage.from("ping")));
+        }
+
+        // one upstream call per temperature, the repeat is a hit
+        assertThat(exact.calls()).isEqualTo(2);
+        assertThat(similar.calls()).isEqualTo(2);
+    }
+
+    @Test
+    void cacheHitRecordsNoTokenUsage() {
+        properties.getCache().setEnabled(true);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                CachingChatLanguageModel.wrap(stub(List.of()), telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+
+        model.generate(List.of(UserMessage.from("ping")));
+        model.generate(List.of(UserMessage.from("ping")));
+
+        SpanData hit = spanExporter.getFinishedSpanItems().get(1);
+        assertThat(hit.getAttributes().get(AttributeKey.booleanKey("gen_ai.response.cached"))).isTrue();
+        assertThat(hit.getAttributes().get(AttributeKey.longKey("gen_ai.usage.input_tokens"))).isNull();
+        assertThat(metric("gen_ai.client.token.usage").getHistogramData().getPoints())
+                .hasSize(2)
+                .allSatisfy(point -> assertThat(point.getCount()).isEqualTo(1L));
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneUpstreamCall() throws Exception {
+        properties.setCoalesceRequests(true);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ChatLanguageModel model = instrument(messages -> {
+            calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Response<AiMessage>> leader = executor.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            while (calls.get() == 0) {
+                Thread.sleep(1);
+            }
+            Future<Response<AiMessage>> follower = executor.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            while (pointAttributes("gen_ai.client.requests.coalesced").isEmpty()) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertThat(follower.get(5, TimeUnit.SECONDS).content().text()).isEqualTo("pong");
+            assertThat(leader.get(5, TimeUnit.SECONDS).content().text()).isEqualTo("pong");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(calls).hasValue(1);
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        SpanData followerSpan = spans.stream()
+                .filter(span -> Boolean.TRUE.equals(span.getAttributes().get(AttributeKey.booleanKey("gen_ai.request.coalesced"))))
+                .findFirst()
+                .orElseThrow();
+        SpanData leaderSpan = spans.stream().filter(span -> span != followerSpan).findFirst().orElseThrow();
+        assertThat(followerSpan.getLinks())
+                .singleElement()
+                .satisfies(link -> assertThat(link.getSpanContext()).isEqualTo(leaderSpan.getSpanContext()));
+    }
+
+    @Test
+    void followersFailWhenCoalescedLeaderThrowsAnError() throws Exception {
+        properties.setCoalesceRequests(true);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ChatLanguageModel model = instrument(messages -> {
+            calls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            throw new AssertionError("leader failed");
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<Response<AiMessage>> leader = executor.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> calls.get() == 1);
+            List<Future<Response<AiMessage>>> followers = List.of(
+                    executor.submit(() -> model.generate(List.of(UserMessage.from("ping")))),
+                    executor.submit(() -> model.generate(List.of(UserMessage.from("ping")))));
+            Awaitility.await()
+                    .atMost(Duration.ofSeconds(5))
+                    .until(() -> !pointAttributes("gen_ai.client.requests.coalesced").isEmpty()
+                            && metric("gen_ai.client.requests.coalesced").getLongSumData().getPoints().iterator().next()
+                                    .getValue() == 2L);
+            release.countDown();
+
+            List<Throwable> failures = new ArrayList<>();
+            for (Future<Response<AiMessage>> future : List.of(leader, followers.get(0), followers.get(1))) {
+                assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                        .isInstanceOf(ExecutionException.class)
+                        .hasCauseInstanceOf(AssertionError.class)
+                        .satisfies(ex -> failures.add(ex.getCause()));
+            }
+            // followers see the leader's own failure
+            assertThat(failures.get(1)).isSameAs(failures.get(0));
+            assertThat(failures.get(2)).isSameAs(failures.get(0));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void followersOfATimedOutLeaderRecordATimeout() throws Exception {
+        properties.setCoalesceRequests(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChatLanguageModel model = instrument(messages -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            // ChatTimeoutException has no (String) or (String, Throwable) constructor
+            throw new ChatTimeoutException(Duration.ofMillis(10));
+        });
+        AttributeKey<String> errorType = AttributeKey.stringKey("error.type");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Response<AiMessage>> leader = executor.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Response<AiMessage>> follower = executor.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            Awaitility.await()
+                    .atMost(Duration.ofSeconds(5))
+                    .until(() -> !pointAttributes("gen_ai.client.requests.coalesced").isEmpty());
+            release.countDown();
+
+            for (Future<Response<AiMessage>> future : List.of(leader, follower)) {
+                assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                        .isInstanceOf(ExecutionException.class)
+                        .hasCauseInstanceOf(ChatTimeoutException.class);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(spanExporter.getFinishedSpanItems())
+                .hasSize(2)
+                .allSatisfy(span -> assertThat(span.getAttributes().get(errorType)).isEqualTo("timeout"));
+        assertThat(pointAttributes("gen_ai.client.operation.errors"))
+                .singleElement()
+                .satisfies(attributes -> assertThat(attributes.get(errorType)).isEqualTo("timeout"));
+    }
+
+    @Test
+    void coalescedFollowersAreReleasedByInterruptAndDeadline() throws Exception {
+        properties.setCoalesceRequests(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChatLanguageModel model = instrument(messages -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(AiMessage.from("pong"));
+        });
+        AttributeKey<String> errorType = AttributeKey.stringKey("error.type");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Response<AiMessage>> leader = executor.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<Response<AiMessage>> follower = executor.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            Awaitility.await()
+                    .atMost(Duration.ofSeconds(5))
+                    .until(() -> !pointAttributes("gen_ai.client.requests.coalesced").isEmpty());
+
+            follower.cancel(true);
+
+            // the interrupted follower gives up while the leader is still running
+            Awaitility.await()
+                    .atMost(Duration.ofSeconds(5))
+                    .until(() -> spanExporter.getFinishedSpanItems().stream()
+                            .anyMatch(span -> CancellationException.class.getName()
+                                    .equals(span.getAttributes().get(errorType))));
+            assertThat(leader).isNotDone();
+            release.countDown();
+            assertThat(leader.get(5, TimeUnit.SECONDS).content().text()).isEqualTo("pong");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        properties.getDeadline().setEnabled(true);
+        properties.getTuning().setTimeout(Duration.ofMillis(50));
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch stall = new CountDownLatch(1);
+        ChatLanguageModel bounded = instrument(messages -> {
+            slowStarted.countDown();
+            try {
+                stall.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(AiMessage.from("pong"));
+        });
+        ExecutorService leaders = Executors.newSingleThreadExecutor();
+        try {
+            leaders.submit(() -> bounded.generate(List.of(UserMessage.from("slow"))));
+            assertThat(slowStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> bounded.generate(List.of(UserMessage.from("slow"))))
+                    .isInstanceOf(ChatTimeoutException.class);
+        } finally {
+            stall.countDown();
+            leaders.shutdownNow();
+        }
+    }
+
+    @Test
+    void semanticCacheServesParaphrasedPrompt() {
+        properties.getSemanticCache().setSimilarityThreshold(0.8d);
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            calls.incrementAndGet();
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                SemanticCachingChatLanguageModel.wrap(delegate, null, telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+
+        model.generate(List.of(UserMessage.from("How do I configure the OpenTelemetry Java agent for Spring Boot?")));
+        model.generate(List.of(UserMessage.from("how do I configure the OpenTelemetry Java agent for Spring Boot")));
+        model.generate(List.of(UserMessage.from("What is the capital of France?")));
+
+        assertThat(calls).hasValue(2);
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans).extracting(span -> span.getAttributes().get(AttributeKey.booleanKey("gen_ai.cache.semantic.hit")))
+                .containsExactly(false, true, false);
+        assertThat(spans.get(1).getAttributes().get(AttributeKey.doubleKey("gen_ai.cache.semantic.similarity")))
+                .isGreaterThanOrEqualTo(0.8d);
+    }
+
+    @Test
+    void semanticCacheMatchesOnlyTheQuestionWithinTheSameConversation() {
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            calls.incrementAndGet();
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                SemanticCachingChatLanguageModel.wrap(delegate, null, telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+        SystemMessage system = SystemMessage.from("You are a support assistant for the observability platform. "
+                + "Answer briefly, cite the relevant documentation page, never invent configuration keys, "
+                + "and ask a clarifying question whenever the user does not name the language or runtime.");
+
+        model.generate(List.of(system, UserMessage.from("How do I rotate my API key?")));
+        model.generate(List.of(system, UserMessage.from("Why are my spans missing?")));
+        model.generate(List.of(SystemMessage.from("Answer in French."), UserMessage.from("How do I rotate my API key?")));
+        model.generate(List.of(system, UserMessage.from("How do I rotate my API key?")));
+
+        assertThat(calls).hasValue(3);
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans).extracting(span -> span.getAttributes().get(AttributeKey.booleanKey("gen_ai.cache.semantic.hit")))
+                .containsExactly(false, false, false, true);
+        assertThat(spans.get(3).getAttributes().get(AttributeKey.longKey("gen_ai.usage.input_tokens"))).isNull();
+        assertThat(metric("gen_ai.client.token.usage").getHistogramData().getPoints())
+                .allSatisfy(point -> assertThat(point.getCount()).isEqualTo(3L));
+    }
+
+    @Test
+    void limiterRejectsCallsBeyondLimitAndQueue() throws Exception {
+        properties.getLimiter().setInitialLimit(1);
+        properties.getLimiter().setMaxQueueSize(0);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChatLanguageModel delegate = messages -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                ConcurrencyLimitedChatLanguageModel.wrap(delegate, telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Response<AiMessage>> first = executor.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> model.generate(List.of(UserMessage.from("ping"))))
+                    .isInstanceOf(ConcurrencyLimitExceededException.class);
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).content().text()).isEqualTo("pong");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(metric("gen_ai.client.concurrency.rejections").getLongSumData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isEqualTo(1L));
+        assertThat(metric("gen_ai.client.concurrency.limit").getLongGaugeData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isGreaterThanOrEqualTo(1L));
+        assertThat(spanExporter.getFinishedSpanItems())
+                .extracting(span -> span.getAttributes().get(AttributeKey.stringKey("error.type")))
+                .contains(ConcurrencyLimitExceededException.class.getName());
+    }
+
+    @Test
+    void multimodalPromptsPassAnalyticsCacheAndQuota() {
+        properties.getPromptAnalytics().setEnabled(true);
+        properties.getCache().setEnabled(true);
+        properties.getQuota().setTokensPerMinute(100_000);
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            calls.incrementAndGet();
+            return Response.from(AiMessage.from("a cat"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                CachingChatLanguageModel.wrap(
+                        QuotaGovernedChatLanguageModel.wrap(delegate, telemetry, properties, introspector),
+                        telemetry,
+                        properties,
+                        introspector),
+                telemetry,
+                properties,
+                introspector);
+
+        model.generate(List.of(UserMessage.from(
+                TextContent.from("What is in this picture?"), ImageContent.from("https://example.com/cat.png"))));
+        model.generate(List.of(UserMessage.from(
+                TextContent.from("What is in this picture?"), ImageContent.from("https://example.com/cat.png"))));
+        model.generate(List.of(UserMessage.from(
+                TextContent.from("What is in this picture?"), ImageContent.from("https://example.com/dog.png"))));
+
+        assertThat(calls).hasValue(2);
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        AttributeKey<String> fingerprintKey = AttributeKey.stringKey("gen_ai.prompt.fingerprint");
+        assertThat(spans).hasSize(3)
+                .allSatisfy(span -> assertThat(span.getStatus().getStatusCode()).isNotEqualTo(StatusCode.ERROR));
+        String cat = spans.get(0).getAttributes().get(fingerprintKey);
+        assertThat(cat).isNotNull();
+        assertThat(spans.get(1).getAttributes().get(fingerprintKey)).isEqualTo(cat);
+        assertThat(spans.get(2).getAttributes().get(fingerprintKey)).isNotEqualTo(cat);
+    }
+
+    @Test
+    void quotaSettlesReportedUsageAndRejectsOverBudgetCalls() {
+        properties.getQuota().setRequestsPerMinute(1);
+        properties.getQuota().setTokensPerMinute(100);
+        properties.getQuota().setMaxWait(Duration.ZERO);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                QuotaGovernedChatLanguageModel.wrap(stub(List.of()), telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+
+        model.generate(List.of(UserMessage.from("ping")));
+
+        assertThatThrownBy(() -> model.generate(List.of(UserMessage.from("ping"))))
+                .isInstanceOf(QuotaExceededException.class);
+        assertThat(metric("gen_ai.client.quota.remaining_tokens").getLongGaugeData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isEqualTo(88L));
+        assertThat(metric("gen_ai.client.quota.remaining_requests").getLongGaugeData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isZero());
+        assertThat(pointAttributes("gen_ai.client.quota.throttled"))
+                .singleElement()
+                .satisfies(attributes -> assertThat(attributes.get(AttributeKey.stringKey("gen_ai.quota.outcome")))
+                        .isEqualTo("rejected"));
+    }
+
+    @Test
+    void closingTelemetryUnregistersGauges() {
+        properties.getQuota().setTokensPerMinute(100);
+        properties.getPromptAnalytics().setEnabled(true);
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                CircuitBreakingChatLanguageModel.wrap(
+                        QuotaGovernedChatLanguageModel.wrap(
+                                ConcurrencyLimitedChatLanguageModel.wrap(
+                                        stub(List.of()), telemetry, properties, introspector),
+                                telemetry,
+                                properties,
+                                introspector),
+                        null,
+                        telemetry,
+                        properties,
+                        introspector),
+                telemetry,
+                properties,
+                introspector);
+        model.generate(List.of(UserMessage.from("ping")));
+        Set<String> gauges = Set.of(
+                "gen_ai.client.concurrency.limit",
+                "gen_ai.client.concurrency.in_flight",
+                "gen_ai.client.quota.remaining_tokens",
+                "gen_ai.client.circuit_breaker.state",
+                "gen_ai.client.prompt.distinct");
+        assertThat(metricReader.collectAllMetrics())
+                .extracting(MetricData::getName)
+                .containsAll(gauges);
+
+        telemetry.close();
+
+        assertThat(metricReader.collectAllMetrics())
+                .extracting(MetricData::getName)
+                .doesNotContainAnyElementsOf(gauges);
+    }
+
+    @Test
+    void hedgeAnswersWhenPrimaryStallsAndPrimaryIsCancelled() {
+        properties.getHedging().setInitialDelay(Duration.ofMillis(50));
+        properties.getHedging().setMinDelay(Duration.ofMillis(10));
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+        ChatLanguageModel delegate = messages -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException ex) {
+                    primaryCancelled.countDown();
+                    throw new IllegalStateException("interrupted", ex);
+                }
+            }
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        try (LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties)) {
+            LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+            ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                    HedgingChatLanguageModel.wrap(delegate, telemetry, properties, introspector),
+                    telemetry,
+                    properties,
+                    introspector);
+
+            assertThat(model.generate(List.of(UserMessage.from("ping"))).content().text()).isEqualTo("pong");
+            assertThat(primaryCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+            // the cancelled attempt ends its span on its own thread
+            Awaitility.await()
+                    .atMost(Duration.ofSeconds(5))
+                    .until(() -> spanExporter.getFinishedSpanItems().stream()
+                            .filter(span -> span.getName().endsWith(" attempt"))
+                            .count() == 2);
+        } catch (InterruptedException ex) {
+            throw new AssertionError(ex);
+        }
+
+        assertThat(calls).hasValue(2);
+        assertThat(metric("gen_ai.client.hedge.fired").getLongSumData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isEqualTo(1L));
+        assertThat(metric("gen_ai.client.hedge.won").getLongSumData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isEqualTo(1L));
+        SpanData chatSpan = spanExporter.getFinishedSpanItems().stream()
+                .filter(span -> span.getName().equals("chat gpt-4o"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(chatSpan.getAttributes().get(AttributeKey.booleanKey("gen_ai.hedge.fired"))).isTrue();
+        assertThat(spanExporter.getFinishedSpanItems().stream()
+                        .filter(span -> span.getName().endsWith(" attempt"))
+                        .collect(Collectors.toList()))
+                .hasSize(2)
+                .allSatisfy(span -> assertThat(span.getParentSpanId()).isEqualTo(chatSpan.getSpanId()));
+    }
+
+    @Test
+    void hedgeToAlternateBeanIsRecordedAsOneChatCall() {
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setInitialDelay(Duration.ofMillis(50));
+        properties.getHedging().setMinDelay(Duration.ofMillis(10));
+        properties.getHedging().setAlternateModel("backup");
+        ChatLanguageModel stalled = messages -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException ex) {
+                throw new IllegalStateException("interrupted", ex);
+            }
+            return Response.from(AiMessage.from("late"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        try (LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties)) {
+            StaticListableBeanFactory beans = new StaticListableBeanFactory();
+            LangChain4jTelemetryBeanPostProcessor processor = new LangChain4jTelemetryBeanPostProcessor(telemetry, properties);
+            processor.setBeanFactory(beans);
+            beans.addBean("backup", processor.postProcessAfterInitialization(stub(List.of()), "backup"));
+            ChatLanguageModel model = (ChatLanguageModel) processor.postProcessAfterInitialization(stalled, "primary");
+
+            assertThat(model.generate(List.of(UserMessage.from("ping"))).content().text()).isEqualTo("pong");
+        }
+
+        assertThat(spanExporter.getFinishedSpanItems())
+                .filteredOn(span -> span.getName().equals("chat gpt-4o"))
+                .hasSize(1);
+        assertThat(metric("gen_ai.client.operation.duration").getHistogramData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getCount()).isEqualTo(1L));
+        assertThat(metric("gen_ai.client.token.usage").getHistogramData().getPoints())
+                .hasSize(2)
+                .allSatisfy(point -> assertThat(point.getCount()).isEqualTo(1L));
+    }
+
+    @Test
+    void eachHedgeAttemptHoldsItsOwnLimiterSlot() {
+        properties.getHedging().setEnabled(true);
+        properties.getHedging().setInitialDelay(Duration.ofMillis(50));
+        properties.getHedging().setMinDelay(Duration.ofMillis(10));
+        properties.getLimiter().setEnabled(true);
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException("interrupted", ex);
+                }
+            }
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        try (LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties)) {
+            ChatLanguageModel model = (ChatLanguageModel) new LangChain4jTelemetryBeanPostProcessor(telemetry, properties)
+                    .postProcessAfterInitialization(delegate, "primary");
+
+            assertThat(model.generate(List.of(UserMessage.from("ping"))).content().text()).isEqualTo("pong");
+        }
+
+        assertThat(calls).hasValue(2);
+        assertThat(metric("gen_ai.client.concurrency.queue_wait").getHistogramData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getCount()).isEqualTo(2L));
+    }
+
+    @Test
+    void deadlineInterruptsDelegateAndRecordsTimeout() throws Exception {
+        properties.getTuning().setTimeout(Duration.ofMillis(50));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ChatLanguageModel delegate = messages -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+            }
+            return Response.from(AiMessage.from("late"));
+        };
+        try (LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties)) {
+            LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+            ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                    DeadlineChatLanguageModel.wrap(delegate, telemetry, properties, introspector),
+                    telemetry,
+                    properties,
+                    introspector);
+
+            assertThatThrownBy(() -> model.generate(List.of(UserMessage.from("ping"))))
+                    .isInstanceOf(ChatTimeoutException.class);
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        SpanData span = spanExporter.getFinishedSpanItems().get(0);
+        assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+        assertThat(span.getAttributes().get(AttributeKey.stringKey("error.type"))).isEqualTo("timeout");
+        assertThat(pointAttributes("gen_ai.client.operation.errors"))
+                .singleElement()
+                .satisfies(attributes -> assertThat(attributes.get(AttributeKey.stringKey("error.type")))
+                        .isEqualTo("timeout"));
+    }
+
+    @Test
+    void platformExecutorRejectsCallsBeyondMaxThreads() throws Exception {
+        properties.getTuning().setTimeout(Duration.ofSeconds(5));
+        properties.setExecutor(LangChain4jTelemetryProperties.ExecutorType.PLATFORM);
+        properties.setExecutorMaxThreads(1);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ChatLanguageModel delegate = messages -> {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(AiMessage.from("pong"));
+        };
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try (LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties)) {
+            ChatLanguageModel model = DeadlineChatLanguageModel.wrap(
+                    delegate, telemetry, properties, new LangChain4jModelIntrospector());
+            Future<Response<AiMessage>> first = callers.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> model.generate(List.of(UserMessage.from("ping"))))
+                    .isInstanceOf(ConcurrencyLimitExceededException.class);
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).content().text()).isEqualTo("pong");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void hedgingRunsThePrimaryInlineWhenThePlatformExecutorIsSaturated() throws Exception {
+        properties.setExecutor(LangChain4jTelemetryProperties.ExecutorType.PLATFORM);
+        properties.setExecutorMaxThreads(1);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            if (calls.incrementAndGet() == 1) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Response.from(AiMessage.from("pong"));
+        };
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try (LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties)) {
+            ChatLanguageModel model = HedgingChatLanguageModel.wrap(
+                    delegate, telemetry, properties, new LangChain4jModelIntrospector());
+            Future<Response<AiMessage>> first = callers.submit(() -> model.generate(List.of(UserMessage.from("ping"))));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // the only pool thread is busy with the first call's primary
+            assertThat(model.generate(List.of(UserMessage.from("ping"))).content().text()).isEqualTo("pong");
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).content().text()).isEqualTo("pong");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void deadlineBoundsRetriesOfTheWholeCall() throws Exception {
+        properties.getTuning().setTimeout(Duration.ofMillis(100));
+        properties.getDeadline().setEnabled(true);
+        properties.getRetry().setMaxAttempts(10);
+        properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(AiMessage.from("late"));
+        };
+        try (LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties)) {
+            LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+            ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                    RetryingChatLanguageModel.wrap(
+                            DeadlineChatLanguageModel.wrap(delegate, telemetry, properties, introspector),
+                            telemetry,
+                            properties,
+                            introspector),
+                    telemetry,
+                    properties,
+                    introspector);
+
+            long startNanos = System.nanoTime();
+            assertThatThrownBy(() -> model.generate(List.of(UserMessage.from("ping"))))
+                    .isInstanceOf(ChatTimeoutException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isLessThan(Duration.ofMillis(600));
+        }
+
+        assertThat(calls).hasValue(1);
+        assertThat(pointAttributes("gen_ai.client.retry.exhausted"))
+                .singleElement()
+                .satisfies(attributes -> assertThat(attributes.get(AttributeKey.stringKey("gen_ai.retry.exhausted.reason")))
+                        .isEqualTo("deadline"));
+    }
+
+    @Test
+    void routerEjectsFailingBackend() {
+        properties.getRouter().setConsecutiveFailures(1);
+        AtomicInteger badCalls = new AtomicInteger();
+        ChatLanguageModel bad = messages -> {
+            badCalls.incrementAndGet();
+            throw new IllegalStateException("region down");
+        };
+        Map<String, ChatLanguageModel> backends = new LinkedHashMap<>();
+        backends.put("eu", bad);
+        backends.put("us", messages -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        });
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        ChatLanguageModel router = RoutingChatLanguageModel.create("chat", backends, telemetry, properties);
+
+        int answered = 0;
+        for (int i = 0; i < 20; i++) {
+            try {
+                router.generate(List.of(UserMessage.from("ping")));
+                answered++;
+            } catch (IllegalStateException expected) {
+                // the failing backend until it is ejected
+            }
+        }
+
+        // unseen backends cost nothing, so "eu" is probed by the second call at the latest and then ejected
+        assertThat(badCalls).hasValue(1);
+        assertThat(answered).isEqualTo(19);
+        assertThat(metric("gen_ai.client.router.ejections").getLongSumData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getAttributes().get(AttributeKey.stringKey("gen_ai.router.backend")))
+                        .isEqualTo("eu"));
+        assertThat(pointAttributes("gen_ai.client.router.latency"))
+                .extracting(attributes -> attributes.get(AttributeKey.stringKey("gen_ai.router.backend")))
+                .containsExactlyInAnyOrder("eu", "us");
+    }
+
+    @Test
+    void routerDoesNotEjectBackendsForClientErrors() {
+        properties.getRouter().setConsecutiveFailures(1);
+        AtomicInteger rejected = new AtomicInteger();
+        Map<String, ChatLanguageModel> backends = new LinkedHashMap<>();
+        backends.put("eu", messages -> {
+            rejected.incrementAndGet();
+            throw new ProviderHttpException(400, "bad request");
+        });
+        backends.put("us", stub(List.of()));
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        ChatLanguageModel router = RoutingChatLanguageModel.create("chat", backends, telemetry, properties);
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                router.generate(List.of(UserMessage.from("ping")));
+            } catch (ProviderHttpException expected) {
+                // the caller's own mistake
+            }
+        }
+
+        // a healthy backend rejecting bad requests keeps getting traffic
+        assertThat(rejected.get()).isGreaterThan(1);
+        assertThat(pointAttributes("gen_ai.client.router.ejections")).isEmpty();
+    }
+
+    @Test
+    void routerDoesNotFavourFastFailingBackend() {
+        properties.getRouter().setMaxEjectionPercent(0);
+        AtomicInteger badCalls = new AtomicInteger();
+        Map<String, ChatLanguageModel> backends = new LinkedHashMap<>();
+        backends.put("eu", messages -> {
+            badCalls.incrementAndGet();
+            throw new IllegalStateException("region down");
+        });
+        backends.put("us", messages -> {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        });
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        ChatLanguageModel router = RoutingChatLanguageModel.create("chat", backends, telemetry, properties);
+
+        for (int i = 0; i < 50; i++) {
+            try {
+                router.generate(List.of(UserMessage.from("ping")));
+            } catch (IllegalStateException expected) {
+                // the failing backend, which can never be ejected here
+            }
+        }
+
+        assertThat(badCalls.get()).isLessThan(10);
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans).hasSize(50).allSatisfy(span -> assertThat(span.getName()).isEqualTo("router chat"));
+        assertThat(spans)
+                .filteredOn(span -> "eu".equals(span.getAttributes().get(AttributeKey.stringKey("gen_ai.router.backend"))))
+                .hasSize(badCalls.get())
+                .allSatisfy(span -> assertThat(span.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR));
+    }
+
+    @Test
+    void retriesTransientFailuresInAttemptSpans() {
+        properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ProviderHttpException(429, "Rate limit reached. Please try again in 2ms.");
+            }
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                RetryingChatLanguageModel.wrap(delegate, telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+
+        assertThat(model.generate(List.of(UserMessage.from("ping"))).content().text()).isEqualTo("pong");
+
+        List<SpanData> attempts = spanExporter.getFinishedSpanItems().stream()
+                .filter(span -> span.getName().endsWith(" attempt"))
+                .collect(Collectors.toList());
+        assertThat(attempts)
+                .extracting(span -> span.getAttributes().get(AttributeKey.longKey("gen_ai.retry.attempt")))
+                .containsExactly(0L, 1L, 2L);
+        assertThat(attempts.get(1).getAttributes().get(AttributeKey.longKey("gen_ai.retry.backoff_ms")))
+                .isGreaterThanOrEqualTo(2L);
+        assertThat(metric("gen_ai.client.retry.attempts").getLongSumData().getPoints())
+                .singleElement()
+                .satisfies(point -> assertThat(point.getValue()).isEqualTo(2L));
+        assertThat(pointAttributes("gen_ai.client.operation.errors")).isEmpty();
+    }
+
+    @Test
+    void quotaChargesEveryRetryAttempt() {
+        properties.getRetry().setEnabled(true);
+        properties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        properties.getQuota().setEnabled(true);
+        properties.getQuota().setRequestsPerMinute(10);
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ProviderHttpException(503, "Service unavailable");
+            }
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        };
+        try (LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties)) {
+            ChatLanguageModel model = (ChatLanguageModel) new LangChain4jTelemetryBeanPostProcessor(telemetry, properties)
+                    .postProcessAfterInitialization(delegate, "primary");
+
+            assertThat(model.generate(List.of(UserMessage.from("ping"))).content().text()).isEqualTo("pong");
+
+            assertThat(calls).hasValue(3);
+            assertThat(metric("gen_ai.client.quota.remaining_requests").getLongGaugeData().getPoints())
+                    .singleElement()
+                    .satisfies(point -> assertThat(point.getValue()).isEqualTo(7L));
+        }
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            calls.incrementAndGet();
+            throw new ProviderHttpException(400, "Invalid request");
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        ChatLanguageModel model = RetryingChatLanguageModel.wrap(
+                delegate, telemetry, properties, new LangChain4jModelIntrospector());
+
+        assertThatThrownBy(() -> model.generate(List.of(UserMessage.from("ping"))))
+                .isInstanceOf(ProviderHttpException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void clientErrorsDoNotOpenBreaker() {
+        properties.getCircuitBreaker().setMinimumCalls(2);
+        properties.getCircuitBreaker().setWindowSize(2);
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel delegate = messages -> {
+            calls.incrementAndGet();
+            throw new ProviderHttpException(400, "Invalid request");
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        CircuitBreakingChatLanguageModel model = (CircuitBreakingChatLanguageModel) CircuitBreakingChatLanguageModel.wrap(
+                delegate, telemetry, properties, new LangChain4jModelIntrospector());
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> model.generate(List.of(UserMessage.from("ping"))))
+                    .isInstanceOf(ProviderHttpException.class);
+        }
+
+        assertThat(calls).hasValue(5);
+        assertThat(model.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void openBreakerFailsFastToFallback() {
+        properties.getCircuitBreaker().setMinimumCalls(2);
+        properties.getCircuitBreaker().setWindowSize(2);
+        AtomicInteger calls = new AtomicInteger();
+        ChatLanguageModel sick = messages -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("provider down");
+        };
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+        ChatLanguageModel model = OtelChatLanguageModel.wrap(
+                CircuitBreakingChatLanguageModel.wrap(sick, () -> stub(List.of()), telemetry, properties, introspector),
+                telemetry,
+                properties,
+                introspector);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> model.generate(List.of(UserMessage.from("ping"))))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(model.generate(List.of(UserMessage.from("ping"))).content().text()).isEqualTo("pong");
+
+        assertThat(calls).hasValue(2);
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans.get(1).getEvents())
+                .filteredOn(event -> event.getName().equals("gen_ai.circuit_breaker.state_change"))
+                .singleElement()
+                .satisfies(event -> assertThat(event.getAttributes().get(AttributeKey.stringKey("gen_ai.circuit_breaker.state")))
+                        .isEqualTo("open"));
+        assertThat(spans.get(2).getAttributes().get(AttributeKey.booleanKey("gen_ai.circuit_breaker.fallback"))).isTrue();
+        assertThat(metric("gen_ai.client.circuit_breaker.state").getLongGaugeData().getPoints())
+                .filteredOn(point -> point.getValue() == 1L)
+                .singleElement()
+                .satisfies(point -> assertThat(point.getAttributes().get(AttributeKey.stringKey("gen_ai.circuit_breaker.state")))
+                        .isEqualTo("open"));
+    }
+
+    @Test
+    void fallbackBeanAnswersOnTheBreakerCallSpan() {
+        properties.getCircuitBreaker().setEnabled(true);
+        properties.getCircuitBreaker().setMinimumCalls(2);
+        properties.getCircuitBreaker().setWindowSize(2);
+        properties.getCircuitBreaker().setFallbackModel("backup");
+        ChatLanguageModel sick = messages -> {
+            throw new IllegalStateException("provider down");
+        };
+        try (LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties)) {
+            StaticListableBeanFactory beans = new StaticListableBeanFactory();
+            LangChain4jTelemetryBeanPostProcessor processor = new LangChain4jTelemetryBeanPostProcessor(telemetry, properties);
+            processor.setBeanFactory(beans);
+            beans.addBean("backup", processor.postProcessAfterInitialization(new NamedModel("gpt-4o-mini"), "backup"));
+            ChatLanguageModel model = (ChatLanguageModel) processor.postProcessAfterInitialization(sick, "primary");
+            for (int i = 0; i < 2; i++) {
+                assertThatThrownBy(() -> model.generate(List.of(UserMessage.from("ping"))))
+                        .isInstanceOf(IllegalStateException.class);
+            }
+
+            assertThat(model.generate(List.of(UserMessage.from("ping"))).content().text()).isEqualTo("pong");
+        }
+
+        List<SpanData> spans = spanExporter.getFinishedSpanItems();
+        assertThat(spans).hasSize(3).allSatisfy(span -> assertThat(span.getName()).isEqualTo("chat gpt-4o"));
+        assertThat(spans.get(2).getAttributes().get(AttributeKey.stringKey("gen_ai.response.model")))
+                .isEqualTo("gpt-4o-mini");
+        assertThat(metric("gen_ai.client.token.usage").getHistogramData().getPoints())
+                .hasSize(2)
+                .allSatisfy(point -> assertThat(point.getCount()).isEqualTo(1L));
+    }
+
+    private ChatLanguageModel instrument(ChatLanguageModel delegate) {
+        LangChain4jTelemetry telemetry = new LangChain4jTelemetry(sdk, properties);
+        return OtelChatLanguageModel.wrap(delegate, telemetry, properties, new LangChain4jModelIntrospector());
+    }
+
+    /** Span processor standing in for a broken exporter pipeline. */
+    private static SpanProcessor failingOnEnd() {
+        return new SpanProcessor() {
+            @Override
+            public void onStart(Context parentContext, ReadWriteSpan span) {
+            }
+
+            @Override
+            public boolean isStartRequired() {
+                return false;
+            }
+
+            @Override
+            public void onEnd(ReadableSpan span) {
+                throw new IllegalStateException("exporter broken");
+            }
+
+            @Override
+            public boolean isEndRequired() {
+                return true;
+            }
+        };
+    }
+
+    private static ChatLanguageModel stub(List<ToolExecutionRequest> tools) {
+        AiMessage message = tools.isEmpty() ? AiMessage.from("pong") : new AiMessage("pong", tools);
+        return messages -> Response.from(message, new TokenUsage(8, 4, 12), FinishReason.STOP);
+    }
+
+    private MetricData metric(String metricName) {
+        return metricReader.collectAllMetrics().stream()
+                .filter(metric -> metric.getName().equals(metricName))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private List<Attributes> pointAttributes(String metricName) {
+        return metricReader.collectAllMetrics().stream()
+                .filter(metric -> metric.getName().equals(metricName))
+                .map(MetricData::getData)
+                .flatMap(data -> data.getPoints().stream())
+                .map(PointData::getAttributes)
+                .collect(Collectors.toList());
+    }
+
+    /** Provider model exposing its name the way LangChain4j models do. */
+    public static final class NamedModel implements ChatLanguageModel {
+
+        private final String modelName;
+
+        NamedModel(String modelName) {
+            this.modelName = modelName;
+        }
+
+        public String modelName() {
+            return modelName;
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        }
+    }
+
+    /** Provider model whose parameters can be changed at runtime, counting its calls. */
+    public static final class TunableModel implements ChatLanguageModel {
+
+        private final String modelName;
+        private volatile double temperature;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        TunableModel(String modelName, double temperature) {
+            this.modelName = modelName;
+            this.temperature = temperature;
+        }
+
+        public String modelName() {
+            return modelName;
+        }
+
+        public Double temperature() {
+            return temperature;
+        }
+
+        void setTemperature(double temperature) {
+            this.temperature = temperature;
+        }
+
+        int calls() {
+            return calls.get();
+        }
+
+        @Override
+        public Response<AiMessage> generate(List<ChatMessage> messages) {
+            calls.incrementAndGet();
+            return Response.from(AiMessage.from("pong"), new TokenUsage(8, 4, 12), FinishReason.STOP);
+        }
+    }
+
+    /** Stands in for provider client exceptions exposing the HTTP status. */
+    public static final class ProviderHttpException extends RuntimeException {
+
+        private final int statusCode;
+
+        ProviderHttpException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
+
+        public int statusCode() {
+            return statusCode;
+        }
+    }
+}
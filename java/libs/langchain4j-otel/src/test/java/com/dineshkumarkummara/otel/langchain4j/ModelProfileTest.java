@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.dineshkumarkummara.otel.langchain4j.ModelProfile.MetricView;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ModelProfileTest {
+
+    private final LangChain4jTelemetryProperties properties = new LangChain4jTelemetryProperties();
+
+    @Test
+    void precomputesSpanNameAndAttributesWithPropertyDefaults() {
+        properties.getTuning().setTemperature(0.3d);
+        ModelProfile profile = ModelProfile.create(
+                properties, "gpt-4o", "openai", null, null, null, 256, List.of("###"), false, Duration.ofSeconds(5));
+
+        assertThat(profile.spanName()).isEqualTo(properties.getOperationName() + " gpt-4o");
+        Attributes attributes = profile.attributes();
+        assertThat(attributes.get(GenAiAttributes.REQUEST_MODEL)).isEqualTo("gpt-4o");
+        assertThat(attributes.get(GenAiAttributes.SYSTEM)).isEqualTo("openai");
+        assertThat(attributes.get(GenAiAttributes.REQUEST_TEMPERATURE)).isEqualTo(0.3d);
+        assertThat(attributes.get(GenAiAttributes.REQUEST_MAX_TOKENS)).isEqualTo(256L);
+        assertThat(attributes.get(GenAiAttributes.REQUEST_STOP_SEQUENCES)).containsExactly("###");
+        assertThat(attributes.get(GenAiAttributes.REQUEST_TIMEOUT_MS)).isEqualTo(5_000L);
+        assertThat(attributes.get(GenAiAttributes.REQUEST_TOP_P)).isNull();
+        assertThat(attributes.get(GenAiAttributes.RESPONSE_CACHED)).isFalse();
+        assertThat(profile.attributes()).isSameAs(attributes);
+    }
+
+    @Test
+    void metricViewProjectsAttributesAndPrecomputesVariants() {
+        ModelProfile profile = ModelProfile.create(
+                properties, "gpt-4o", "openai", null, 0.7d, null, 256, null, false, Duration.ofSeconds(5));
+        MetricAttributeProjection projection = new MetricAttributeProjection(properties.getMetrics());
+
+        MetricView metrics = profile.metrics(projection);
+
+        Attributes base = metrics.attributes();
+        assertThat(base.asMap().keySet())
+                .extracting(AttributeKey::getKey)
+                .containsExactlyInAnyOrder("gen_ai.system", "gen_ai.operation.name", "gen_ai.request.model");
+        assertThat(metrics.tokenAttributes(true)).isEqualTo(
+                base.toBuilder().put(GenAiAttributes.TOKEN_TYPE, "input").build());
+        assertThat(metrics.tokenAttributes(false)).isEqualTo(
+                base.toBuilder().put(GenAiAttributes.TOKEN_TYPE, "output").build());
+        assertThat(metrics.timeoutAttributes().get(GenAiAttributes.ERROR_TYPE)).isEqualTo(LangChain4jTelemetry.TIMEOUT);
+        assertThat(metrics.cancelledAttributes().get(GenAiAttributes.ERROR_TYPE))
+                .isEqualTo(LangChain4jTelemetry.CANCELLED);
+        assertThat(metrics.toolAttributes("search").get(GenAiAttributes.TOOL_NAME)).isEqualTo("search");
+        assertThat(metrics.toolAttributes(null).get(GenAiAttributes.TOOL_NAME)).isEmpty();
+    }
+
+    @Test
+    void reusesTheSameAttributeInstancesAcrossCalls() {
+        ModelProfile profile = ModelProfile.create(
+                properties, "gpt-4o", "openai", null, null, null, null, null, false, null);
+        MetricAttributeProjection projection = new MetricAttributeProjection(properties.getMetrics());
+
+        MetricView metrics = profile.metrics(projection);
+
+        assertThat(profile.metrics(projection)).isSameAs(metrics);
+        assertThat(metrics.attributes()).isSameAs(metrics.attributes());
+        assertThat(metrics.tokenAttributes(true)).isSameAs(metrics.tokenAttributes(true));
+        assertThat(metrics.tokenAttributes(false)).isSameAs(metrics.tokenAttributes(false));
+        assertThat(metrics.timeoutAttributes()).isSameAs(metrics.timeoutAttributes());
+        assertThat(metrics.cancelledAttributes()).isSameAs(metrics.cancelledAttributes());
+        assertThat(metrics.toolAttributes("search")).isSameAs(metrics.toolAttributes("search"));
+    }
+
+    @Test
+    void rebuildsMetricViewForAnotherProjection() {
+        ModelProfile profile = ModelProfile.create(
+                properties, "gpt-4o", "openai", null, null, null, null, null, false, null);
+        MetricView first = profile.metrics(new MetricAttributeProjection(properties.getMetrics()));
+
+        properties.getMetrics().setAttributes(List.of("gen_ai.system"));
+        MetricView second = profile.metrics(new MetricAttributeProjection(properties.getMetrics()));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.attributes()).isEqualTo(Attributes.of(GenAiAttributes.SYSTEM, "openai"));
+    }
+
+    @Test
+    void foldsToolNamesBeyondCardinalityLimit() {
+        properties.getMetrics().setCardinalityLimit(1);
+        ModelProfile profile = ModelProfile.create(
+                properties, "gpt-4o", "openai", null, null, null, null, null, false, null);
+        MetricView metrics = profile.metrics(new MetricAttributeProjection(properties.getMetrics()));
+
+        assertThat(metrics.toolAttributes("search").get(GenAiAttributes.TOOL_NAME)).isEqualTo("search");
+        assertThat(metrics.toolAttributes("weather").get(GenAiAttributes.TOOL_NAME)).isEqualTo("other");
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void limitGrowsUnderLoadAndBacksOffOnSlowCalls() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 100, 0, 2.0d, 0.5d);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < limiter.limit(); i++) {
+                assertThat(limiter.acquire(0L)).isTrue();
+            }
+            int slots = limiter.inFlight();
+            for (int i = 0; i < slots; i++) {
+                limiter.release(1_000_000L, false);
+            }
+        }
+        int grown = limiter.limit();
+        assertThat(grown).isGreaterThan(4);
+
+        assertThat(limiter.acquire(0L)).isTrue();
+        limiter.release(10_000_000L, false);
+
+        assertThat(limiter.limit()).isEqualTo(grown / 2);
+    }
+
+    @Test
+    void limitStaysStableWhenResponseLengthsVary() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 100, 0, 2.0d, 0.9d);
+        SplittableRandom random = new SplittableRandom(7L);
+        // too few calls in flight to grow the limit, so any back-off would show
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 8; i++) {
+                assertThat(limiter.acquire(0L)).isTrue();
+            }
+            for (int i = 0; i < 8; i++) {
+                // 300 ms to first token plus 20 ms per token, for answers of 5 to 800 tokens
+                int tokens = random.nextInt(5, 800);
+                long latency = 300_000_000L + tokens * 20_000_000L + random.nextLong(50_000_000L);
+                limiter.release(latency, tokens, false);
+            }
+        }
+
+        assertThat(limiter.limit()).isEqualTo(20);
+    }
+
+    @Test
+    void backsOffWhenPerTokenLatencyDegrades() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 100, 0, 2.0d, 0.5d);
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.acquire(0L)).isTrue();
+            limiter.release(100 * 20_000_000L, 100, false);
+        }
+        assertThat(limiter.limit()).isEqualTo(20);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.acquire(0L)).isTrue();
+            limiter.release(100 * 60_000_000L, 100, false);
+        }
+
+        assertThat(limiter.limit()).isLessThan(20);
+    }
+
+    @Test
+    void rejectsWhenLimitAndQueueAreFull() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 0, 2.0d, 0.9d);
+
+        assertThat(limiter.acquire(0L)).isTrue();
+        assertThat(limiter.acquire(1_000_000L)).isFalse();
+
+        limiter.release(1_000_000L, false);
+        assertThat(limiter.acquire(0L)).isTrue();
+    }
+}
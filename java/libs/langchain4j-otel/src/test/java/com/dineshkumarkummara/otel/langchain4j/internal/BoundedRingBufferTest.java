@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class BoundedRingBufferTest {
+
+    @Test
+    void dropOldestEvictsHeadWhenFull() {
+        BoundedRingBuffer<String> buffer = new BoundedRingBuffer<>(2, true);
+
+        assertThat(buffer.offer("a")).isNull();
+        assertThat(buffer.offer("b")).isNull();
+        assertThat(buffer.offer("c")).isEqualTo("a");
+
+        List<String> drained = new ArrayList<>();
+        assertThat(buffer.drainTo(drained, 10)).isEqualTo(2);
+        assertThat(drained).containsExactly("b", "c");
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void dropNewestRejectsOfferWhenFull() {
+        BoundedRingBuffer<String> buffer = new BoundedRingBuffer<>(2, false);
+        buffer.offer("a");
+        buffer.offer("b");
+
+        assertThat(buffer.offer("c")).isEqualTo("c");
+
+        List<String> drained = new ArrayList<>();
+        buffer.drainTo(drained, 1);
+        assertThat(drained).containsExactly("a");
+        assertThat(buffer.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    private final List<CircuitBreaker.State> transitions = new ArrayList<>();
+    private final CircuitBreaker breaker =
+            new CircuitBreaker(10, 4, 50d, 50d, 1_000L, 100L, 2, (from, to) -> transitions.add(to));
+
+    @Test
+    void opensOnFailureRateAndClosesAfterSuccessfulProbes() {
+        breaker.record(1L, false, 0L);
+        breaker.record(1L, true, 0L);
+        breaker.record(1L, false, 0L);
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        breaker.record(1L, true, 0L);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire(50L)).isFalse();
+        assertThat(breaker.tryAcquire(100L)).isTrue();
+        assertThat(breaker.tryAcquire(100L)).isTrue();
+        assertThat(breaker.tryAcquire(100L)).isFalse();
+        breaker.record(1L, false, 110L);
+        breaker.record(1L, false, 110L);
+
+        assertThat(transitions).containsExactly(
+                CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void slowProbeReopens() {
+        for (int i = 0; i < 4; i++) {
+            breaker.record(1L, true, 0L);
+        }
+        assertThat(breaker.tryAcquire(100L)).isTrue();
+        breaker.record(1L, false, 100L);
+        breaker.record(5_000L, false, 100L);
+
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire(150L)).isFalse();
+    }
+
+    @Test
+    void hungProbesReopenAfterSlowCallDuration() {
+        for (int i = 0; i < 4; i++) {
+            breaker.record(1L, true, 0L);
+        }
+        assertThat(breaker.tryAcquire(100L)).isTrue();
+        assertThat(breaker.tryAcquire(100L)).isTrue();
+        assertThat(breaker.tryAcquire(500L)).isFalse();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        assertThat(breaker.tryAcquire(1_100L)).isFalse();
+        assertThat(breaker.state()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire(1_200L)).isTrue();
+    }
+
+    @Test
+    void releasedProbeFreesItsSlot() {
+        for (int i = 0; i < 4; i++) {
+            breaker.record(1L, true, 0L);
+        }
+        assertThat(breaker.tryAcquire(100L)).isTrue();
+        assertThat(breaker.tryAcquire(100L)).isTrue();
+        breaker.release();
+
+        assertThat(breaker.tryAcquire(100L)).isTrue();
+        assertThat(breaker.tryAcquire(100L)).isFalse();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class DDSketchTest {
+
+    @Test
+    void quantilesStayWithinRelativeAccuracy() {
+        DDSketch sketch = new DDSketch(0.01, 1e-6, 1e4);
+        for (int i = 1; i <= 1_000; i++) {
+            sketch.add(i / 1000d);
+        }
+
+        assertThat(sketch.count()).isEqualTo(1_000);
+        assertThat(sketch.quantile(0.5)).isCloseTo(0.5, within(0.5 * 0.01));
+        assertThat(sketch.quantile(0.99)).isCloseTo(0.99, within(0.99 * 0.01));
+        assertThat(sketch.quantile(0)).isCloseTo(0.001, within(0.001 * 0.01));
+    }
+
+    @Test
+    void mergedSketchesAnswerForTheUnion() {
+        DDSketch fast = new DDSketch(0.01, 1e-6, 1e4);
+        DDSketch slow = fast.emptyCopy();
+        for (int i = 0; i < 90; i++) {
+            fast.add(0.1);
+        }
+        for (int i = 0; i < 10; i++) {
+            slow.add(2.0);
+        }
+
+        DDSketch union = fast.emptyCopy();
+        union.merge(fast);
+        union.merge(slow);
+
+        assertThat(union.quantile(0.5)).isCloseTo(0.1, within(0.001));
+        assertThat(union.quantile(0.95)).isCloseTo(2.0, within(0.02));
+        union.clear();
+        assertThat(union.quantile(0.5)).isNaN();
+    }
+}
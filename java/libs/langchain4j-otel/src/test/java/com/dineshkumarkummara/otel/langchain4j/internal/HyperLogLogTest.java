@@ -0,0 +1,59 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesDistinctCountsWithinTheStandardError() {
+        HyperLogLog small = new HyperLogLog(12);
+        HyperLogLog large = new HyperLogLog(12);
+        for (int i = 0; i < 100; i++) {
+            small.add(mix(i));
+            small.add(mix(i));
+        }
+        for (int i = 0; i < 100_000; i++) {
+            large.add(mix(i));
+        }
+
+        assertThat(small.estimate()).isCloseTo(100L, within(3L));
+        assertThat(large.estimate()).isCloseTo(100_000L, within(5_000L));
+    }
+
+    @Test
+    void clearForgetsEverything() {
+        HyperLogLog hll = new HyperLogLog(8);
+        for (int i = 0; i < 1_000; i++) {
+            hll.add(mix(i));
+        }
+
+        hll.clear();
+
+        assertThat(hll.estimate()).isZero();
+    }
+
+    private static long mix(long value) {
+        long h = value * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        return h ^ (h >>> 33);
+    }
+}
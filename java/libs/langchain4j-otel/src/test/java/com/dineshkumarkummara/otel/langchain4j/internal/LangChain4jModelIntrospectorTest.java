@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.dineshkumarkummara.otel.langchain4j.internal.LangChain4jModelIntrospector.ModelMetadata;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LangChain4jModelIntrospectorTest {
+
+    private final LangChain4jModelIntrospector introspector = new LangChain4jModelIntrospector();
+
+    @Test
+    void readsAccessorsFromNonPublicModelClass() {
+        ModelMetadata metadata = introspector.introspect(new OpenAiLikeModel("gpt-4o"));
+
+        assertThat(metadata.system()).isEqualTo("openai");
+        assertThat(metadata.model()).isEqualTo("gpt-4o");
+        assertThat(metadata.temperature()).isEqualTo(0.2d);
+        assertThat(metadata.maxTokens()).isEqualTo(256);
+        assertThat(metadata.stopSequences()).containsExactly("###");
+        assertThat(metadata.timeout()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(metadata.topP()).isNull();
+        assertThat(metadata.cached()).isFalse();
+    }
+
+    @Test
+    void fallsThroughToNextAccessorWhenFirstReturnsNull() {
+        ModelMetadata metadata = introspector.introspect(new OpenAiLikeModel(null));
+
+        assertThat(metadata.model()).isEqualTo("fallback-model");
+    }
+
+    @Test
+    void readsLiveValuesThroughCachedAccessors() {
+        OpenAiLikeModel model = new OpenAiLikeModel("gpt-4o");
+        introspector.introspect(model);
+        model.name = "gpt-4o-mini";
+
+        assertThat(introspector.introspect(model).model()).isEqualTo("gpt-4o-mini");
+    }
+
+    @Test
+    void skipsThrowingAccessorButPropagatesErrors() {
+        assertThat(introspector.introspect(new ThrowingModel(new IllegalStateException("closed"))).model())
+                .isEqualTo("fallback-model");
+        assertThatThrownBy(() -> introspector.introspect(new ThrowingModel(new StackOverflowError())))
+                .isInstanceOf(StackOverflowError.class);
+    }
+
+    @Test
+    void returnsEmptyMetadataForNull() {
+        assertThat(introspector.introspect(null)).isEqualTo(ModelMetadata.empty());
+    }
+
+    static class OpenAiLikeModel {
+
+        private String name;
+
+        OpenAiLikeModel(String name) {
+            this.name = name;
+        }
+
+        public String modelName() {
+            return name;
+        }
+
+        public String getModel() {
+            return "fallback-model";
+        }
+
+        public double getTemperature() {
+            return 0.2d;
+        }
+
+        public int maxTokens() {
+            return 256;
+        }
+
+        public List<String> getStop() {
+            return List.of("###");
+        }
+
+        public long timeout() {
+            return 30_000L;
+        }
+
+        public void close() {
+            // not an accessor
+        }
+    }
+
+    static class ThrowingModel {
+
+        private final Throwable failure;
+
+        ThrowingModel(Throwable failure) {
+            this.failure = failure;
+        }
+
+        public String modelName() {
+            if (failure instanceof Error error) {
+                throw error;
+            }
+            throw (RuntimeException) failure;
+        }
+
+        public String getModel() {
+            return "fallback-model";
+        }
+    }
+}
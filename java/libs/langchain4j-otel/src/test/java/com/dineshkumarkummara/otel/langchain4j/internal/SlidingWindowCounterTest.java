@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowCounterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void budgetFreesUpAsBucketsLeaveTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(100, 60 * SECOND, 60);
+
+        assertThat(counter.tryAcquire(60, 0L)).isTrue();
+        assertThat(counter.tryAcquire(30, 10 * SECOND)).isTrue();
+        assertThat(counter.tryAcquire(20, 20 * SECOND)).isFalse();
+        assertThat(counter.remaining(20 * SECOND)).isEqualTo(10);
+        assertThat(counter.nanosUntilAvailable(20, 20 * SECOND)).isEqualTo(40 * SECOND);
+
+        assertThat(counter.tryAcquire(20, 60 * SECOND)).isTrue();
+        assertThat(counter.used(60 * SECOND)).isEqualTo(50);
+        assertThat(counter.nanosUntilAvailable(101, 60 * SECOND)).isEqualTo(-1L);
+    }
+
+    @Test
+    void correctionsAdjustTheCurrentWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(100, 60 * SECOND, 60);
+
+        assertThat(counter.tryAcquire(40, 0L)).isTrue();
+        counter.add(-25, SECOND);
+
+        assertThat(counter.remaining(SECOND)).isEqualTo(85);
+    }
+}
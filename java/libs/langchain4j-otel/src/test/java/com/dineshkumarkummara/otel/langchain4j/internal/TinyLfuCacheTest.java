@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.langchain4j.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTest {
+
+    private final List<TinyLfuCache.RemovalCause> evictions = new ArrayList<>();
+
+    @Test
+    void frequentKeysSurviveAScanOfOneOffKeys() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 0L, 0L, value -> 1L, (key, cause) -> evictions.add(cause));
+        for (int i = 0; i < 10; i++) {
+            cache.put("hot-" + i, "v");
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                cache.get("hot-" + i);
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("scan-" + i);
+            cache.put("scan-" + i, "v");
+        }
+
+        int survivors = 0;
+        for (int i = 0; i < 10; i++) {
+            survivors += cache.get("hot-" + i) != null ? 1 : 0;
+        }
+        assertThat(survivors).isGreaterThanOrEqualTo(8);
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+        assertThat(evictions).containsOnly(TinyLfuCache.RemovalCause.SIZE);
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() throws InterruptedException {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(10, 1_000_000L, 0L, value -> 1L, (key, cause) -> evictions.add(cause));
+        cache.put("key", "value");
+
+        Thread.sleep(5);
+
+        assertThat(cache.get("key")).isNull();
+        assertThat(evictions).containsExactly(TinyLfuCache.RemovalCause.EXPIRED);
+    }
+
+    @Test
+    void byteBudgetEvictsLeastRecentlyUsed() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 0L, 10L, value -> (long) value.length(), (key, cause) -> evictions.add(cause));
+        cache.put("a", "xxxx");
+        cache.put("b", "xxxx");
+        cache.put("c", "xxxx");
+
+        assertThat(cache.weightedSize()).isLessThanOrEqualTo(10L);
+        assertThat(cache.get("a")).isNull();
+        assertThat(evictions).containsExactly(TinyLfuCache.RemovalCause.BYTES);
+    }
+
+    @Test
+    void concurrentReadsAndWritesKeepTheCacheBounded() throws Exception {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(50, 0L, 0L, value -> 1L, (key, cause) -> { });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        int key = (i * 31 + seed) % (i % 4 == 0 ? 500 : 40);
+                        if (cache.get(key) == null) {
+                            cache.put(key, "v" + key);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(50);
+        assertThat(cache.weightedSize()).isEqualTo(cache.size());
+    }
+}
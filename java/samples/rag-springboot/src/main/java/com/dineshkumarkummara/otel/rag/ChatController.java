@@ -15,11 +15,16 @@
  */
 package com.dineshkumarkummara.otel.rag;
 
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.output.Response;
+import java.io.IOException;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping(path = "/api", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -40,4 +45,31 @@ public class ChatController {
     public ChatView rag(@RequestBody ChatRequest request) {
         return chatService.rag(request.question());
     }
+
+    @PostMapping(path = "/chat/stream", consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chatStream(@RequestBody ChatRequest request) {
+        SseEmitter emitter = new SseEmitter();
+        chatService.chatStream(request.question(), new StreamingResponseHandler<AiMessage>() {
+            @Override
+            public void onNext(String token) {
+                try {
+                    emitter.send(token);
+                } catch (IOException ex) {
+                    emitter.completeWithError(ex);
+                }
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                emitter.complete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                emitter.completeWithError(error);
+            }
+        });
+        return emitter;
+    }
 }
@@ -16,7 +16,9 @@
 package com.dineshkumarkummara.otel.rag;
 
 import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.model.output.Response;
 import java.util.List;
@@ -30,10 +32,13 @@ public class ChatService {
     private static final Logger log = LoggerFactory.getLogger(ChatService.class);
 
     private final ChatLanguageModel chatModel;
+    private final StreamingChatLanguageModel streamingModel;
     private final RagKnowledgeBase knowledgeBase;
 
-    public ChatService(ChatLanguageModel chatModel, RagKnowledgeBase knowledgeBase) {
+    public ChatService(
+            ChatLanguageModel chatModel, StreamingChatLanguageModel streamingModel, RagKnowledgeBase knowledgeBase) {
         this.chatModel = chatModel;
+        this.streamingModel = streamingModel;
         this.knowledgeBase = knowledgeBase;
     }
 
@@ -49,4 +54,9 @@ public class ChatService {
         log.info("Handled /rag question='{}' with {} docs", question, docs.size());
         return ChatView.from(response, docs);
     }
+
+    public void chatStream(String question, StreamingResponseHandler<AiMessage> handler) {
+        streamingModel.generate(List.of(UserMessage.from("CHAT:" + question)), handler);
+        log.info("Streaming /chat/stream question='{}'", question);
+    }
 }
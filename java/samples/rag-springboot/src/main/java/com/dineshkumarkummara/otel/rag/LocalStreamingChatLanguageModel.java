@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 Dinesh Kumar Kummara
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dineshkumarkummara.otel.rag;
+
+import com.dineshkumarkummara.otel.langchain4j.LangChain4jTelemetry;
+import com.dineshkumarkummara.otel.langchain4j.LangChain4jTelemetryProperties;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streaming variant of {@link LocalChatLanguageModel}: emits the answer word by word from a background
+ * thread so time-to-first-token and per-token latency show up on the dashboards.
+ */
+@Component
+public class LocalStreamingChatLanguageModel implements StreamingChatLanguageModel, DisposableBean {
+
+    private static final long TOKEN_DELAY_MILLIS = 15;
+
+    private final LocalChatLanguageModel model;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "local-streaming-model");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LocalStreamingChatLanguageModel(
+            RagKnowledgeBase knowledgeBase,
+            LangChain4jTelemetry telemetry,
+            LangChain4jTelemetryProperties telemetryProperties) {
+        this.model = new LocalChatLanguageModel(knowledgeBase, telemetry, telemetryProperties);
+    }
+
+    public String modelName() {
+        return model.modelName();
+    }
+
+    public double getTemperature() {
+        return model.getTemperature();
+    }
+
+    public double getTopP() {
+        return model.getTopP();
+    }
+
+    public int getMaxTokens() {
+        return model.getMaxTokens();
+    }
+
+    public List<String> getStopSequences() {
+        return model.getStopSequences();
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        Response<AiMessage> response = model.generate(messages);
+        String[] words = response.content().text().split("(?<=\\s)");
+        scheduler.schedule(new Emitter(words, response, handler), TOKEN_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private final class Emitter implements Runnable {
+
+        private final String[] words;
+        private final Response<AiMessage> response;
+        private final StreamingResponseHandler<AiMessage> handler;
+        private int next;
+
+        private Emitter(String[] words, Response<AiMessage> response, StreamingResponseHandler<AiMessage> handler) {
+            this.words = words;
+            this.response = response;
+            this.handler = handler;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (next < words.length) {
+                    handler.onNext(words[next++]);
+                    scheduler.schedule(this, TOKEN_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                } else {
+                    handler.onComplete(response);
+                }
+            } catch (RuntimeException ex) {
+                handler.onError(ex);
+            }
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.dineshkumarkummara.otel.rag;
 
+import com.dineshkumarkummara.otel.langchain4j.GenAiMetricViews;
+import com.dineshkumarkummara.otel.langchain4j.LangChain4jTelemetryProperties;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
@@ -22,6 +24,7 @@ import io.opentelemetry.exporter.otlp.metrics.OtlpGrpcMetricExporter;
 import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
 import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.SdkMeterProviderBuilder;
 import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
 import io.opentelemetry.sdk.resources.Resource;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
@@ -63,13 +66,14 @@ public class TelemetryConfiguration {
     }
 
     @Bean(destroyMethod = "close")
-    public SdkMeterProvider sdkMeterProvider(OtlpGrpcMetricExporter metricExporter) {
-        meterProvider = SdkMeterProvider.builder()
+    public SdkMeterProvider sdkMeterProvider(
+            OtlpGrpcMetricExporter metricExporter, LangChain4jTelemetryProperties telemetryProperties) {
+        SdkMeterProviderBuilder builder = SdkMeterProvider.builder()
                 .setResource(serviceResource())
                 .registerMetricReader(PeriodicMetricReader.builder(metricExporter)
                         .setInterval(Duration.ofSeconds(1))
-                        .build())
-                .build();
+                        .build());
+        meterProvider = GenAiMetricViews.register(builder, telemetryProperties).build();
         return meterProvider;
     }
 